@@ -0,0 +1,77 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.data.AppendOnlyLogSecurityRepositoryImpl;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistence cost of the append-only log repository, for comparison with
+ * {@link PretendDatabaseRepositoryBenchmark} and across much larger installations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AppendOnlyLogRepositoryBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int sensorCount;
+
+    private Path directory;
+    private AppendOnlyLogSecurityRepositoryImpl repository;
+    private List<Sensor> sensors;
+    private int nextSensor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = BenchmarkFixtures.createTempDirectory();
+        repository = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        sensors = BenchmarkFixtures.sensors(sensorCount);
+        sensors.forEach(repository::addSensor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void updateSensor() {
+        Sensor sensor = sensors.get(nextSensor);
+        nextSensor = (nextSensor + 1) % sensors.size();
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+    }
+
+    @Benchmark
+    public void updateSensors() {
+        repository.updateSensors(sensors);
+    }
+
+    @Benchmark
+    public void addAndRemoveSensor() {
+        Sensor sensor = new Sensor("Transient", SensorType.MOTION);
+        repository.addSensor(sensor);
+        repository.removeSensor(sensor);
+    }
+}
@@ -0,0 +1,86 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.application.StatusListener;
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.image.ImageService;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Shared setup for the benchmarks, so every suite builds its sensors and collaborators the same way.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static List<Sensor> sensors(int count) {
+        SensorType[] types = SensorType.values();
+        List<Sensor> sensors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sensors.add(new Sensor("Sensor " + i, types[i % types.length]));
+        }
+        return sensors;
+    }
+
+    /**
+     * Listener that does no work, so the benchmarks measure the cost of dispatch itself.
+     */
+    static StatusListener noOpListener() {
+        return new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        };
+    }
+
+    /**
+     * Image service that answers instantly, alternating between cat and no cat so both branches
+     * of SecurityService.processImage are exercised.
+     */
+    static ImageService alternatingImageService() {
+        return new ImageService() {
+            private boolean next;
+
+            @Override
+            public boolean imageContainsCat(BufferedImage image) {
+                next = !next;
+                return next;
+            }
+        };
+    }
+
+    static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("catpoint-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
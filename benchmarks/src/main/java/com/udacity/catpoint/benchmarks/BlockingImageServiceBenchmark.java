@@ -0,0 +1,89 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.AsyncImageService;
+import com.udacity.catpoint.image.ImageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bursts of frames through AsyncImageService with a recognizer that blocks like a network call,
+ * on a fixed pool of platform threads versus one virtual thread per frame. Needs Java 21 for the
+ * virtual runs; on older runtimes they fall back to the platform pool and measure the same thing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlockingImageServiceBenchmark {
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"100", "1000"})
+    int burst;
+
+    //roughly one Rekognition round trip
+    @Param({"20"})
+    int blockMillis;
+
+    //platform threads in the fixed pool
+    @Param({"16"})
+    int poolSize;
+
+    private AsyncImageService imageService;
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ImageService blocking = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image) {
+                try {
+                    Thread.sleep(blockMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+        };
+        //both modes admit the whole burst, so neither rejects frames and only the waiting differs
+        imageService = threads.equals("virtual")
+                ? AsyncImageService.onVirtualThreads(blocking, burst)
+                : new AsyncImageService(blocking, poolSize, burst);
+        image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        imageService.close();
+    }
+
+    /**
+     * Time until every frame in a burst has been recognised.
+     */
+    @Benchmark
+    public void burst() {
+        CompletableFuture<?>[] results = new CompletableFuture<?>[burst];
+        for (int i = 0; i < burst; i++) {
+            results[i] = imageService.imageContainsCatAsync(image);
+        }
+        CompletableFuture.allOf(results).join();
+    }
+}
@@ -0,0 +1,85 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Persistence cost of the Preferences-backed repository. Sizes stop at 50 sensors because
+ * Preferences rejects values over 8 KB, which the serialized sensor set exceeds past roughly
+ * ninety sensors.
+ *
+ * The repository writes to a node of its own under the user preferences, removed after the
+ * trial, so the application's stored state is never touched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PretendDatabaseRepositoryBenchmark {
+
+    @Param({"10", "50"})
+    int sensorCount;
+
+    private Preferences prefs;
+    private PretendDatabaseSecurityRepositoryImpl repository;
+    private List<Sensor> sensors;
+    private int nextSensor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BackingStoreException {
+        prefs = Preferences.userNodeForPackage(PretendDatabaseRepositoryBenchmark.class).node("repository");
+        //left behind if an earlier run was killed before tearing down
+        prefs.clear();
+        repository = new PretendDatabaseSecurityRepositoryImpl(prefs);
+        sensors = BenchmarkFixtures.sensors(sensorCount);
+        sensors.forEach(repository::addSensor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws BackingStoreException {
+        Preferences parent = prefs.parent();
+        prefs.removeNode();
+        parent.flush();
+    }
+
+    @Benchmark
+    public void updateSensor() {
+        Sensor sensor = sensors.get(nextSensor);
+        nextSensor = (nextSensor + 1) % sensors.size();
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+    }
+
+    @Benchmark
+    public void updateSensors() {
+        repository.updateSensors(sensors);
+    }
+
+    @Benchmark
+    public void addAndRemoveSensor() {
+        Sensor sensor = new Sensor("Transient", SensorType.MOTION);
+        repository.addSensor(sensor);
+        repository.removeSensor(sensor);
+    }
+}
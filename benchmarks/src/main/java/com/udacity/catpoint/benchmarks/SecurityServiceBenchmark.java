@@ -0,0 +1,111 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.data.AppendOnlyLogSecurityRepositoryImpl;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of SecurityService, backed by the append-only log repository the application uses,
+ * across installation sizes and numbers of status listeners.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SecurityServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int sensorCount;
+
+    @Param({"1", "16"})
+    int listenerCount;
+
+    private Path directory;
+    private AppendOnlyLogSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private List<Sensor> sensors;
+    private BufferedImage image;
+    private int nextSensor;
+    private boolean armed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = BenchmarkFixtures.createTempDirectory();
+        repository = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        securityService = new SecurityService(repository, BenchmarkFixtures.alternatingImageService());
+        sensors = BenchmarkFixtures.sensors(sensorCount);
+        sensors.forEach(securityService::addSensor);
+        for (int i = 0; i < listenerCount; i++) {
+            securityService.addStatusListener(BenchmarkFixtures.noOpListener());
+        }
+        image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+
+    /**
+     * Toggles one sensor at a time while disarmed, so the alarm never blocks the change.
+     */
+    @Benchmark
+    public void changeSensorActivationStatus() {
+        Sensor sensor = sensors.get(nextSensor);
+        nextSensor = (nextSensor + 1) % sensors.size();
+        securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+    }
+
+    @Benchmark
+    public void processImage() {
+        securityService.processImage(image);
+    }
+
+    /**
+     * Alternates between armed and disarmed, so half the calls also reset every sensor.
+     */
+    @Benchmark
+    public void setArmingStatus() {
+        armed = !armed;
+        securityService.setArmingStatus(armed ? ArmingStatus.ARMED_AWAY : ArmingStatus.DISARMED);
+    }
+
+    @Benchmark
+    public void resetAllSensors(AllSensorsActive allSensorsActive) {
+        securityService.resetAllSensors();
+    }
+
+    /**
+     * Activates every sensor before each call, so resetAllSensors always has the full set to persist.
+     */
+    @State(Scope.Benchmark)
+    public static class AllSensorsActive {
+        @Setup(Level.Invocation)
+        public void activate(SecurityServiceBenchmark benchmark) {
+            benchmark.sensors.forEach(s -> s.setActive(true));
+            benchmark.repository.updateSensors(benchmark.sensors);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.udacity.catpoint.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs another ImageService on a bounded pool of worker threads so that several frames can be
+ * analysed at once without blocking the caller. When every worker is busy and the queue is full,
+ * new frames are rejected rather than piling up behind a slow recognition backend.
+ *
+ * Recognition backends like Rekognition spend nearly all their time waiting on the network.
+ * {@link #onVirtualThreads} runs each frame on its own virtual thread instead, so thousands of
+ * those waits can overlap without a large pool of platform threads; frames are then bounded by a
+ * count of frames in flight rather than by threads and a queue.
+ */
+public class AsyncImageService implements ImageService, AutoCloseable {
+
+    private final Logger log = LoggerFactory.getLogger(AsyncImageService.class);
+
+    //frames in flight when running on virtual threads, unless configured otherwise
+    public static final int DEFAULT_VIRTUAL_IN_FLIGHT = 1024;
+
+    private final ImageService delegate;
+    private final ExecutorService executor;
+    //only set on virtual threads, where the executor itself has no bound
+    private final Semaphore permits;
+    private final int maxInFlight;
+
+    public AsyncImageService(ImageService delegate) {
+        this(delegate, Runtime.getRuntime().availableProcessors(), 32);
+    }
+
+    /**
+     * @param delegate Service doing the actual recognition
+     * @param threads Number of frames that may be analysed concurrently
+     * @param queueCapacity Number of frames that may wait for a free worker
+     */
+    public AsyncImageService(ImageService delegate, int threads, int queueCapacity) {
+        this.delegate = delegate;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "catpoint-image-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.permits = null;
+        this.maxInFlight = threads + queueCapacity;
+    }
+
+    private AsyncImageService(ImageService delegate, ExecutorService executor, int maxInFlight) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Runs every frame on a new virtual thread, rejecting frames once maxInFlight are being
+     * analysed. Before Java 21 this falls back to the platform pool, with one thread per
+     * processor and the rest of maxInFlight as its queue.
+     *
+     * @param maxInFlight Number of frames that may be analysed or waiting at once
+     */
+    public static AsyncImageService onVirtualThreads(ImageService delegate, int maxInFlight) {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("catpoint-image-").orElse(null);
+        if (executor == null) {
+            return onPlatformThreads(delegate, maxInFlight);
+        }
+        return new AsyncImageService(delegate, executor, maxInFlight);
+    }
+
+    /**
+     * Runs frames on a pool of up to one platform thread per processor, queueing the rest of
+     * maxInFlight. The queue needs at least one slot, so maxInFlight below 2 is treated as 2.
+     */
+    public static AsyncImageService onPlatformThreads(ImageService delegate, int maxInFlight) {
+        int threads = Math.max(1, Math.min(maxInFlight - 1, Runtime.getRuntime().availableProcessors()));
+        return new AsyncImageService(delegate, threads, Math.max(1, maxInFlight - threads));
+    }
+
+    /**
+     * Whether frames run on virtual threads, false if {@link #onVirtualThreads} had to fall back.
+     */
+    public boolean isVirtual() {
+        return permits != null;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image) {
+        return delegate.imageContainsCat(image);
+    }
+
+    /**
+     * Queues the image for analysis. The returned future completes on a worker thread, or
+     * exceptionally with a RejectedExecutionException if the pipeline is full.
+     */
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+        if (permits == null) {
+            try {
+                return CompletableFuture.supplyAsync(() -> delegate.imageContainsCat(image), executor);
+            } catch (RejectedExecutionException e) {
+                return rejected(e);
+            }
+        }
+
+        if (!permits.tryAcquire()) {
+            return rejected(new RejectedExecutionException("More than " + maxInFlight + " frames in flight"));
+        }
+        try {
+            //release before completing, so whatever the result triggers may submit the next frame
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return delegate.imageContainsCat(image);
+                } finally {
+                    permits.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return rejected(e);
+        }
+    }
+
+    private CompletableFuture<Boolean> rejected(RejectedExecutionException e) {
+        log.debug("Image pipeline full, dropping frame");
+        CompletableFuture<Boolean> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(e);
+        return rejected;
+    }
+
+    /**
+     * Number of frames currently being analysed or waiting for a worker.
+     */
+    public int getInFlightCount() {
+        if (permits != null) {
+            return maxInFlight - permits.availablePermits();
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        return pool.getActiveCount() + pool.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -8,16 +8,29 @@ import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.BoundingBox;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
+import software.amazon.awssdk.services.rekognition.model.Instance;
+import software.amazon.awssdk.services.rekognition.model.Label;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.stream.Collectors;
 
 /**
@@ -37,6 +50,17 @@ public class AwsImageService implements ImageService {
 
     private final Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
+    //longest side of the mosaic built for a batch, in pixels
+    private static final int MAX_MOSAIC_SIZE = 4096;
+
+    //Rekognition rejects images passed as bytes above 5 MB
+    private static final int MAX_IMAGE_BYTES = 5 * 1024 * 1024;
+
+    //idle encoders kept for reuse. A pool rather than a ThreadLocal, because on virtual threads
+    //every frame runs on a new thread and would build a new writer and buffer each time
+    private static final BlockingQueue<JpegEncoder> ENCODERS =
+            new ArrayBlockingQueue<>(Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
+
     //aws recommendation is to maintain only a single instance of client objects
     private static RekognitionClient rekognitionClient;
 
@@ -67,23 +91,169 @@ public class AwsImageService implements ImageService {
      */
     @Override
     public boolean imageContainsCat(BufferedImage image) {
-        Image awsImage = null;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+        DetectLabelsResponse response = detectLabels(image);
+        if (response == null) {
+            return false;
+        }
+        return response.labels().stream().anyMatch(AwsImageService::isCatLabel);
+    }
+
+    private DetectLabelsResponse detectLabels(BufferedImage image) {
+        JpegEncoder encoder = ENCODERS.poll();
+        if (encoder == null) {
+            encoder = new JpegEncoder();
+        }
+        byte[] jpeg;
+        try {
+            jpeg = encodeWithinLimit(encoder, image, MAX_IMAGE_BYTES);
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return null;
+        } finally {
+            if (!ENCODERS.offer(encoder)) {
+                encoder.dispose();
+            }
+        }
+        return detectLabels(SdkBytes.fromByteArrayUnsafe(jpeg));
+    }
+
+    /**
+     * Encodes the image, scaling it down until the JPEG fits in a request. A busy mosaic can
+     * exceed the limit well within MAX_MOSAIC_SIZE.
+     */
+    static byte[] encodeWithinLimit(JpegEncoder encoder, BufferedImage image, int maxBytes) throws IOException {
+        byte[] jpeg = encoder.encode(image);
+        while (jpeg.length > maxBytes) {
+            //JPEG size grows roughly with the pixel count; aim a little under the limit
+            double scale = Math.sqrt((double) maxBytes / jpeg.length) * 0.9;
+            image = FramePreprocessor.scale(image, Math.max(1, (int) (image.getWidth() * scale)),
+                    Math.max(1, (int) (image.getHeight() * scale)));
+            jpeg = encoder.encode(image);
         }
+        return jpeg;
+    }
+
+    private DetectLabelsResponse detectLabels(SdkBytes bytes) {
+        Image awsImage = Image.builder().bytes(bytes).build();
         Float confidenceThreshhold = null;
         DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
         DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
         logLabelsForFun(response);
-        return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
+        return response;
+    }
+
+    /**
+     * Reusable JPEG encoder, used by one thread at a time. ImageIO.write looks up a new writer, may
+     * spool through a temp file and grows a fresh output buffer on every call; this keeps one writer
+     * and one buffer per encoder and caches in memory. The encoded bytes are still copied twice,
+     * from the stream's cache into the buffer and out of it by toByteArray, but SdkBytes then
+     * wraps the result without a third copy.
+     */
+    static final class JpegEncoder {
+        //buffers that grew past this after a very large frame are dropped rather than kept
+        private static final int MAX_RETAINED_BYTES = 8 * 1024 * 1024;
+
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * 1024);
+
+        byte[] encode(BufferedImage image) throws IOException {
+            buffer.reset();
+            try (ImageOutputStream ios = new MemoryCacheImageOutputStream(buffer)) {
+                writer.setOutput(ios);
+                writer.write(image);
+            } finally {
+                writer.setOutput(null);
+            }
+            byte[] jpeg = buffer.toByteArray();
+            if (jpeg.length > MAX_RETAINED_BYTES) {
+                buffer = new ByteArrayOutputStream(256 * 1024);
+            }
+            return jpeg;
+        }
+
+        /**
+         * Releases the writer's native resources once the pool has no room for this encoder.
+         */
+        void dispose() {
+            writer.dispose();
+        }
+    }
+
+    private static boolean isCatLabel(Label label) {
+        return label.name().toLowerCase().contains("cat");
+    }
+
+    /**
+     * Answers a batch with a single Rekognition request by tiling the images into one mosaic,
+     * then assigns each detected cat to a tile using its bounding box. If Rekognition reports a
+     * cat without a bounding box, the batch falls back to one request per image.
+     *
+     * @param images Images to scan
+     */
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images) {
+        if (images.size() < 2) {
+            return ImageService.super.imagesContainCat(images);
+        }
+
+        int columns = (int) Math.ceil(Math.sqrt(images.size()));
+        int rows = (images.size() + columns - 1) / columns;
+        int tileWidth = 0;
+        int tileHeight = 0;
+        for (BufferedImage image : images) {
+            tileWidth = Math.max(tileWidth, image.getWidth());
+            tileHeight = Math.max(tileHeight, image.getHeight());
+        }
+        //keep the mosaic within Rekognition's dimension limits; detectLabels also caps its encoded size
+        double scale = Math.min(1.0, Math.min((double) MAX_MOSAIC_SIZE / (tileWidth * columns),
+                (double) MAX_MOSAIC_SIZE / (tileHeight * rows)));
+        tileWidth = (int) (tileWidth * scale);
+        tileHeight = (int) (tileHeight * scale);
+
+        BufferedImage mosaic = new BufferedImage(tileWidth * columns, tileHeight * rows, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = mosaic.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for (int i = 0; i < images.size(); i++) {
+            BufferedImage image = images.get(i);
+            g.drawImage(image, (i % columns) * tileWidth, (i / columns) * tileHeight,
+                    (int) (image.getWidth() * scale), (int) (image.getHeight() * scale), null);
+        }
+        g.dispose();
+
+        DetectLabelsResponse response = detectLabels(mosaic);
+        if (response == null) {
+            return Collections.nCopies(images.size(), false);
+        }
+
+        Boolean[] results = new Boolean[images.size()];
+        Arrays.fill(results, Boolean.FALSE);
+        for (Label label : response.labels()) {
+            if (!isCatLabel(label)) {
+                continue;
+            }
+            if (label.instances() == null || label.instances().isEmpty()) {
+                log.debug("Cat label without bounding box, checking batch images individually");
+                return ImageService.super.imagesContainCat(images);
+            }
+            for (Instance instance : label.instances()) {
+                BoundingBox box = instance.boundingBox();
+                int column = (int) ((box.left() + box.width() / 2) * columns);
+                int row = (int) ((box.top() + box.height() / 2) * rows);
+                int tile = Math.min(row, rows - 1) * columns + Math.min(column, columns - 1);
+                if (tile < results.length) {
+                    results[tile] = Boolean.TRUE;
+                }
+            }
+        }
+        return Arrays.asList(results);
     }
 
     private void logLabelsForFun(DetectLabelsResponse response) {
-        log.info(response.labels().stream()
+        //one line per frame is far too chatty for info; recognition latency is tracked as a metric instead
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        log.debug(response.labels().stream()
                 .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
                 .collect(Collectors.joining(", ")));
     }
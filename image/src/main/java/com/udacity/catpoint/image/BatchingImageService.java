@@ -0,0 +1,193 @@
+package com.udacity.catpoint.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects frames for a short window and sends them to the wrapped service together through
+ * {@link ImageService#imagesContainCat(List)}, handing each caller the answer for its own frame.
+ * This trades a few milliseconds of latency for far fewer requests to a service like
+ * {@link AwsImageService}, where per-request overhead dominates.
+ *
+ * The window adapts to the load: it doubles, up to the configured maximum, whenever a batch
+ * fills up, and halves whenever a batch goes out with a single frame, so a quiet system pays
+ * almost no extra latency.
+ */
+public class BatchingImageService implements ImageService, AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 4;
+    public static final Duration DEFAULT_MAX_WINDOW = Duration.ofMillis(20);
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private final Logger log = LoggerFactory.getLogger(BatchingImageService.class);
+
+    private final ImageService delegate;
+    private final int maxBatchSize;
+    private final long maxWindowNanos;
+    private final BlockingQueue<PendingFrame> queue;
+    private final ExecutorService dispatcher;
+    private final Thread collector;
+
+    private volatile boolean running = true;
+    //only touched by the collector thread
+    private long windowNanos;
+
+    public BatchingImageService(ImageService delegate) {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_WINDOW, DEFAULT_MAX_IN_FLIGHT, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param delegate Service answering each batch
+     * @param maxBatchSize Most frames sent in one batch
+     * @param maxWindow Longest time to wait for a batch to fill
+     * @param maxInFlight Number of batches that may be with the delegate at once
+     * @param queueCapacity Number of frames that may wait to be batched
+     */
+    public BatchingImageService(ImageService delegate, int maxBatchSize, Duration maxWindow,
+                                int maxInFlight, int queueCapacity) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWindowNanos = maxWindow.toNanos();
+        this.windowNanos = maxWindowNanos;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(maxInFlight, r -> {
+            Thread t = new Thread(r, "catpoint-image-batch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.collector = new Thread(this::collect, "catpoint-image-batcher");
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image) {
+        return imageContainsCatAsync(image).join();
+    }
+
+    /**
+     * Queues the image for the next batch. The returned future completes on a dispatcher thread,
+     * or exceptionally with a RejectedExecutionException if too many frames are waiting or the
+     * service has been closed.
+     */
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+        PendingFrame frame = new PendingFrame(image);
+        if (!running) {
+            frame.result.completeExceptionally(new RejectedExecutionException("Image batching stopped"));
+        } else if (!queue.offer(frame)) {
+            log.debug("Batch queue full, dropping frame");
+            frame.result.completeExceptionally(new RejectedExecutionException("Image batch queue is full"));
+        } else if (!running && queue.remove(frame)) {
+            //closed while offering, possibly after the collector failed what was left in the queue.
+            //If the collector got to the frame first it fails it itself
+            frame.result.completeExceptionally(new RejectedExecutionException("Image batching stopped"));
+        }
+        return frame.result;
+    }
+
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images) {
+        return delegate.imagesContainCat(images);
+    }
+
+    /**
+     * Current batching window, which adapts between zero and the configured maximum.
+     */
+    public Duration getCurrentWindow() {
+        return Duration.ofNanos(windowNanos);
+    }
+
+    /**
+     * Stops batching. Frames still waiting, and any offered from now on, fail with a
+     * RejectedExecutionException; batches already with the delegate finish normally.
+     */
+    @Override
+    public void close() {
+        running = false;
+        collector.interrupt();
+        dispatcher.shutdown();
+    }
+
+    private void collect() {
+        List<PendingFrame> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    //take whatever is already waiting, then wait out the rest of the window
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingFrame next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                adaptWindow(batch.size());
+                dispatch(new ArrayList<>(batch));
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        RejectedExecutionException closed = new RejectedExecutionException("Image batching stopped");
+        batch.forEach(f -> f.result.completeExceptionally(closed));
+        queue.forEach(f -> f.result.completeExceptionally(closed));
+    }
+
+    private void adaptWindow(int batchSize) {
+        if (batchSize >= maxBatchSize) {
+            windowNanos = Math.min(maxWindowNanos, Math.max(windowNanos * 2, TimeUnit.MILLISECONDS.toNanos(1)));
+        } else if (batchSize == 1) {
+            windowNanos /= 2;
+        }
+    }
+
+    private void dispatch(List<PendingFrame> batch) {
+        try {
+            dispatcher.execute(() -> {
+                List<BufferedImage> images = new ArrayList<>(batch.size());
+                batch.forEach(f -> images.add(f.image));
+                try {
+                    List<Boolean> results = delegate.imagesContainCat(images);
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).result.complete(results.get(i));
+                    }
+                } catch (RuntimeException e) {
+                    batch.forEach(f -> f.result.completeExceptionally(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            batch.forEach(f -> f.result.completeExceptionally(e));
+        }
+    }
+
+    private static final class PendingFrame {
+        private final BufferedImage image;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        PendingFrame(BufferedImage image) {
+            this.image = image;
+        }
+    }
+}
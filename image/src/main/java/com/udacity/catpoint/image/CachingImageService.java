@@ -0,0 +1,236 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers recent answers from another ImageService, keyed by a hash of the image pixels, so
+ * that cameras sending the same frame over and over only pay for recognition once. Entries are
+ * evicted least-recently-used once the cache is full, and expire after a fixed time to live.
+ *
+ * Entries are found by one 64-bit hash and confirmed by a second one with a different seed, so
+ * two different frames only share an answer if both hashes collide. A mismatch is counted and
+ * treated as a miss.
+ *
+ * Only cache services whose answer depends on the image alone; caching a service that guesses
+ * would just repeat its first guess.
+ */
+public class CachingImageService implements ImageService {
+
+    private static final long SEED = 0x27d4eb2f165667c5L;
+    private static final long CHECK_SEED = 0x165667b19e3779f9L;
+    private static final long PRIME_1 = 0x9e3779b97f4a7c15L;
+    private static final long PRIME_2 = 0xc2b2ae3d27d4eb4fL;
+
+    private final ImageService delegate;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<Long, CachedResult> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    public CachingImageService(ImageService delegate) {
+        this(delegate, 1024, Duration.ofSeconds(30));
+    }
+
+    /**
+     * @param delegate Service consulted on a cache miss
+     * @param maxEntries Maximum number of distinct images to remember
+     * @param ttl How long an answer stays valid
+     */
+    public CachingImageService(ImageService delegate, int maxEntries, Duration ttl) {
+        this(delegate, maxEntries, ttl, System::nanoTime);
+    }
+
+    CachingImageService(ImageService delegate, int maxEntries, Duration ttl, LongSupplier clock) {
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.cache = new LinkedHashMap<Long, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image) {
+        long[] hashes = contentHashes(image);
+        long key = hashes[0];
+        long check = hashes[1];
+        Boolean cached = lookup(key, check);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result = delegate.imageContainsCat(image);
+        store(key, check, result);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+        long[] hashes = contentHashes(image);
+        long key = hashes[0];
+        long check = hashes[1];
+        Boolean cached = lookup(key, check);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return delegate.imageContainsCatAsync(image).thenApply(result -> {
+            store(key, check, result);
+            return result;
+        });
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Two different images that were both found under the same key.
+     */
+    public long getCollisionCount() {
+        return collisions.sum();
+    }
+
+    Boolean lookup(long key, long check) {
+        long now = clock.getAsLong();
+        synchronized (cache) {
+            CachedResult entry = cache.get(key);
+            if (entry != null && entry.check != check) {
+                //a different image with the same key; the next store replaces it
+                collisions.increment();
+            } else if (entry != null && now - entry.storedAt < ttlNanos) {
+                hits.increment();
+                return entry.containsCat;
+            } else if (entry != null) {
+                cache.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    void store(long key, long check, boolean containsCat) {
+        CachedResult entry = new CachedResult(check, containsCat, clock.getAsLong());
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+    }
+
+    /**
+     * Two 64-bit multiply-rotate hashes of the image dimensions and pixels, the key and the check,
+     * computed in a single pass so each pixel is read once. Reads the backing array directly for
+     * the common int and byte rasters, hashing four independent lanes per hash so the CPU can
+     * overlap the multiplies, and falls back to getRGB for anything else.
+     *
+     * @return the key hash, then the check hash
+     */
+    static long[] contentHashes(BufferedImage image) {
+        long key = mix(mix(mix(SEED, image.getWidth()), image.getHeight()), image.getType());
+        long check = mix(mix(mix(CHECK_SEED, image.getWidth()), image.getHeight()), image.getType());
+
+        WritableRaster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        boolean wholeBuffer = raster.getParent() == null && buffer.getNumBanks() == 1;
+        if (wholeBuffer && buffer instanceof DataBufferInt) {
+            int[] data = ((DataBufferInt) buffer).getData();
+            long k1 = key, k2 = key + PRIME_1, k3 = key + PRIME_2, k4 = key - PRIME_1;
+            long c1 = check, c2 = check + PRIME_1, c3 = check + PRIME_2, c4 = check - PRIME_1;
+            int i = 0;
+            for (; i + 8 <= data.length; i += 8) {
+                long v1 = ((long) data[i] << 32) | (data[i + 1] & 0xffffffffL);
+                long v2 = ((long) data[i + 2] << 32) | (data[i + 3] & 0xffffffffL);
+                long v3 = ((long) data[i + 4] << 32) | (data[i + 5] & 0xffffffffL);
+                long v4 = ((long) data[i + 6] << 32) | (data[i + 7] & 0xffffffffL);
+                k1 = mix(k1, v1);
+                k2 = mix(k2, v2);
+                k3 = mix(k3, v3);
+                k4 = mix(k4, v4);
+                c1 = mix(c1, v1);
+                c2 = mix(c2, v2);
+                c3 = mix(c3, v3);
+                c4 = mix(c4, v4);
+            }
+            key = combine(k1, k2, k3, k4);
+            check = combine(c1, c2, c3, c4);
+            for (; i < data.length; i++) {
+                key = mix(key, data[i]);
+                check = mix(check, data[i]);
+            }
+        } else if (wholeBuffer && buffer instanceof DataBufferByte) {
+            ByteBuffer bytes = ByteBuffer.wrap(((DataBufferByte) buffer).getData()).order(ByteOrder.nativeOrder());
+            long k1 = key, k2 = key + PRIME_1, k3 = key + PRIME_2, k4 = key - PRIME_1;
+            long c1 = check, c2 = check + PRIME_1, c3 = check + PRIME_2, c4 = check - PRIME_1;
+            while (bytes.remaining() >= Long.BYTES * 4) {
+                long v1 = bytes.getLong();
+                long v2 = bytes.getLong();
+                long v3 = bytes.getLong();
+                long v4 = bytes.getLong();
+                k1 = mix(k1, v1);
+                k2 = mix(k2, v2);
+                k3 = mix(k3, v3);
+                k4 = mix(k4, v4);
+                c1 = mix(c1, v1);
+                c2 = mix(c2, v2);
+                c3 = mix(c3, v3);
+                c4 = mix(c4, v4);
+            }
+            key = combine(k1, k2, k3, k4);
+            check = combine(c1, c2, c3, c4);
+            while (bytes.hasRemaining()) {
+                byte value = bytes.get();
+                key = mix(key, value);
+                check = mix(check, value);
+            }
+        } else {
+            int[] row = new int[image.getWidth()];
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, row.length, 1, row, 0, row.length);
+                for (int pixel : row) {
+                    key = mix(key, pixel);
+                    check = mix(check, pixel);
+                }
+            }
+        }
+        return new long[]{key, check};
+    }
+
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft(hash ^ value * PRIME_1, 31) * PRIME_2;
+    }
+
+    private static long combine(long h1, long h2, long h3, long h4) {
+        return mix(mix(mix(h1, h2), h3), h4);
+    }
+
+    private static final class CachedResult {
+        private final long check;
+        private final boolean containsCat;
+        private final long storedAt;
+
+        CachedResult(long check, boolean containsCat, long storedAt) {
+            this.check = check;
+            this.containsCat = containsCat;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Skips recognition for frames that look the same as the last one that was analysed. Each frame
+ * is reduced to a small grid of luminance values. If fewer than a set number of cells differ
+ * from the last analysed grid by more than the per-cell threshold, the previous answer is
+ * returned without asking the wrapped service. Counting changed cells, rather than averaging over
+ * the whole frame, means a cat walking into one corner still counts as a change. Comparing
+ * against the last analysed frame, rather than the previous frame, means slow changes still add
+ * up and eventually trigger a new analysis.
+ *
+ * A frame becomes the reference as soon as it is sent for analysis, and unchanged frames that
+ * arrive while it is in flight wait for its answer. Frames are numbered, and a failed analysis
+ * only clears the reference if no newer frame has replaced it since.
+ *
+ * One instance tracks a single camera.
+ */
+public class FrameDifferenceImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int cellThreshold;
+    private final int minChangedCells;
+
+    private int[] lastGrid;
+    private CompletableFuture<Boolean> lastResult;
+    private long lastSequence;
+
+    private final LongAdder analysed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    public FrameDifferenceImageService(ImageService delegate) {
+        this(delegate, 32, 24, 24, 2);
+    }
+
+    /**
+     * @param delegate Service consulted when the scene has changed
+     * @param gridWidth Number of luminance cells across
+     * @param gridHeight Number of luminance cells down
+     * @param cellThreshold Luminance difference (0-255) above which a cell counts as changed
+     * @param minChangedCells Number of changed cells that make a frame worth analysing
+     */
+    public FrameDifferenceImageService(ImageService delegate, int gridWidth, int gridHeight,
+                                       int cellThreshold, int minChangedCells) {
+        this.delegate = delegate;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.cellThreshold = cellThreshold;
+        this.minChangedCells = minChangedCells;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image) {
+        int[] grid = luminanceGrid(image);
+        CompletableFuture<Boolean> pending;
+        long sequence;
+        synchronized (this) {
+            if (isUnchanged(grid)) {
+                skipped.increment();
+                pending = lastResult;
+                sequence = -1;
+            } else {
+                pending = new CompletableFuture<>();
+                sequence = remember(grid, pending);
+            }
+        }
+        if (sequence < 0) {
+            return pending.join();
+        }
+        try {
+            boolean result = delegate.imageContainsCat(image);
+            pending.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            forget(sequence);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+        int[] grid = luminanceGrid(image);
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        long sequence;
+        synchronized (this) {
+            if (isUnchanged(grid)) {
+                skipped.increment();
+                //a copy, so callers can't complete the shared future
+                return lastResult.copy();
+            }
+            sequence = remember(grid, pending);
+        }
+        CompletableFuture<Boolean> analysis;
+        try {
+            analysis = delegate.imageContainsCatAsync(image);
+        } catch (RuntimeException e) {
+            analysis = new CompletableFuture<>();
+            analysis.completeExceptionally(e);
+        }
+        analysis.whenComplete((result, ex) -> {
+            if (ex != null) {
+                pending.completeExceptionally(ex);
+                forget(sequence);
+            } else {
+                pending.complete(result);
+            }
+        });
+        return pending.copy();
+    }
+
+    public long getAnalysedCount() {
+        return analysed.sum();
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    private boolean isUnchanged(int[] grid) {
+        if (lastGrid == null) {
+            return false;
+        }
+        int changed = 0;
+        for (int i = 0; i < grid.length; i++) {
+            if (Math.abs(grid[i] - lastGrid[i]) > cellThreshold && ++changed >= minChangedCells) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes the grid the reference for later frames; called with the lock held.
+     *
+     * @return the frame's sequence number
+     */
+    private long remember(int[] grid, CompletableFuture<Boolean> result) {
+        analysed.increment();
+        lastGrid = grid;
+        lastResult = result;
+        return ++lastSequence;
+    }
+
+    /**
+     * Drops the reference after its analysis failed, unless a newer frame has already replaced it.
+     */
+    private synchronized void forget(long sequence) {
+        if (sequence == lastSequence) {
+            lastGrid = null;
+            lastResult = null;
+        }
+    }
+
+    /**
+     * Averages four sample points inside each grid cell. Positions are relative to the image
+     * size, so frames of different resolutions from the same camera still compare sensibly.
+     */
+    private int[] luminanceGrid(BufferedImage image) {
+        int[] grid = new int[gridWidth * gridHeight];
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int gy = 0; gy < gridHeight; gy++) {
+            for (int gx = 0; gx < gridWidth; gx++) {
+                int sum = 0;
+                for (int s = 0; s < 4; s++) {
+                    //sample at the 1/4 and 3/4 points of the cell in each direction
+                    int x = (int) ((gx * 4L + 1 + (s & 1) * 2) * width / (gridWidth * 4L));
+                    int y = (int) ((gy * 4L + 1 + (s >> 1) * 2) * height / (gridHeight * 4L));
+                    int rgb = image.getRGB(x, y);
+                    sum += (((rgb >> 16) & 0xff) * 77 + ((rgb >> 8) & 0xff) * 150 + (rgb & 0xff) * 29) >> 8;
+                }
+                grid[gy * gridWidth + gx] = sum >> 2;
+            }
+        }
+        return grid;
+    }
+}
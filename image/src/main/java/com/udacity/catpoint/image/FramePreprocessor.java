@@ -0,0 +1,191 @@
+package com.udacity.catpoint.image;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Shrinks camera frames to the resolution recognition actually needs, once, before anything else
+ * touches them. The smaller frame is cheaper to hash, diff, encode and upload, and the UI can draw
+ * its thumbnail from it instead of rescaling the full frame again.
+ *
+ * Optionally only regions of interest are kept, given as fractions of the frame so they hold for
+ * any camera resolution. The frame is cropped to the area covering all regions, and with more than
+ * one region everything outside them is blacked out.
+ *
+ * Regions are kept as plain numbers and all drawing lives in a nested class, so building a
+ * preprocessor, e.g. while reading the server config, loads no java.desktop classes; they are
+ * only loaded once the first frame is prepared.
+ */
+public class FramePreprocessor {
+
+    public static final int DEFAULT_MAX_WIDTH = 640;
+    public static final int DEFAULT_MAX_HEIGHT = 480;
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private final List<Region> regions;
+
+    public FramePreprocessor() {
+        this(DEFAULT_MAX_WIDTH, DEFAULT_MAX_HEIGHT, Collections.emptyList());
+    }
+
+    /**
+     * @param maxWidth Widest frame passed on; larger frames are scaled down, keeping their aspect ratio
+     * @param maxHeight Tallest frame passed on
+     * @param regions Regions of interest, or empty to keep the whole frame
+     */
+    public FramePreprocessor(int maxWidth, int maxHeight, List<Region> regions) {
+        if (maxWidth < 1 || maxHeight < 1) {
+            throw new IllegalArgumentException("Recognition resolution must be at least 1x1");
+        }
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.regions = new ArrayList<>(regions);
+    }
+
+    /**
+     * Returns the frame cropped and scaled for recognition. A frame that already fits and has no
+     * regions to crop to is returned as it is.
+     */
+    public BufferedImage prepare(BufferedImage frame) {
+        List<Rectangle> areas = new ArrayList<>(regions.size());
+        Rectangle bounds = null;
+        for (Region region : regions) {
+            Rectangle area = toPixels(region, frame.getWidth(), frame.getHeight());
+            areas.add(area);
+            bounds = bounds == null ? area : bounds.union(area);
+        }
+        if (bounds == null) {
+            bounds = new Rectangle(0, 0, frame.getWidth(), frame.getHeight());
+        }
+
+        double scale = Math.min(1.0, Math.min((double) maxWidth / bounds.width, (double) maxHeight / bounds.height));
+        int width = Math.max(1, (int) Math.round(bounds.width * scale));
+        int height = Math.max(1, (int) Math.round(bounds.height * scale));
+        if (areas.size() <= 1) {
+            if (width == frame.getWidth() && height == frame.getHeight()) {
+                return frame;
+            }
+            //a subimage shares the frame's pixels, so cropping copies nothing
+            return scale(frame.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height), width, height);
+        }
+        return Drawing.compose(frame, areas, bounds, scale, width, height);
+    }
+
+    /**
+     * Resizes an image with bilinear filtering. Large reductions are done by halving repeatedly,
+     * which is as fast as one step but doesn't skip over pixels the way a single bilinear pass
+     * does. Much quicker than {@link java.awt.Image#getScaledInstance} with SCALE_SMOOTH.
+     */
+    public static BufferedImage scale(BufferedImage image, int width, int height) {
+        return Drawing.scale(image, width, height);
+    }
+
+    private static Rectangle toPixels(Region region, int width, int height) {
+        int x = (int) Math.floor(region.x * width);
+        int y = (int) Math.floor(region.y * height);
+        int right = Math.max(x + 1, (int) Math.ceil((region.x + region.width) * width));
+        int bottom = Math.max(y + 1, (int) Math.ceil((region.y + region.height) * height));
+        return new Rectangle(x, y, Math.min(right, width) - x, Math.min(bottom, height) - y);
+    }
+
+    /**
+     * A region of interest, with every coordinate a fraction of the frame between 0 and 1.
+     */
+    public static final class Region {
+        private final double x;
+        private final double y;
+        private final double width;
+        private final double height;
+
+        public Region(double x, double y, double width, double height) {
+            if (!(width > 0 && height > 0 && x >= 0 && y >= 0 && x + width <= 1 && y + height <= 1)) {
+                throw new IllegalArgumentException("Region of interest must lie within 0..1: "
+                        + x + "," + y + "," + width + "," + height);
+            }
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getWidth() {
+            return width;
+        }
+
+        public double getHeight() {
+            return height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Region)) return false;
+            Region region = (Region) o;
+            return region.x == x && region.y == y && region.width == width && region.height == height;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(x, y, width, height);
+        }
+
+        @Override
+        public String toString() {
+            return x + "," + y + "," + width + "," + height;
+        }
+    }
+
+    /**
+     * The Graphics2D work. Kept apart because verifying it loads the java.awt image classes.
+     */
+    private static final class Drawing {
+
+        static BufferedImage compose(BufferedImage frame, List<Rectangle> areas, Rectangle bounds,
+                                     double scale, int width, int height) {
+            BufferedImage prepared = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = prepared.createGraphics();
+            for (Rectangle area : areas) {
+                int x = (int) Math.round((area.x - bounds.x) * scale);
+                int y = (int) Math.round((area.y - bounds.y) * scale);
+                BufferedImage part = scale(frame.getSubimage(area.x, area.y, area.width, area.height),
+                        Math.max(1, Math.min(width - x, (int) Math.round(area.width * scale))),
+                        Math.max(1, Math.min(height - y, (int) Math.round(area.height * scale))));
+                g.drawImage(part, x, y, null);
+            }
+            g.dispose();
+            return prepared;
+        }
+
+        static BufferedImage scale(BufferedImage image, int width, int height) {
+            BufferedImage current = image;
+            int currentWidth = image.getWidth();
+            int currentHeight = image.getHeight();
+            while (currentWidth != width || currentHeight != height) {
+                currentWidth = currentWidth / 2 >= width ? currentWidth / 2 : width;
+                currentHeight = currentHeight / 2 >= height ? currentHeight / 2 : height;
+                BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = next.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+                g.dispose();
+                current = next;
+            }
+            return current;
+        }
+    }
+}
@@ -1,8 +1,37 @@
-
 package com.udacity.catpoint.image;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface ImageService {
     boolean imageContainsCat(BufferedImage image);
-}
\ No newline at end of file
+
+    /**
+     * Non-blocking variant of {@link #imageContainsCat(BufferedImage)}. The default runs the
+     * check on the calling thread; see {@link AsyncImageService} for a pooled implementation.
+     */
+    default CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            result.complete(imageContainsCat(image));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Checks several images at once, returning one answer per image in the same order. The
+     * default checks them one by one; services with a high per-request cost can override this
+     * to answer the whole batch with fewer calls. See {@link BatchingImageService}.
+     */
+    default List<Boolean> imagesContainCat(List<BufferedImage> images) {
+        List<Boolean> results = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            results.add(imageContainsCat(image));
+        }
+        return results;
+    }
+}
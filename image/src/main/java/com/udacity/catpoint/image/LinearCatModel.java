@@ -0,0 +1,87 @@
+package com.udacity.catpoint.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Logistic regression over the colour and edge features computed by {@link LocalImageService}.
+ * Models are trained offline and stored as a properties file so they can be swapped without
+ * rebuilding the application:
+ *      model.weights=[comma separated weights, one per feature]
+ *      model.bias=[intercept]
+ *      model.threshold=[probability above which an image is a cat, defaults to 0.5]
+ */
+public class LinearCatModel {
+
+    private final double[] weights;
+    private final double bias;
+    private final double threshold;
+
+    public LinearCatModel(double[] weights, double bias, double threshold) {
+        if (weights.length != LocalImageService.FEATURE_COUNT) {
+            throw new IllegalArgumentException("Expected " + LocalImageService.FEATURE_COUNT
+                    + " weights but got " + weights.length);
+        }
+        this.weights = weights.clone();
+        this.bias = bias;
+        this.threshold = threshold;
+    }
+
+    public static LinearCatModel load(Path modelFile) throws IOException {
+        try (InputStream is = Files.newInputStream(modelFile)) {
+            return load(is);
+        }
+    }
+
+    public static LinearCatModel load(InputStream is) throws IOException {
+        Properties props = new Properties();
+        props.load(is);
+
+        String weightList = props.getProperty("model.weights");
+        if (weightList == null) {
+            throw new IOException("Model file has no model.weights entry");
+        }
+        String[] parts = weightList.split(",");
+        double[] weights = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                weights[i] = Double.parseDouble(parts[i].trim());
+            }
+            double bias = Double.parseDouble(props.getProperty("model.bias", "0"));
+            double threshold = Double.parseDouble(props.getProperty("model.threshold", "0.5"));
+            return new LinearCatModel(weights, bias, threshold);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid model file: " + e.getMessage(), e);
+        }
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public double getBias() {
+        return bias;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Probability, between 0 and 1, that the features describe a cat.
+     */
+    public double probability(double[] features) {
+        double z = bias;
+        for (int i = 0; i < weights.length; i++) {
+            z += weights[i] * features[i];
+        }
+        return 1 / (1 + Math.exp(-z));
+    }
+
+    public boolean isCat(double[] features) {
+        return probability(features) > threshold;
+    }
+}
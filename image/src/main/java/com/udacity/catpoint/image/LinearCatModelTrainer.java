@@ -0,0 +1,161 @@
+package com.udacity.catpoint.image;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Trains a {@link LinearCatModel} from example images and writes it in the format
+ * {@link LinearCatModel#load} reads. Pass directories of frames from your own cameras:
+ * <pre>
+ *   java com.udacity.catpoint.image.LinearCatModelTrainer cats/ not-cats/ cat-model.properties
+ * </pre>
+ * No model ships with the application. To try the local service before any footage exists, a
+ * demo model can be trained on the two sample images in the project root,
+ * <pre>
+ *   java com.udacity.catpoint.image.LinearCatModelTrainer sample-cat.jpg sample-not-a-cat-fail.jpg \
+ *       demo-cat-model.properties
+ * </pre>
+ * but it has only ever seen those two photos and says nothing about how well it recognises cats.
+ *
+ * Each image is also used mirrored and cropped, so a handful of examples still gives a usable
+ * model. Training is plain batch gradient descent with a little L2 regularisation, and always
+ * produces the same model from the same images.
+ */
+public class LinearCatModelTrainer {
+
+    private static final int ITERATIONS = 20_000;
+    private static final double LEARNING_RATE = 0.5;
+    private static final double L2 = 0.001;
+    //fraction of each side kept by the cropped variants
+    private static final double CROP = 0.8;
+
+    private final List<double[]> features = new ArrayList<>();
+    private final List<Boolean> labels = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: LinearCatModelTrainer <cat image or dir> <not-cat image or dir> <model file>");
+            System.exit(2);
+        }
+        LinearCatModelTrainer trainer = new LinearCatModelTrainer();
+        trainer.addAll(Paths.get(args[0]), true);
+        trainer.addAll(Paths.get(args[1]), false);
+        String comment = "trained by LinearCatModelTrainer on " + args[0] + " (cat) and " + args[1] + " (not a cat)";
+        trainer.write(Paths.get(args[2]), comment);
+    }
+
+    /**
+     * Adds an image, or every image in a directory, as examples with the given label.
+     */
+    public void addAll(Path path, boolean cat) throws IOException {
+        List<Path> files;
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> list = Files.list(path)) {
+                files = list.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        } else {
+            files = List.of(path);
+        }
+        for (Path file : files) {
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                throw new IOException("Not a readable image: " + file);
+            }
+            add(image, cat);
+        }
+    }
+
+    public void add(BufferedImage image, boolean cat) {
+        for (BufferedImage variant : variants(image)) {
+            features.add(LocalImageService.extractFeatures(variant));
+            labels.add(cat);
+        }
+    }
+
+    public LinearCatModel train() {
+        if (!labels.contains(true) || !labels.contains(false)) {
+            throw new IllegalStateException("Need examples of both cats and non-cats");
+        }
+        int n = features.size();
+        double[] weights = new double[LocalImageService.FEATURE_COUNT];
+        double bias = 0;
+        double[] gradient = new double[weights.length];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Arrays.fill(gradient, 0);
+            double biasGradient = 0;
+            for (int i = 0; i < n; i++) {
+                double[] x = features.get(i);
+                double z = bias;
+                for (int f = 0; f < weights.length; f++) {
+                    z += weights[f] * x[f];
+                }
+                double error = 1 / (1 + Math.exp(-z)) - (labels.get(i) ? 1 : 0);
+                for (int f = 0; f < weights.length; f++) {
+                    gradient[f] += error * x[f];
+                }
+                biasGradient += error;
+            }
+            for (int f = 0; f < weights.length; f++) {
+                weights[f] -= LEARNING_RATE * (gradient[f] / n + L2 * weights[f]);
+            }
+            bias -= LEARNING_RATE * biasGradient / n;
+        }
+        return new LinearCatModel(weights, bias, 0.5);
+    }
+
+    /**
+     * Trains on the examples added so far and writes the model, headed by a comment line.
+     */
+    public void write(Path modelFile, String comment) throws IOException {
+        LinearCatModel model = train();
+        try (Writer out = Files.newBufferedWriter(modelFile, StandardCharsets.ISO_8859_1)) {
+            out.write("# " + comment + "\n");
+            out.write("model.weights=" + Arrays.stream(model.getWeights())
+                    .mapToObj(w -> String.format(Locale.ROOT, "%.6f", w))
+                    .collect(Collectors.joining(",")) + "\n");
+            out.write(String.format(Locale.ROOT, "model.bias=%.6f\n", model.getBias()));
+            out.write(String.format(Locale.ROOT, "model.threshold=%.2f\n", model.getThreshold()));
+        }
+    }
+
+    /**
+     * The image as given and mirrored, each whole and cropped to its four corners and centre.
+     */
+    static List<BufferedImage> variants(BufferedImage image) {
+        List<BufferedImage> variants = new ArrayList<>();
+        for (BufferedImage source : List.of(image, mirror(image))) {
+            variants.add(source);
+            int w = (int) (source.getWidth() * CROP);
+            int h = (int) (source.getHeight() * CROP);
+            int right = source.getWidth() - w;
+            int bottom = source.getHeight() - h;
+            variants.add(source.getSubimage(0, 0, w, h));
+            variants.add(source.getSubimage(right, 0, w, h));
+            variants.add(source.getSubimage(0, bottom, w, h));
+            variants.add(source.getSubimage(right, bottom, w, h));
+            variants.add(source.getSubimage(right / 2, bottom / 2, w, h));
+        }
+        return variants;
+    }
+
+    private static BufferedImage mirror(BufferedImage image) {
+        BufferedImage mirrored = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = mirrored.createGraphics();
+        g.drawImage(image, image.getWidth(), 0, -image.getWidth(), image.getHeight(), null);
+        g.dispose();
+        return mirrored;
+    }
+}
@@ -0,0 +1,92 @@
+package com.udacity.catpoint.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Image Recognition Service that runs entirely in-process, with no network access. Each image is
+ * shrunk to a small thumbnail, summarised as a handful of colour and edge features, and scored
+ * by a {@link LinearCatModel} loaded from a local file. Classification takes a few milliseconds
+ * on a single core, so it suits air-gapped installations or a first pass before a remote service.
+ */
+public class LocalImageService implements ImageService {
+
+    static final int HUE_BINS = 12;
+    static final int SATURATION_BINS = 4;
+    static final int VALUE_BINS = 4;
+    //hue, saturation and value histograms, edge density and mean brightness
+    static final int FEATURE_COUNT = HUE_BINS + SATURATION_BINS + VALUE_BINS + 2;
+
+    private static final int THUMBNAIL_SIZE = 64;
+    //pixels darker or greyer than this have no meaningful hue
+    private static final float MIN_HUE_SATURATION = 0.2f;
+    private static final float MIN_HUE_VALUE = 0.2f;
+    private static final int EDGE_THRESHOLD = 40;
+
+    private final LinearCatModel model;
+
+    public LocalImageService(Path modelFile) throws IOException {
+        this(LinearCatModel.load(modelFile));
+    }
+
+    public LocalImageService(LinearCatModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image) {
+        return model.isCat(extractFeatures(image));
+    }
+
+    static double[] extractFeatures(BufferedImage image) {
+        BufferedImage thumbnail = new BufferedImage(THUMBNAIL_SIZE, THUMBNAIL_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, THUMBNAIL_SIZE, THUMBNAIL_SIZE, null);
+        g.dispose();
+
+        int[] pixels = thumbnail.getRGB(0, 0, THUMBNAIL_SIZE, THUMBNAIL_SIZE, null, 0, THUMBNAIL_SIZE);
+        int[] luminance = new int[pixels.length];
+        double[] features = new double[FEATURE_COUNT];
+        float[] hsb = new float[3];
+        long brightnessSum = 0;
+
+        for (int i = 0; i < pixels.length; i++) {
+            int r = (pixels[i] >> 16) & 0xff;
+            int gr = (pixels[i] >> 8) & 0xff;
+            int b = pixels[i] & 0xff;
+            Color.RGBtoHSB(r, gr, b, hsb);
+            if (hsb[1] >= MIN_HUE_SATURATION && hsb[2] >= MIN_HUE_VALUE) {
+                features[Math.min((int) (hsb[0] * HUE_BINS), HUE_BINS - 1)]++;
+            }
+            features[HUE_BINS + Math.min((int) (hsb[1] * SATURATION_BINS), SATURATION_BINS - 1)]++;
+            features[HUE_BINS + SATURATION_BINS + Math.min((int) (hsb[2] * VALUE_BINS), VALUE_BINS - 1)]++;
+            luminance[i] = (r * 77 + gr * 150 + b * 29) >> 8;
+            brightnessSum += luminance[i];
+        }
+
+        int edges = 0;
+        for (int y = 1; y < THUMBNAIL_SIZE - 1; y++) {
+            for (int x = 1; x < THUMBNAIL_SIZE - 1; x++) {
+                int i = y * THUMBNAIL_SIZE + x;
+                int dx = luminance[i + 1] - luminance[i - 1];
+                int dy = luminance[i + THUMBNAIL_SIZE] - luminance[i - THUMBNAIL_SIZE];
+                if (Math.abs(dx) + Math.abs(dy) > EDGE_THRESHOLD) {
+                    edges++;
+                }
+            }
+        }
+
+        //normalise so features don't depend on the thumbnail size
+        for (int i = 0; i < HUE_BINS + SATURATION_BINS + VALUE_BINS; i++) {
+            features[i] /= pixels.length;
+        }
+        features[FEATURE_COUNT - 2] = (double) edges / ((THUMBNAIL_SIZE - 2) * (THUMBNAIL_SIZE - 2));
+        features[FEATURE_COUNT - 1] = brightnessSum / (255.0 * pixels.length);
+        return features;
+    }
+}
@@ -0,0 +1,43 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs every frame through a {@link FramePreprocessor} before handing it to another ImageService.
+ * Put it outermost, so caching, frame differencing and encoding all work on the smaller frame.
+ *
+ * Callers that already prepare frames themselves, e.g. to reuse them for display, should pass
+ * them straight to the inner service instead; cropping twice would cut the regions down again.
+ */
+public class PreprocessingImageService implements ImageService {
+
+    private final FramePreprocessor preprocessor;
+    private final ImageService delegate;
+
+    public PreprocessingImageService(FramePreprocessor preprocessor, ImageService delegate) {
+        this.preprocessor = preprocessor;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image) {
+        return delegate.imageContainsCat(preprocessor.prepare(image));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+        return delegate.imageContainsCatAsync(preprocessor.prepare(image));
+    }
+
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images) {
+        List<BufferedImage> prepared = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            prepared.add(preprocessor.prepare(image));
+        }
+        return delegate.imagesContainCat(prepared);
+    }
+}
@@ -0,0 +1,70 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncImageServiceTest {
+
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private final BufferedImage frame = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+    private final CountDownLatch release = new CountDownLatch(1);
+    //holds every frame until released, so the pipeline stays full
+    private final ImageService blocked = image -> {
+        try {
+            return release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    };
+
+    /**
+     * @param virtual onVirtualThreads, which falls back to onPlatformThreads before Java 21;
+     *                otherwise a pool of two threads with two queue slots
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void fullPipeline_rejectsTheNextFrame_untilFramesFinish(boolean virtual) throws Exception {
+        try (AsyncImageService async = virtual
+                ? AsyncImageService.onVirtualThreads(blocked, MAX_IN_FLIGHT)
+                : new AsyncImageService(blocked, 2, MAX_IN_FLIGHT - 2)) {
+            List<CompletableFuture<Boolean>> accepted = new ArrayList<>();
+            for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+                accepted.add(async.imageContainsCatAsync(frame));
+            }
+            awaitTrue(() -> async.getInFlightCount() == MAX_IN_FLIGHT);
+
+            CompletableFuture<Boolean> overflow = async.imageContainsCatAsync(frame);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> overflow.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException, e.getCause().toString());
+
+            release.countDown();
+            for (CompletableFuture<Boolean> future : accepted) {
+                assertTrue(future.get(5, TimeUnit.SECONDS));
+            }
+            awaitTrue(() -> async.getInFlightCount() == 0);
+            assertTrue(async.imageContainsCatAsync(frame).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AwsImageServiceTest {
+
+    @Test
+    void encodeWithinLimit_scalesDownFramesThatEncodeTooLarge() throws Exception {
+        //noise barely compresses, like a mosaic of busy frames
+        BufferedImage noise = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+        for (int y = 0; y < noise.getHeight(); y++) {
+            for (int x = 0; x < noise.getWidth(); x++) {
+                noise.setRGB(x, y, random.nextInt());
+            }
+        }
+        AwsImageService.JpegEncoder encoder = new AwsImageService.JpegEncoder();
+        assertTrue(encoder.encode(noise).length > 20_000);
+
+        byte[] jpeg = AwsImageService.encodeWithinLimit(encoder, noise, 20_000);
+
+        assertTrue(jpeg.length <= 20_000, "encoded to " + jpeg.length + " bytes");
+        BufferedImage sent = ImageIO.read(new ByteArrayInputStream(jpeg));
+        assertTrue(sent.getWidth() < 400);
+        //the aspect ratio is kept, so bounding boxes still map back onto the tiles
+        assertEquals(0.75, (double) sent.getHeight() / sent.getWidth(), 0.02);
+        encoder.dispose();
+    }
+}
@@ -0,0 +1,69 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingImageServiceTest {
+
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    //says a frame contains a cat if it's wider than 4 pixels, and records every batch it's sent
+    private final ImageService recognizer = new ImageService() {
+        @Override
+        public boolean imageContainsCat(BufferedImage image) {
+            return image.getWidth() > 4;
+        }
+
+        @Override
+        public List<Boolean> imagesContainCat(List<BufferedImage> images) {
+            batchSizes.add(images.size());
+            return ImageService.super.imagesContainCat(images);
+        }
+    };
+
+    private static BufferedImage frame(int width) {
+        return new BufferedImage(width, 2, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    void framesArrivingWithinTheWindow_goOutAsOneBatch() throws Exception {
+        try (BatchingImageService batching = new BatchingImageService(recognizer, 4, Duration.ofSeconds(5), 1, 16)) {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int width : new int[]{8, 2, 8, 2}) {
+                results.add(batching.imageContainsCatAsync(frame(width)));
+            }
+
+            assertTrue(results.get(0).get(5, TimeUnit.SECONDS));
+            assertFalse(results.get(1).get(5, TimeUnit.SECONDS));
+            assertTrue(results.get(2).get(5, TimeUnit.SECONDS));
+            assertFalse(results.get(3).get(5, TimeUnit.SECONDS));
+            assertEquals(List.of(4), batchSizes);
+        }
+    }
+
+    @Test
+    void close_failsWaitingFramesAndRejectsNewOnes() {
+        BatchingImageService batching = new BatchingImageService(recognizer, 4, Duration.ofMinutes(1), 1, 16);
+        //waits for three more frames that never come
+        CompletableFuture<Boolean> waiting = batching.imageContainsCatAsync(frame(8));
+
+        batching.close();
+
+        CompletionException failure = assertThrows(CompletionException.class, waiting::join);
+        assertTrue(failure.getCause() instanceof RejectedExecutionException);
+        failure = assertThrows(CompletionException.class, () -> batching.imageContainsCatAsync(frame(8)).join());
+        assertTrue(failure.getCause() instanceof RejectedExecutionException);
+        assertTrue(batchSizes.isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingImageServiceTest {
+
+    private long now;
+    private int calls;
+    //answers true for images whose top-left pixel is odd
+    private final ImageService counting = image -> {
+        calls++;
+        return (image.getRGB(0, 0) & 1) == 1;
+    };
+
+    private static BufferedImage image(int rgb) {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, rgb);
+        return image;
+    }
+
+    @Test
+    void sameImage_answeredFromCache_andCounted() {
+        CachingImageService cache = new CachingImageService(counting, 4, Duration.ofSeconds(30), () -> now);
+
+        assertTrue(cache.imageContainsCat(image(1)));
+        assertTrue(cache.imageContainsCat(image(1)));
+        assertFalse(cache.imageContainsCat(image(2)));
+        assertTrue(cache.imageContainsCatAsync(image(1)).join());
+
+        assertEquals(2, calls);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void fullCache_evictsLeastRecentlyUsed() {
+        CachingImageService cache = new CachingImageService(counting, 2, Duration.ofSeconds(30), () -> now);
+
+        cache.imageContainsCat(image(1));
+        cache.imageContainsCat(image(2));
+        cache.imageContainsCat(image(1));
+        cache.imageContainsCat(image(3));
+        assertEquals(3, calls);
+
+        //1 was used more recently than 2, so 2 was the one evicted
+        cache.imageContainsCat(image(1));
+        assertEquals(3, calls);
+        cache.imageContainsCat(image(2));
+        assertEquals(4, calls);
+    }
+
+    @Test
+    void expiredEntry_isAskedAgain() {
+        CachingImageService cache = new CachingImageService(counting, 4, Duration.ofSeconds(30), () -> now);
+
+        cache.imageContainsCat(image(1));
+        now += Duration.ofSeconds(29).toNanos();
+        cache.imageContainsCat(image(1));
+        assertEquals(1, calls);
+
+        now += Duration.ofSeconds(2).toNanos();
+        cache.imageContainsCat(image(1));
+        assertEquals(2, calls);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void keyCollision_isDetectedAndTreatedAsMiss() {
+        CachingImageService cache = new CachingImageService(counting, 4, Duration.ofSeconds(30), () -> now);
+        cache.store(42L, 1L, true);
+
+        assertNull(cache.lookup(42L, 2L));
+        assertEquals(Boolean.TRUE, cache.lookup(42L, 1L));
+        assertEquals(1, cache.getCollisionCount());
+        long[] first = CachingImageService.contentHashes(image(1));
+        long[] second = CachingImageService.contentHashes(image(2));
+        assertNotEquals(first[0], second[0]);
+        assertNotEquals(first[1], second[1]);
+        assertNotEquals(first[0], first[1]);
+    }
+}
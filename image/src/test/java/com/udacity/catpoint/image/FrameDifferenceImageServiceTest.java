@@ -0,0 +1,122 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameDifferenceImageServiceTest {
+
+    private static BufferedImage scene(int grey) {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(grey, grey, grey));
+        g.fillRect(0, 0, 640, 480);
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage withCat(BufferedImage background, int x, int y, int size) {
+        BufferedImage image = scene(0);
+        Graphics2D g = image.createGraphics();
+        g.drawImage(background, 0, 0, null);
+        g.setColor(Color.WHITE);
+        g.fillRect(x, y, size, size);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Async service whose answers are completed by the test, in whatever order it likes.
+     */
+    private static class ManualImageService implements ImageService {
+        final List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image) {
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            pending.add(result);
+            return result;
+        }
+    }
+
+    @Test
+    void smallLocalisedChange_isAnalysed() {
+        List<BufferedImage> asked = new ArrayList<>();
+        FrameDifferenceImageService service = new FrameDifferenceImageService(image -> {
+            asked.add(image);
+            return asked.size() > 1;
+        });
+        BufferedImage empty = scene(60);
+
+        assertFalse(service.imageContainsCat(empty));
+        assertFalse(service.imageContainsCat(scene(62)));
+        //a 60x60 cat in one corner changes under 1% of the frame
+        assertTrue(service.imageContainsCat(withCat(empty, 560, 400, 60)));
+
+        assertEquals(2, asked.size());
+        assertEquals(2, service.getAnalysedCount());
+        assertEquals(1, service.getSkippedCount());
+    }
+
+    @Test
+    void unchangedFrameWhileInFlight_waitsForThatAnswer() {
+        ManualImageService manual = new ManualImageService();
+        FrameDifferenceImageService service = new FrameDifferenceImageService(manual);
+
+        CompletableFuture<Boolean> first = service.imageContainsCatAsync(scene(60));
+        CompletableFuture<Boolean> second = service.imageContainsCatAsync(scene(60));
+        assertEquals(1, manual.pending.size());
+        assertFalse(second.isDone());
+
+        manual.pending.get(0).complete(true);
+        assertTrue(first.join());
+        assertTrue(second.join());
+    }
+
+    @Test
+    void olderCompletion_doesNotReplaceNewerReference() {
+        ManualImageService manual = new ManualImageService();
+        FrameDifferenceImageService service = new FrameDifferenceImageService(manual);
+        BufferedImage empty = scene(60);
+        BufferedImage cat = withCat(empty, 100, 100, 120);
+
+        CompletableFuture<Boolean> older = service.imageContainsCatAsync(empty);
+        CompletableFuture<Boolean> newer = service.imageContainsCatAsync(cat);
+        manual.pending.get(1).complete(true);
+        manual.pending.get(0).completeExceptionally(new IllegalStateException("late failure"));
+        assertThrows(CompletionException.class, older::join);
+        assertTrue(newer.join());
+
+        //the cat frame is still the reference, so a repeat of it is answered without analysis
+        assertTrue(service.imageContainsCatAsync(withCat(empty, 100, 100, 120)).join());
+        assertEquals(2, manual.pending.size());
+    }
+
+    @Test
+    void failedAnalysis_isRetriedOnNextFrame() {
+        ManualImageService manual = new ManualImageService();
+        FrameDifferenceImageService service = new FrameDifferenceImageService(manual);
+
+        CompletableFuture<Boolean> failed = service.imageContainsCatAsync(scene(60));
+        manual.pending.get(0).completeExceptionally(new IllegalStateException("pipeline full"));
+        assertThrows(CompletionException.class, failed::join);
+
+        CompletableFuture<Boolean> retried = service.imageContainsCatAsync(scene(60));
+        assertEquals(2, manual.pending.size());
+        manual.pending.get(1).complete(false);
+        assertFalse(retried.join());
+    }
+}
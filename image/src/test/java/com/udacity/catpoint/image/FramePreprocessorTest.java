@@ -0,0 +1,101 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FramePreprocessorTest {
+
+    //left half red, right half blue
+    private static BufferedImage splitFrame(int width, int height) {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 2, height);
+        g.setColor(Color.BLUE);
+        g.fillRect(width / 2, 0, width - width / 2, height);
+        g.dispose();
+        return frame;
+    }
+
+    private static BufferedImage filled(int width, int height, Color color) {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return frame;
+    }
+
+    @Test
+    void prepare_frameThatAlreadyFits_isReturnedAsItIs() {
+        BufferedImage frame = splitFrame(320, 240);
+
+        assertSame(frame, new FramePreprocessor().prepare(frame));
+    }
+
+    @Test
+    void prepare_largeFrame_isScaledDownKeepingAspectRatio() {
+        BufferedImage prepared = new FramePreprocessor(640, 480, Collections.emptyList())
+                .prepare(splitFrame(2560, 1440));
+
+        assertEquals(640, prepared.getWidth());
+        assertEquals(360, prepared.getHeight());
+        assertEquals(Color.RED.getRGB(), prepared.getRGB(10, 180));
+        assertEquals(Color.BLUE.getRGB(), prepared.getRGB(630, 180));
+    }
+
+    @Test
+    void prepare_singleRegion_cropsToItsBounds() {
+        FramePreprocessor preprocessor = new FramePreprocessor(640, 480,
+                List.of(new FramePreprocessor.Region(0.5, 0.25, 0.5, 0.5)));
+
+        BufferedImage prepared = preprocessor.prepare(splitFrame(400, 200));
+
+        assertEquals(200, prepared.getWidth());
+        assertEquals(100, prepared.getHeight());
+        assertEquals(Color.BLUE.getRGB(), prepared.getRGB(0, 0));
+        assertEquals(Color.BLUE.getRGB(), prepared.getRGB(199, 99));
+    }
+
+    @Test
+    void prepare_severalRegions_blacksOutEverythingBetweenThem() {
+        FramePreprocessor preprocessor = new FramePreprocessor(640, 480, List.of(
+                new FramePreprocessor.Region(0, 0, 0.25, 0.25),
+                new FramePreprocessor.Region(0.75, 0.75, 0.25, 0.25)));
+
+        BufferedImage prepared = preprocessor.prepare(filled(400, 400, Color.GREEN));
+
+        //cropped to the union of both regions, which is the whole frame here
+        assertEquals(400, prepared.getWidth());
+        assertEquals(400, prepared.getHeight());
+        assertEquals(Color.GREEN.getRGB(), prepared.getRGB(50, 50));
+        assertEquals(Color.GREEN.getRGB(), prepared.getRGB(350, 350));
+        assertEquals(Color.BLACK.getRGB(), prepared.getRGB(200, 200));
+        assertEquals(Color.BLACK.getRGB(), prepared.getRGB(350, 50));
+    }
+
+    @Test
+    void scale_largeReduction_halvesDownToTheExactSize() {
+        BufferedImage scaled = FramePreprocessor.scale(filled(1000, 600, Color.RED), 90, 70);
+
+        assertEquals(90, scaled.getWidth());
+        assertEquals(70, scaled.getHeight());
+        //no step skips pixels, so a uniform frame stays uniform
+        assertEquals(Color.RED.getRGB(), scaled.getRGB(45, 35));
+        assertEquals(Color.RED.getRGB(), scaled.getRGB(89, 69));
+    }
+
+    @Test
+    void region_outsideTheFrame_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new FramePreprocessor.Region(0.5, 0, 0.6, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FramePreprocessor.Region(0, 0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FramePreprocessor.Region(-0.1, 0, 0.5, 1));
+    }
+}
@@ -0,0 +1,119 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinearCatModelTest {
+
+    @TempDir
+    Path directory;
+
+    private static LinearCatModel load(String properties) throws IOException {
+        return LinearCatModel.load(new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    private static String zeroWeights(int count) {
+        StringBuilder weights = new StringBuilder("model.weights=0");
+        for (int i = 1; i < count; i++) {
+            weights.append(",0");
+        }
+        return weights.append('\n').toString();
+    }
+
+    /**
+     * A random coloured backdrop with a blob in the middle: for a cat, fur-coloured and striped;
+     * otherwise smooth and of any colour but fur. Seeds pick everything else, so different seeds
+     * give images the model has never seen.
+     */
+    private static BufferedImage scene(long seed, boolean cat) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.getHSBColor(random.nextFloat(), random.nextFloat() * 0.5f, 0.3f + random.nextFloat() * 0.6f));
+        g.fillRect(0, 0, 160, 120);
+        int w = 60 + random.nextInt(60);
+        int h = 50 + random.nextInt(40);
+        int x = random.nextInt(160 - w);
+        int y = random.nextInt(120 - h);
+        if (cat) {
+            float hue = 0.04f + random.nextFloat() * 0.07f;
+            for (int stripe = 0; stripe < w; stripe += 3) {
+                float value = 0.3f + random.nextFloat() * 0.6f;
+                g.setColor(Color.getHSBColor(hue, 0.5f + random.nextFloat() * 0.4f, value));
+                g.fillRect(x + stripe, y, 3, h);
+            }
+        } else {
+            g.setColor(Color.getHSBColor(0.2f + random.nextFloat() * 0.7f, 0.3f + random.nextFloat() * 0.6f,
+                    0.3f + random.nextFloat() * 0.6f));
+            g.fillOval(x, y, w, h);
+        }
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void load_wrongNumberOfWeights_isRejected() {
+        assertThrows(IOException.class, () -> load(zeroWeights(LocalImageService.FEATURE_COUNT - 1)));
+        assertThrows(IOException.class, () -> load("model.bias=1\n"));
+        assertThrows(IOException.class, () -> load(zeroWeights(LocalImageService.FEATURE_COUNT) + "model.bias=x\n"));
+    }
+
+    @Test
+    void load_withoutThreshold_defaultsToHalf() throws IOException {
+        double[] features = new double[LocalImageService.FEATURE_COUNT];
+        //with every weight 0 the probability is exactly the sigmoid of the bias
+        LinearCatModel even = load(zeroWeights(LocalImageService.FEATURE_COUNT));
+        LinearCatModel leaning = load(zeroWeights(LocalImageService.FEATURE_COUNT) + "model.bias=0.1\n");
+
+        assertEquals(0.5, even.getThreshold());
+        assertEquals(0.5, even.probability(features));
+        assertFalse(even.isCat(features));
+        assertTrue(leaning.isCat(features));
+    }
+
+    @Test
+    void trainer_classifiesImagesItWasNotTrainedOn() {
+        LinearCatModelTrainer trainer = new LinearCatModelTrainer();
+        for (long seed = 0; seed < 16; seed++) {
+            trainer.add(scene(seed, true), true);
+            trainer.add(scene(seed, false), false);
+        }
+        LocalImageService service = new LocalImageService(trainer.train());
+
+        int correct = 0;
+        int heldOut = 0;
+        for (long seed = 1000; seed < 1040; seed++) {
+            correct += service.imageContainsCat(scene(seed, true)) ? 1 : 0;
+            correct += service.imageContainsCat(scene(seed, false)) ? 0 : 1;
+            heldOut += 2;
+        }
+        assertTrue(correct >= heldOut * 9 / 10, correct + " of " + heldOut + " held out images classified correctly");
+    }
+
+    @Test
+    void trainer_writtenModel_loadsBackUnchanged() throws IOException {
+        LinearCatModelTrainer trainer = new LinearCatModelTrainer();
+        trainer.add(scene(1, true), true);
+        trainer.add(scene(1, false), false);
+        Path file = directory.resolve("cat-model.properties");
+
+        trainer.write(file, "test");
+        LinearCatModel trained = trainer.train();
+        LinearCatModel loaded = LinearCatModel.load(file);
+
+        assertArrayEquals(trained.getWeights(), loaded.getWeights(), 1e-6);
+        assertEquals(trained.getBias(), loaded.getBias(), 1e-6);
+        assertEquals(trained.getThreshold(), loaded.getThreshold());
+    }
+}
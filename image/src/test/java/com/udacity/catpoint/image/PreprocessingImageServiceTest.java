@@ -0,0 +1,46 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreprocessingImageServiceTest {
+
+    private static BufferedImage filled(int width, int height, Color color) {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return frame;
+    }
+
+    @Test
+    void everyEntryPoint_passesPreparedFramesOn() {
+        List<BufferedImage> seen = new ArrayList<>();
+        ImageService recording = image -> {
+            seen.add(image);
+            return image.getWidth() == 64;
+        };
+        PreprocessingImageService service = new PreprocessingImageService(
+                new FramePreprocessor(64, 64, Collections.emptyList()), recording);
+
+        assertTrue(service.imageContainsCat(filled(256, 256, Color.RED)));
+        assertTrue(service.imageContainsCatAsync(filled(128, 128, Color.RED)).join());
+        assertEquals(List.of(true, true), service.imagesContainCat(
+                List.of(filled(512, 512, Color.RED), filled(64, 64, Color.RED))));
+
+        assertEquals(4, seen.size());
+        for (BufferedImage image : seen) {
+            assertEquals(64, image.getWidth());
+            assertEquals(64, image.getHeight());
+        }
+    }
+}
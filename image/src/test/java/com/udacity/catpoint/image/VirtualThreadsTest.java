@@ -0,0 +1,34 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadsTest {
+
+    @Test
+    void newThreadPerTaskExecutor_matchesAvailability_andNamesThreads() throws Exception {
+        Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor("catpoint-test-");
+
+        assertEquals(VirtualThreads.isAvailable(), executor.isPresent());
+        if (executor.isPresent()) {
+            String name = executor.get().submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+            executor.get().shutdown();
+            assertTrue(name.startsWith("catpoint-test-"), name);
+        }
+    }
+
+    @Test
+    void onVirtualThreads_answersFrames_withOrWithoutVirtualThreads() {
+        try (AsyncImageService async = AsyncImageService.onVirtualThreads(image -> image.getWidth() > 4, 2)) {
+            assertEquals(VirtualThreads.isAvailable(), async.isVirtual());
+            assertTrue(async.imageContainsCatAsync(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB)).join());
+            assertFalse(async.imageContainsCatAsync(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB)).join());
+        }
+    }
+}
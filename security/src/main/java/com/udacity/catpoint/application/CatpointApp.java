@@ -1,10 +1,20 @@
 package com.udacity.catpoint.application;
 
+import com.udacity.catpoint.server.CatpointServer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
- * This is the main class that launches the application.
+ * This is the main class that launches the application. Pass --headless [config file] to run
+ * without a UI, see {@link CatpointServer}.
  */
 public class CatpointApp {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--headless")) {
+            CatpointServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         CatpointGui gui = new CatpointGui();
         gui.setVisible(true);
     }
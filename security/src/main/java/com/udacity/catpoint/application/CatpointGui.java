@@ -1,12 +1,21 @@
 package com.udacity.catpoint.application;
 
+import com.udacity.catpoint.audit.AuditLog;
+import com.udacity.catpoint.data.AppendOnlyLogSecurityRepositoryImpl;
 import com.udacity.catpoint.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.catpoint.data.SecurityRepository;
+import com.udacity.catpoint.image.AsyncImageService;
 import com.udacity.catpoint.image.FakeImageService;
+import com.udacity.catpoint.image.FrameDifferenceImageService;
 import com.udacity.catpoint.image.ImageService;
+import com.udacity.catpoint.metrics.MetricsRegistry;
+import com.udacity.catpoint.metrics.TimedImageService;
+import com.udacity.catpoint.service.CoalescingStatusDispatcher;
+import com.udacity.catpoint.service.SecurityEventLoop;
 import com.udacity.catpoint.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
+import javax.management.JMException;
 import javax.swing.*;
 
 /**
@@ -25,9 +34,25 @@ public class CatpointGui extends JFrame {
         JPanel mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
 
-        SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-        ImageService imageService = new FakeImageService();
-        SecurityService securityService = new SecurityService(securityRepository, imageService);
+        MetricsRegistry metrics = new MetricsRegistry();
+        //the first run after upgrading carries over what the Preferences-backed repository held
+        SecurityRepository securityRepository = AppendOnlyLogSecurityRepositoryImpl.openImporting(
+                AppendOnlyLogSecurityRepositoryImpl.defaultDirectory(), PretendDatabaseSecurityRepositoryImpl::new);
+        //no result cache: the fake service guesses, and a cache would only repeat its first guess
+        ImageService imageService = new FrameDifferenceImageService(new AsyncImageService(
+                new TimedImageService(new FakeImageService(), metrics.latency("image.recognition"))));
+        CoalescingStatusDispatcher statusDispatcher = new CoalescingStatusDispatcher();
+        metrics.gauge("status.queueDepth", statusDispatcher::getQueueDepth);
+        metrics.gauge("status.delivered", statusDispatcher::getDeliveredCount);
+        metrics.gauge("status.coalesced", statusDispatcher::getCoalescedCount);
+        metrics.gauge("status.failed", statusDispatcher::getFailedCount);
+        SecurityService securityService = new SecurityService(securityRepository, imageService, new SecurityEventLoop(),
+                statusDispatcher, AuditLog.NONE, metrics);
+        try {
+            metrics.registerMBean("com.udacity.catpoint:type=Metrics");
+        } catch (JMException e) {
+            //metrics are optional; the app works the same without them
+        }
 
         DisplayPanel displayPanel = new DisplayPanel(securityService);
         ControlPanel controlPanel = new ControlPanel(securityService);
@@ -31,13 +31,13 @@ public class ControlPanel extends JPanel {
 
         //create a map of each status type to a corresponding JButton
         buttonMap = Arrays.stream(ArmingStatus.values())
-                .collect(Collectors.toMap(status -> status, status -> new JButton(status.getDescription())));
+                .collect(Collectors.toMap(status -> status, status -> new JButton(StyleService.getDescription(status))));
 
         //add an action listener to each button that applies its arming status and recolors all the buttons
         buttonMap.forEach((k, v) -> {
             v.addActionListener(e -> {
-                securityService.setArmingStatus(k);
-                buttonMap.forEach((status, button) -> button.setBackground(status == k ? status.getColor() : null));
+                securityService.submit(s -> s.setArmingStatus(k));
+                buttonMap.forEach((status, button) -> button.setBackground(status == k ? StyleService.getColor(status) : null));
             });
         });
 
@@ -45,7 +45,7 @@ public class ControlPanel extends JPanel {
         Arrays.stream(ArmingStatus.values()).forEach(status -> add(buttonMap.get(status)));
 
         ArmingStatus currentStatus = securityService.getArmingStatus();
-        buttonMap.get(currentStatus).setBackground(currentStatus.getColor());
+        buttonMap.get(currentStatus).setBackground(StyleService.getColor(currentStatus));
 
 
     }
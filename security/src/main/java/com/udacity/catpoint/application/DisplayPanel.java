@@ -37,8 +37,9 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
     @Override
     public void notify(AlarmStatus status) {
-        currentStatusLabel.setText(status.getDescription());
-        currentStatusLabel.setBackground(status.getColor());
+        // the status dispatcher calls Swing listeners on the event thread
+        currentStatusLabel.setText(StyleService.getDescription(status));
+        currentStatusLabel.setBackground(StyleService.getColor(status));
         currentStatusLabel.setOpaque(true);
     }
 
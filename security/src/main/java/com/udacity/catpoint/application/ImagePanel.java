@@ -1,6 +1,7 @@
 package com.udacity.catpoint.application;
 
 import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.image.FramePreprocessor;
 import com.udacity.catpoint.service.SecurityService;
 import com.udacity.catpoint.service.StyleService;
 import net.miginfocom.swing.MigLayout;
@@ -15,9 +16,13 @@ import java.io.IOException;
 /**
  * Panel containing the 'camera' output. Allows users to 'refresh' the camera
  * by uploading their own picture, and 'scan' the picture, sending it for image analysis
+ *
+ * Pictures are run through a {@link FramePreprocessor} once when loaded; the prepared frame is what
+ * gets scanned, and the thumbnail is scaled down from it rather than from the full picture.
  */
 public class ImagePanel extends JPanel implements StatusListener {
     private SecurityService securityService;
+    private final FramePreprocessor preprocessor;
     private JLabel cameraHeader;
     private JLabel cameraLabel;
     private BufferedImage currentCameraImage;
@@ -25,9 +30,17 @@ public class ImagePanel extends JPanel implements StatusListener {
     private int IMAGE_HEIGHT = 225;
 
     public ImagePanel(SecurityService securityService) {
+        this(securityService, new FramePreprocessor());
+    }
+
+    /**
+     * @param preprocessor Crops and scales pictures before they are shown or scanned
+     */
+    public ImagePanel(SecurityService securityService, FramePreprocessor preprocessor) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
+        this.preprocessor = preprocessor;
         securityService.addStatusListener(this);
 
         cameraHeader = new JLabel("Camera Feed");
@@ -51,9 +64,8 @@ public class ImagePanel extends JPanel implements StatusListener {
             }
 
             try {
-                currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
+                currentCameraImage = preprocessor.prepare(ImageIO.read(chooser.getSelectedFile()));
+                cameraLabel.setIcon(new ImageIcon(FramePreprocessor.scale(currentCameraImage, IMAGE_WIDTH, IMAGE_HEIGHT)));
             } catch (IOException | NullPointerException ioe) {
                 JOptionPane.showMessageDialog(null, "Invalid image selected.");
             }
@@ -64,7 +76,12 @@ public class ImagePanel extends JPanel implements StatusListener {
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
             if (currentCameraImage != null) {
-                securityService.processImage(currentCameraImage);
+                //scan off the event thread so a slow image service doesn't freeze the UI
+                securityService.processImageAsync(currentCameraImage).exceptionally(ex -> {
+                    SwingUtilities.invokeLater(() ->
+                            JOptionPane.showMessageDialog(null, "Unable to scan picture, please try again."));
+                    return false;
+                });
             } else {
                 JOptionPane.showMessageDialog(null, "No image to scan! Please load an image first.");
             }
@@ -83,6 +100,7 @@ public class ImagePanel extends JPanel implements StatusListener {
 
     @Override
     public void catDetected(boolean catDetected) {
+        // the status dispatcher calls Swing listeners on the event thread
         if (catDetected) {
             cameraHeader.setText("DANGER - CAT DETECTED");
         } else {
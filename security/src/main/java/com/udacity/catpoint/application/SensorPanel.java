@@ -1,5 +1,6 @@
 package com.udacity.catpoint.application;
 
+import com.udacity.catpoint.data.AlarmStatus;
 import com.udacity.catpoint.data.Sensor;
 import com.udacity.catpoint.data.SensorType;
 import com.udacity.catpoint.service.SecurityService;
@@ -7,14 +8,23 @@ import com.udacity.catpoint.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import javax.swing.table.TableCellRenderer;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
  * manually set to "active" and "inactive" to test the system.
+ *
+ * Sensors are listed in a table backed by a {@link SensorTableModel}, which only renders the rows
+ * in view and updates one row per change, so the list stays responsive with many thousands of sensors.
  */
-public class SensorPanel extends JPanel {
+public class SensorPanel extends JPanel implements StatusListener {
+
+    static final int DEFAULT_SENSOR_LIMIT = 4;
 
     private SecurityService securityService;
+    private final int sensorLimit;
 
     private JLabel panelLabel = new JLabel("Sensor Management");
     private JLabel newSensorName = new JLabel("Name:");
@@ -23,13 +33,22 @@ public class SensorPanel extends JPanel {
     private JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
     private JButton addNewSensorButton = new JButton("Add New Sensor");
 
-    private JPanel sensorListPanel;
+    private final SensorTableModel sensorTableModel = new SensorTableModel();
+    private JTable sensorTable;
     private JPanel newSensorPanel;
 
     public SensorPanel(SecurityService securityService) {
+        this(securityService, DEFAULT_SENSOR_LIMIT);
+    }
+
+    /**
+     * @param sensorLimit Most sensors the user may add from this panel
+     */
+    public SensorPanel(SecurityService securityService, int sensorLimit) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
+        this.sensorLimit = sensorLimit;
 
         panelLabel.setFont(StyleService.HEADING_FONT);
         addNewSensorButton.addActionListener(e ->
@@ -37,14 +56,13 @@ public class SensorPanel extends JPanel {
                         SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
 
         newSensorPanel = buildAddSensorPanel();
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
-
-        updateSensorList(sensorListPanel);
+        sensorTable = buildSensorTable();
+        sensorTableModel.setSensors(securityService.getSensors());
+        securityService.addStatusListener(this);
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
-        add(sensorListPanel, "span");
+        add(new JScrollPane(sensorTable), "span, width 500:500:500, height 150:200:400");
     }
 
     /**
@@ -62,67 +80,98 @@ public class SensorPanel extends JPanel {
     }
 
     /**
-     * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
-     * @param p The Panel to populate with the current list of sensors
+     * Builds the sensor table. The toggle and remove columns are drawn as buttons and handled with
+     * a mouse listener, so no per-row components are created.
      */
-    private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
-
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
+    private JTable buildSensorTable() {
+        JTable table = new JTable(sensorTableModel);
+        table.setRowSelectionAllowed(false);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+
+        JButton buttonRenderer = new JButton();
+        TableCellRenderer renderButton = (t, value, selected, focused, row, column) -> {
+            buttonRenderer.setText(value.toString());
+            return buttonRenderer;
+        };
+        table.getColumnModel().getColumn(SensorTableModel.TOGGLE_COLUMN).setCellRenderer(renderButton);
+        table.getColumnModel().getColumn(SensorTableModel.REMOVE_COLUMN).setCellRenderer(renderButton);
+        table.getColumnModel().getColumn(SensorTableModel.NAME_COLUMN).setPreferredWidth(200);
+
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                int column = table.columnAtPoint(e.getPoint());
+                if (row < 0) {
+                    return;
+                }
+                Sensor sensor = sensorTableModel.getSensor(table.convertRowIndexToModel(row));
+                if (column == SensorTableModel.TOGGLE_COLUMN) {
+                    setSensorActivity(sensor, !sensor.getActive());
+                } else if (column == SensorTableModel.REMOVE_COLUMN) {
+                    removeSensor(sensor);
+                }
+            }
         });
-
-        repaint();
-        revalidate();
+        return table;
     }
 
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
+     * Asks the securityService to change a sensor activation status and then repaints its row
      * @param sensor The sensor to update
      * @param isActive The sensor's activation status
      */
     private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+        securityService.submit(s -> s.changeSensorActivationStatus(sensor, isActive))
+                .thenRun(() -> SwingUtilities.invokeLater(() -> sensorTableModel.sensorUpdated(sensor)));
     }
 
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
+     * Adds a sensor to the securityService and then inserts its row
      * @param sensor The sensor to add
      */
     private void addSensor(Sensor sensor) {
-        if(securityService.getSensors().size() < 4) {
-            securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
-        } else {
-            JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
-        }
+        //check the limit in the command, since the table only shows adds once they have been applied
+        boolean[] added = new boolean[1];
+        securityService.submit(s -> {
+            if (s.getSensors().size() < sensorLimit) {
+                s.addSensor(sensor);
+                added[0] = true;
+            }
+        }).thenRun(() -> SwingUtilities.invokeLater(() -> {
+            if (added[0]) {
+                sensorTableModel.sensorAdded(sensor);
+            } else {
+                JOptionPane.showMessageDialog(null, "To add more than " + sensorLimit
+                        + " sensors, please subscribe to our Premium Membership!");
+            }
+        }));
     }
 
     /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
+     * Remove a sensor from the securityService and then delete its row
      * @param sensor The sensor to remove
      */
     private void removeSensor(Sensor sensor) {
-        securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+        securityService.submit(s -> s.removeSensor(sensor))
+                .thenRun(() -> SwingUtilities.invokeLater(() -> sensorTableModel.sensorRemoved(sensor)));
     }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        // sensors may have changed outside this panel, e.g. through the ingestion gateway
+        sensorTableModel.allSensorsUpdated();
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        // no behavior necessary
+    }
+
+    @Override
     public void sensorStatusChanged() {
-        // Force UI refresh
-        SwingUtilities.invokeLater(() -> {
-            removeAll();
-            revalidate();
-            repaint();
-        });
+        // arming resets every sensor; the status dispatcher calls this on the event thread
+        sensorTableModel.allSensorsUpdated();
     }
 }
\ No newline at end of file
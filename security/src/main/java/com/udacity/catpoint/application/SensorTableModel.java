@@ -0,0 +1,108 @@
+package com.udacity.catpoint.application;
+
+import com.udacity.catpoint.data.Sensor;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorted table model over the system's sensors. Adds, removals and toggles each touch a single
+ * row, found by binary search, and fire an event for just that row, so the table repaints only
+ * what changed. Rows hold the repository's own Sensor objects, so cells always show the current
+ * activation state. Must only be used on the event dispatch thread.
+ */
+public class SensorTableModel extends AbstractTableModel {
+
+    static final int NAME_COLUMN = 0;
+    static final int STATUS_COLUMN = 1;
+    static final int TOGGLE_COLUMN = 2;
+    static final int REMOVE_COLUMN = 3;
+
+    private static final String[] COLUMN_NAMES = {"Sensor", "Status", "", ""};
+
+    private final List<Sensor> rows = new ArrayList<>();
+
+    /**
+     * Replaces every row; used once when the panel is built.
+     */
+    public void setSensors(Collection<Sensor> sensors) {
+        rows.clear();
+        rows.addAll(sensors);
+        Collections.sort(rows);
+        fireTableDataChanged();
+    }
+
+    public void sensorAdded(Sensor sensor) {
+        int index = Collections.binarySearch(rows, sensor);
+        if (index >= 0) {
+            return;
+        }
+        int row = -index - 1;
+        rows.add(row, sensor);
+        fireTableRowsInserted(row, row);
+    }
+
+    public void sensorRemoved(Sensor sensor) {
+        int row = Collections.binarySearch(rows, sensor);
+        if (row >= 0) {
+            rows.remove(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    public void sensorUpdated(Sensor sensor) {
+        int row = Collections.binarySearch(rows, sensor);
+        if (row >= 0) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Marks every row as possibly changed, e.g. after arming resets all sensors. The table only
+     * repaints the rows currently on screen.
+     */
+    public void allSensorsUpdated() {
+        if (!rows.isEmpty()) {
+            fireTableRowsUpdated(0, rows.size() - 1);
+        }
+    }
+
+    public Sensor getSensor(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Sensor sensor = rows.get(row);
+        switch (column) {
+            case NAME_COLUMN:
+                return sensor.getName() + "(" + sensor.getSensorType() + ")";
+            case STATUS_COLUMN:
+                return sensor.getActive() ? "Active" : "Inactive";
+            case TOGGLE_COLUMN:
+                return sensor.getActive() ? "Deactivate" : "Activate";
+            case REMOVE_COLUMN:
+                return "Remove Sensor";
+            default:
+                throw new IndexOutOfBoundsException("No column " + column);
+        }
+    }
+}
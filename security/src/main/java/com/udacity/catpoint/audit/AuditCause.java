@@ -0,0 +1,17 @@
+package com.udacity.catpoint.audit;
+
+/**
+ * Why a transition happened, recorded with every journal entry.
+ */
+public enum AuditCause {
+    //a direct call, e.g. from the UI or the control API
+    USER,
+    //a sensor changed
+    SENSOR,
+    //the camera started or stopped seeing a cat
+    CAMERA,
+    //the system was armed or disarmed
+    ARMING,
+    //a delay expired
+    TIMER
+}
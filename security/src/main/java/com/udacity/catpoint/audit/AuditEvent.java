@@ -0,0 +1,107 @@
+package com.udacity.catpoint.audit;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+
+import java.util.UUID;
+
+/**
+ * One journal entry, as read back by {@link AuditJournalReader}.
+ */
+public final class AuditEvent {
+
+    public enum Type {
+        //states are AlarmStatus ordinals
+        ALARM,
+        //states are ArmingStatus ordinals
+        ARMING,
+        //states are 1 for active, 0 for inactive
+        SENSOR
+    }
+
+    private final long sequence;
+    private final long timestampMillis;
+    private final long tenantId;
+    private final long sensorMostSigBits;
+    private final long sensorLeastSigBits;
+    private final Type type;
+    private final int oldState;
+    private final int newState;
+    private final AuditCause cause;
+
+    AuditEvent(long sequence, long timestampMillis, long tenantId, long sensorMostSigBits, long sensorLeastSigBits,
+               Type type, int oldState, int newState, AuditCause cause) {
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.tenantId = tenantId;
+        this.sensorMostSigBits = sensorMostSigBits;
+        this.sensorLeastSigBits = sensorLeastSigBits;
+        this.type = type;
+        this.oldState = oldState;
+        this.newState = newState;
+        this.cause = cause;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Wall-clock time the transition was recorded, in milliseconds since the epoch.
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * Null for alarm and arming transitions.
+     */
+    public UUID getSensorId() {
+        return type == Type.SENSOR ? new UUID(sensorMostSigBits, sensorLeastSigBits) : null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getOldState() {
+        return oldState;
+    }
+
+    public int getNewState() {
+        return newState;
+    }
+
+    public AuditCause getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        String subject;
+        String from;
+        String to;
+        switch (type) {
+            case ALARM:
+                subject = "alarm";
+                from = AlarmStatus.values()[oldState].name();
+                to = AlarmStatus.values()[newState].name();
+                break;
+            case ARMING:
+                subject = "arming";
+                from = ArmingStatus.values()[oldState].name();
+                to = ArmingStatus.values()[newState].name();
+                break;
+            default:
+                subject = "sensor " + getSensorId();
+                from = oldState != 0 ? "active" : "inactive";
+                to = newState != 0 ? "active" : "inactive";
+        }
+        return "#" + sequence + " " + timestampMillis + " tenant " + tenantId + " " + subject
+                + " " + from + " -> " + to + " (" + cause + ")";
+    }
+}
@@ -0,0 +1,352 @@
+package com.udacity.catpoint.audit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of state transitions, kept for incident forensics. Every entry is a
+ * fixed-size record with a sequence number, timestamp, tenant, sensor id, old and new state, cause
+ * and checksum; read it back with {@link AuditJournalReader}.
+ *
+ * Writes are group-committed: callers copy their record into an in-memory batch and return, while
+ * a writer thread writes and syncs whole batches. Whatever arrives during one sync goes out in the
+ * next, so callers never wait on the disk unless the batch buffer fills up.
+ */
+public class AuditJournal implements AuditLog, AutoCloseable {
+
+    static final int MAGIC = 0xCA7A0D01;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES * 2;
+
+    //sequence, timestamp, tenant, sensor id halves, then type, old, new and cause bytes, then a crc
+    static final int RECORD_BYTES = Long.BYTES * 5 + 4 + Integer.BYTES;
+    static final int CRC_OFFSET = RECORD_BYTES - Integer.BYTES;
+
+    static final int DEFAULT_BATCH_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final LongSupplier clock;
+    private final Thread writer;
+    private final LongAdder batchCount = new LongAdder();
+
+    //everything below is guarded by lock. Each kind of waiter has its own condition, so callers
+    //waiting for room never wake each other instead of the writer
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private final Condition batchTaken = lock.newCondition();
+    private final Condition batchSynced = lock.newCondition();
+    private final CRC32C crc = new CRC32C();
+    //callers append to filling while the writer thread syncs flushing
+    private ByteBuffer filling;
+    private ByteBuffer flushing;
+    private long nextSequence;
+    private long lastTimestamp;
+    //every record before this sequence is on disk
+    private long durableSequence;
+    private boolean writerWaiting;
+    private boolean running = true;
+    private IOException failure;
+
+    public AuditJournal(Path file) throws IOException {
+        this(file, DEFAULT_BATCH_BYTES, System::currentTimeMillis);
+    }
+
+    /**
+     * Opens the journal, creating it if needed. A record torn by a crash is cut off and later
+     * records continue the sequence. Damage anywhere before the last record isn't a torn write,
+     * and cutting there would throw away every valid record after it, so the file is moved aside
+     * as &lt;name&gt;.corrupt-&lt;millis&gt; for inspection and a new journal continues the sequence.
+     *
+     * @param batchBytes Size of each of the two batch buffers
+     * @param clock Source of record timestamps in epoch milliseconds
+     */
+    AuditJournal(Path file, int batchBytes, LongSupplier clock) throws IOException {
+        if (batchBytes < RECORD_BYTES) {
+            throw new IllegalArgumentException("Batch must hold at least one record");
+        }
+        this.clock = clock;
+        this.filling = ByteBuffer.allocate(batchBytes);
+        this.flushing = ByteBuffer.allocate(batchBytes);
+        if (Files.exists(file)) {
+            recover(file);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                //new, or a crash while writing the header left nothing worth keeping
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                channel.force(true);
+            }
+            channel.position(channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        durableSequence = nextSequence;
+
+        this.writer = new Thread(this::run, "catpoint-audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Copies the transition into the current batch and returns without waiting for it to reach disk.
+     *
+     * @throws UncheckedIOException if an earlier batch could not be written
+     */
+    @Override
+    public void record(long tenantId, AuditEvent.Type type, long sensorMostSigBits, long sensorLeastSigBits,
+                       int oldState, int newState, AuditCause cause) {
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            while (true) {
+                checkWritable();
+                if (filling.remaining() >= RECORD_BYTES) {
+                    break;
+                }
+                //both buffers are busy; this is the only time a caller waits on the disk
+                batchReady.signal();
+                interrupted |= await(batchTaken);
+            }
+
+            //keep timestamps in sequence order even if the wall clock steps back
+            lastTimestamp = Math.max(lastTimestamp, clock.getAsLong());
+            int start = filling.position();
+            filling.putLong(nextSequence++)
+                    .putLong(lastTimestamp)
+                    .putLong(tenantId)
+                    .putLong(sensorMostSigBits)
+                    .putLong(sensorLeastSigBits)
+                    .put((byte) type.ordinal())
+                    .put((byte) oldState)
+                    .put((byte) newState)
+                    .put((byte) cause.ordinal());
+            crc.reset();
+            crc.update(filling.array(), start, CRC_OFFSET);
+            filling.putInt((int) crc.getValue());
+            if (writerWaiting) {
+                batchReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until every record appended so far is on disk.
+     *
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    public void flush() {
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            long target = nextSequence;
+            batchReady.signal();
+            while (durableSequence < target) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Unable to write audit journal", failure);
+                }
+                interrupted |= await(batchSynced);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Number of batches written so far. Far fewer than the number of records under load, since each
+     * sync carries everything that arrived during the previous one.
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * Writes out everything already recorded, stops the writer thread and closes the file.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            //every batch was already synced
+        }
+    }
+
+    /**
+     * Checks every record with plain channel reads, so nothing stays mapped while the file is
+     * truncated or moved. Leaves the file either valid up to its last record, or gone.
+     */
+    private void recover(Path file) throws IOException {
+        boolean corrupt;
+        try (FileChannel existing = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = existing.size();
+            if (size < HEADER_BYTES) {
+                return;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(existing, header, 0);
+            header.flip();
+            long count = (size - HEADER_BYTES) / RECORD_BYTES;
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                corrupt = true;
+            } else {
+                long firstBad = firstBadRecord(existing, count);
+                //only a damaged final record can be a torn write
+                corrupt = firstBad < count - 1;
+                if (!corrupt) {
+                    existing.truncate(HEADER_BYTES + firstBad * RECORD_BYTES);
+                    existing.force(true);
+                }
+            }
+        }
+        if (corrupt) {
+            Path aside = file.resolveSibling(file.getFileName() + ".corrupt-" + System.currentTimeMillis());
+            Files.move(file, aside, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Index of the first record whose checksum fails, or count if they all pass. Remembers the
+     * last good record seen, so sequence numbers carry on after it.
+     */
+    private long firstBadRecord(FileChannel existing, long count) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(RECORD_BYTES * 1024);
+        CRC32C check = new CRC32C();
+        long firstBad = count;
+        for (long index = 0; index < count; ) {
+            block.clear();
+            block.limit((int) Math.min(block.capacity(), (count - index) * RECORD_BYTES));
+            readFully(existing, block, HEADER_BYTES + index * RECORD_BYTES);
+            for (int at = 0; at < block.limit(); at += RECORD_BYTES, index++) {
+                check.reset();
+                check.update(block.array(), at, CRC_OFFSET);
+                if ((int) check.getValue() != block.getInt(at + CRC_OFFSET)) {
+                    firstBad = Math.min(firstBad, index);
+                } else {
+                    nextSequence = Math.max(nextSequence, block.getLong(at) + 1);
+                    lastTimestamp = Math.max(lastTimestamp, block.getLong(at + Long.BYTES));
+                }
+            }
+        }
+        return firstBad;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Audit journal ended early");
+            }
+        }
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Unable to write audit journal", failure);
+        }
+        if (!running) {
+            throw new IllegalStateException("Audit journal is closed");
+        }
+    }
+
+    /**
+     * Waits on the condition, reporting rather than throwing an interrupt so a record is never half-taken.
+     */
+    private static boolean await(Condition condition) {
+        try {
+            condition.await();
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+
+    private void run() {
+        while (true) {
+            long batchEnd;
+            lock.lock();
+            try {
+                while (filling.position() == 0 && running) {
+                    writerWaiting = true;
+                    await(batchReady);
+                }
+                writerWaiting = false;
+                if (filling.position() == 0) {
+                    return;
+                }
+                ByteBuffer batch = filling;
+                filling = flushing;
+                flushing = batch;
+                batchEnd = nextSequence;
+                //callers waiting for room can use the emptied buffer
+                batchTaken.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    channel.write(flushing);
+                }
+                channel.force(false);
+                flushing.clear();
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    batchTaken.signalAll();
+                    batchSynced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            batchCount.increment();
+            lock.lock();
+            try {
+                durableSequence = batchEnd;
+                batchSynced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.udacity.catpoint.audit;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import static com.udacity.catpoint.audit.AuditJournal.CRC_OFFSET;
+import static com.udacity.catpoint.audit.AuditJournal.HEADER_BYTES;
+import static com.udacity.catpoint.audit.AuditJournal.RECORD_BYTES;
+
+/**
+ * Memory-mapped, read-only view of an {@link AuditJournal} file as it was when the reader was opened.
+ * Records are fixed-size and timestamps never decrease, so any record or point in time is found
+ * without scanning, and state is rebuilt by replaying records straight out of the mapping.
+ *
+ * Records after the first one failing its checksum, such as a record torn by a crash, are ignored.
+ */
+public class AuditJournalReader {
+
+    //a single mapping is limited to 2GB, so large journals are mapped in whole-record chunks
+    private static final int RECORDS_PER_CHUNK = (1 << 30) / RECORD_BYTES;
+
+    private static final AuditEvent.Type[] TYPES = AuditEvent.Type.values();
+    private static final AuditCause[] CAUSES = AuditCause.values();
+
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    public AuditJournalReader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                //keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != AuditJournal.MAGIC) {
+                throw new IOException("Not an audit journal: " + file);
+            }
+            int version = header.getInt();
+            if (version != AuditJournal.VERSION) {
+                throw new IOException("Unsupported audit journal version " + version + ": " + file);
+            }
+
+            long available = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+            chunks = new MappedByteBuffer[(int) ((available + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK)];
+            for (int i = 0; i < chunks.length; i++) {
+                long first = (long) i * RECORDS_PER_CHUNK;
+                long records = Math.min(RECORDS_PER_CHUNK, available - first);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES,
+                        records * RECORD_BYTES);
+            }
+            size = validPrefix(available);
+        }
+    }
+
+    /**
+     * Number of readable records.
+     */
+    public long size() {
+        return size;
+    }
+
+    public AuditEvent get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No audit record " + index + ", journal has " + size);
+        }
+        ByteBuffer chunk = chunk(index);
+        int at = offset(index);
+        return new AuditEvent(chunk.getLong(at), chunk.getLong(at + 8), chunk.getLong(at + 16),
+                chunk.getLong(at + 24), chunk.getLong(at + 32), TYPES[chunk.get(at + 40)],
+                chunk.get(at + 41), chunk.get(at + 42), CAUSES[chunk.get(at + 43)]);
+    }
+
+    /**
+     * Index of the first record made after the given time, or {@link #size()} if there is none.
+     */
+    public long indexAfter(long timestampMillis) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamp(mid) <= timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Records made between the two times, inclusive, for every tenant.
+     */
+    public List<AuditEvent> read(long fromMillis, long toMillis) {
+        List<AuditEvent> events = new ArrayList<>();
+        for (long i = indexAfter(fromMillis - 1), end = indexAfter(toMillis); i < end; i++) {
+            events.add(get(i));
+        }
+        return events;
+    }
+
+    /**
+     * Rebuilds one tenant's state as of the given time by replaying every record made up to and
+     * including it. The rebuild starts from a disarmed system with no alarm, and only knows about
+     * sensors that changed at least once.
+     */
+    public AuditState stateAt(long tenantId, long timestampMillis) {
+        AuditState state = new AuditState();
+        for (long i = 0, end = indexAfter(timestampMillis); i < end; i++) {
+            ByteBuffer chunk = chunk(i);
+            int at = offset(i);
+            if (chunk.getLong(at + 16) != tenantId) {
+                continue;
+            }
+            int newState = chunk.get(at + 42);
+            switch (TYPES[chunk.get(at + 40)]) {
+                case ALARM:
+                    state.alarmStatus = AlarmStatus.values()[newState];
+                    break;
+                case ARMING:
+                    state.armingStatus = ArmingStatus.values()[newState];
+                    break;
+                case SENSOR:
+                    state.sensors.put(new UUID(chunk.getLong(at + 24), chunk.getLong(at + 32)), newState != 0);
+                    break;
+            }
+            state.sequence = chunk.getLong(at);
+        }
+        return state;
+    }
+
+    private long validPrefix(long available) {
+        CRC32C crc = new CRC32C();
+        for (long i = 0; i < available; i++) {
+            ByteBuffer record = chunk(i).duplicate();
+            int at = offset(i);
+            record.limit(at + CRC_OFFSET).position(at);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != chunk(i).getInt(at + CRC_OFFSET)) {
+                return i;
+            }
+        }
+        return available;
+    }
+
+    private long timestamp(long index) {
+        return chunk(index).getLong(offset(index) + 8);
+    }
+
+    private ByteBuffer chunk(long index) {
+        return chunks[(int) (index / RECORDS_PER_CHUNK)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index % RECORDS_PER_CHUNK) * RECORD_BYTES;
+    }
+}
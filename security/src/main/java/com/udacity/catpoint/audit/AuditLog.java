@@ -0,0 +1,22 @@
+package com.udacity.catpoint.audit;
+
+/**
+ * Destination for state transitions. Implementations must be safe to call from any thread and
+ * should return quickly, since they are called while the transition is being applied.
+ */
+public interface AuditLog {
+
+    /**
+     * Records nothing.
+     */
+    AuditLog NONE = (tenantId, type, sensorMostSigBits, sensorLeastSigBits, oldState, newState, cause) -> { };
+
+    /**
+     * @param tenantId Home the transition belongs to; 0 for a single-home system
+     * @param sensorMostSigBits High half of the sensor id, or 0 for transitions not tied to a sensor
+     * @param oldState State before the transition, encoded as described in {@link AuditEvent.Type}
+     * @param newState State after the transition
+     */
+    void record(long tenantId, AuditEvent.Type type, long sensorMostSigBits, long sensorLeastSigBits,
+                int oldState, int newState, AuditCause cause);
+}
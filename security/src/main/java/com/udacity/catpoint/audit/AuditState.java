@@ -0,0 +1,57 @@
+package com.udacity.catpoint.audit;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * A tenant's state as rebuilt from the journal by {@link AuditJournalReader#stateAt(long, long)}.
+ */
+public final class AuditState {
+
+    AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    ArmingStatus armingStatus = ArmingStatus.DISARMED;
+    final Map<UUID, Boolean> sensors = new HashMap<>();
+    long sequence = -1;
+
+    AuditState() {
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * Whether the sensor was active, or null if the journal holds no change for it up to this point.
+     */
+    public Boolean isSensorActive(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    public Set<UUID> getActiveSensors() {
+        Set<UUID> active = new TreeSet<>();
+        sensors.forEach((id, isActive) -> {
+            if (isActive) {
+                active.add(id);
+            }
+        });
+        return Collections.unmodifiableSet(active);
+    }
+
+    /**
+     * Sequence number of the last record applied, or -1 if none were.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,71 @@
+package com.udacity.catpoint.camera;
+
+/**
+ * Bounded queue of frames from one camera. When it's full the oldest frame is dropped to make
+ * room, so a camera that produces faster than it can be analysed is always judged on recent
+ * frames instead of falling further and further behind.
+ */
+final class CameraQueue {
+
+    private final byte[][] frames;
+    private int head;
+    private int size;
+    private long dropped;
+    //true while the camera is waiting in, or being served from, the pipeline's ready queue
+    private boolean scheduled;
+
+    CameraQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Camera queue needs room for at least one frame");
+        }
+        this.frames = new byte[capacity][];
+    }
+
+    /**
+     * @return true if the camera needs to be put in the ready queue
+     */
+    synchronized boolean offer(byte[] frame) {
+        if (size == frames.length) {
+            frames[head] = null;
+            head = (head + 1) % frames.length;
+            size--;
+            dropped++;
+        }
+        frames[(head + size) % frames.length] = frame;
+        size++;
+        if (scheduled) {
+            return false;
+        }
+        scheduled = true;
+        return true;
+    }
+
+    synchronized byte[] poll() {
+        if (size == 0) {
+            return null;
+        }
+        byte[] frame = frames[head];
+        frames[head] = null;
+        head = (head + 1) % frames.length;
+        size--;
+        return frame;
+    }
+
+    /**
+     * Called after a frame has been processed.
+     *
+     * @return true if more frames are waiting and the camera should go back in the ready queue
+     */
+    synchronized boolean reschedule() {
+        scheduled = size > 0;
+        return scheduled;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long getDroppedCount() {
+        return dropped;
+    }
+}
@@ -0,0 +1,343 @@
+package com.udacity.catpoint.camera;
+
+import com.udacity.catpoint.image.ImageService;
+import com.udacity.catpoint.service.SecurityService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Analyses continuous frame streams from many cameras and feeds a single, site-wide cat verdict
+ * into SecurityService.
+ *
+ * Every camera gets its own bounded {@link CameraQueue} that drops its oldest frame when full.
+ * Cameras with frames waiting take turns in a ready queue, and a worker takes one frame from a
+ * camera before sending it to the back of the line. A camera flooding frames therefore only
+ * loses its own older frames, while every other camera still gets analysed at its own pace.
+ * At most one frame per camera is analysed at a time, so per-camera verdicts stay in order.
+ *
+ * Each camera remembers whether it last saw a cat. SecurityService is told only when the site
+ * as a whole changes, i.e. when the first camera starts or the last camera stops seeing a cat.
+ * A verdict only lasts as long as frames keep being analysed: a camera that saw a cat and then
+ * goes quiet for longer than the staleness timeout, because its feed died or every frame fails,
+ * stops counting as seeing one. Idle workers check for stale verdicts.
+ */
+public class CameraStreamPipeline implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+    public static final Duration DEFAULT_STALE_AFTER = Duration.ofSeconds(30);
+
+    private final SecurityService securityService;
+    private final Function<String, ImageService> imageServiceForCamera;
+    private final int queueCapacity;
+    private final Map<String, Camera> cameras = new ConcurrentHashMap<>();
+    private final BlockingQueue<Camera> ready = new LinkedBlockingQueue<>();
+    private final Thread[] workers;
+    private final long staleNanos;
+    private final long checkMillis;
+    private final LongSupplier clock;
+    private final AtomicLong nextStaleCheck;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    //guarded by this
+    private int camerasSeeingCat;
+    private volatile boolean running = true;
+
+    public CameraStreamPipeline(SecurityService securityService, ImageService imageService) {
+        this(securityService, cameraId -> imageService, DEFAULT_QUEUE_CAPACITY,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param imageServiceForCamera Called once per camera. Give every camera its own instance of
+     *                              stages that compare consecutive frames, such as
+     *                              {@link com.udacity.catpoint.image.FrameDifferenceImageService},
+     *                              and share everything else.
+     * @param queueCapacity Frames each camera may have waiting before its oldest is dropped
+     * @param workerCount Number of frames analysed at once across all cameras
+     */
+    public CameraStreamPipeline(SecurityService securityService, Function<String, ImageService> imageServiceForCamera,
+                                int queueCapacity, int workerCount) {
+        this(securityService, imageServiceForCamera, queueCapacity, workerCount, DEFAULT_STALE_AFTER);
+    }
+
+    /**
+     * @param staleAfter How long a camera's cat verdict lasts without another frame being analysed
+     */
+    public CameraStreamPipeline(SecurityService securityService, Function<String, ImageService> imageServiceForCamera,
+                                int queueCapacity, int workerCount, Duration staleAfter) {
+        this(securityService, imageServiceForCamera, queueCapacity, workerCount, staleAfter, System::nanoTime);
+    }
+
+    CameraStreamPipeline(SecurityService securityService, Function<String, ImageService> imageServiceForCamera,
+                         int queueCapacity, int workerCount, Duration staleAfter, LongSupplier clock) {
+        this.securityService = securityService;
+        this.staleNanos = staleAfter.toNanos();
+        //check often enough that a verdict outlives the timeout by at most half of it
+        this.checkMillis = Math.max(1, Math.min(1000, staleAfter.toMillis() / 2));
+        this.clock = clock;
+        this.nextStaleCheck = new AtomicLong(clock.getAsLong());
+        this.imageServiceForCamera = imageServiceForCamera;
+        this.queueCapacity = queueCapacity;
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "catpoint-camera-worker-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Adds a camera whose frames are pushed in through {@link #offer(String, byte[])}.
+     *
+     * @throws IllegalArgumentException if the id is already in use
+     */
+    public void addCamera(String cameraId) {
+        addCamera(cameraId, null);
+    }
+
+    /**
+     * Adds a camera and starts reading frames from the source. The source is closed along with
+     * the camera.
+     *
+     * @throws IllegalArgumentException if the id is already in use
+     */
+    public void addCamera(String cameraId, FrameSource source) {
+        Camera camera = new Camera(new CameraQueue(queueCapacity), imageServiceForCamera.apply(cameraId), source);
+        if (cameras.putIfAbsent(cameraId, camera) != null) {
+            throw new IllegalArgumentException("Camera " + cameraId + " already exists");
+        }
+        if (source != null) {
+            source.start(frame -> offer(camera, frame));
+        }
+    }
+
+    /**
+     * Stops the camera's source and forgets its frames. If it was the only camera seeing a cat,
+     * the site no longer sees one.
+     */
+    public void removeCamera(String cameraId) {
+        Camera camera = cameras.remove(cameraId);
+        if (camera == null) {
+            return;
+        }
+        camera.removed = true;
+        if (camera.source != null) {
+            camera.source.close();
+        }
+        updateDetection(camera, false);
+    }
+
+    /**
+     * Queues an encoded frame for the camera, dropping its oldest waiting frame if the queue is full.
+     *
+     * @throws IllegalArgumentException if the camera doesn't exist
+     */
+    public void offer(String cameraId, byte[] frame) {
+        Camera camera = cameras.get(cameraId);
+        if (camera == null) {
+            throw new IllegalArgumentException("Unknown camera " + cameraId);
+        }
+        offer(camera, frame);
+    }
+
+    public boolean isCatDetected(String cameraId) {
+        Camera camera = cameras.get(cameraId);
+        return camera != null && camera.catDetected;
+    }
+
+    public synchronized int getCamerasSeeingCat() {
+        return camerasSeeingCat;
+    }
+
+    public int getCameraCount() {
+        return cameras.size();
+    }
+
+    /**
+     * Frames waiting for the camera, or 0 for an unknown camera.
+     */
+    public int getQueueDepth(String cameraId) {
+        Camera camera = cameras.get(cameraId);
+        return camera == null ? 0 : camera.queue.size();
+    }
+
+    public long getDroppedCount(String cameraId) {
+        Camera camera = cameras.get(cameraId);
+        return camera == null ? 0 : camera.queue.getDroppedCount();
+    }
+
+    /**
+     * Frames dropped across the cameras currently in the pipeline.
+     */
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (Camera camera : cameras.values()) {
+            dropped += camera.queue.getDroppedCount();
+        }
+        return dropped;
+    }
+
+    public long getProcessedCount() {
+        return processed.sum();
+    }
+
+    /**
+     * Frames that couldn't be decoded or whose analysis threw.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Cat verdicts dropped because their camera stopped delivering analysable frames.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Closes every source and stops the workers. Frames still waiting are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Camera camera : cameras.values()) {
+            if (camera.source != null) {
+                camera.source.close();
+            }
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void offer(Camera camera, byte[] frame) {
+        if (!camera.removed && camera.queue.offer(frame)) {
+            ready.add(camera);
+        }
+    }
+
+    private void work() {
+        while (running) {
+            expireStaleVerdicts();
+            Camera camera;
+            try {
+                camera = ready.poll(checkMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (camera == null) {
+                continue;
+            }
+            byte[] frame = camera.queue.poll();
+            if (frame != null && !camera.removed) {
+                analyse(camera, frame);
+            }
+            if (camera.queue.reschedule()) {
+                //back of the line, behind every other camera with frames waiting
+                ready.add(camera);
+            }
+        }
+    }
+
+    private void analyse(Camera camera, byte[] frame) {
+        boolean catDetected;
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(frame));
+            if (image == null) {
+                failed.increment();
+                return;
+            }
+            catDetected = camera.imageService.imageContainsCat(image);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            return;
+        }
+        processed.increment();
+        camera.lastAnalysed = clock.getAsLong();
+        updateDetection(camera, catDetected);
+    }
+
+    /**
+     * Clears the verdict of every camera seeing a cat whose last analysed frame is too old. Runs
+     * on whichever worker first finds a check due.
+     */
+    private void expireStaleVerdicts() {
+        long now = clock.getAsLong();
+        long due = nextStaleCheck.get();
+        if (now - due < 0 || !nextStaleCheck.compareAndSet(due, now + TimeUnit.MILLISECONDS.toNanos(checkMillis))) {
+            return;
+        }
+        for (Camera camera : cameras.values()) {
+            if (camera.catDetected && now - camera.lastAnalysed > staleNanos) {
+                expire(camera, now);
+            }
+        }
+    }
+
+    private synchronized void expire(Camera camera, long now) {
+        //re-check under the lock, a fresh frame may have just been analysed
+        if (camera.catDetected && now - camera.lastAnalysed > staleNanos) {
+            expired.increment();
+            updateDetection(camera, false);
+        }
+    }
+
+    /**
+     * Submits the site-wide verdict only when it flips. Done under the lock so verdicts reach
+     * SecurityService in the order they were decided.
+     */
+    private synchronized void updateDetection(Camera camera, boolean catDetected) {
+        if (camera.catDetected == catDetected || (catDetected && camera.removed)) {
+            return;
+        }
+        camera.catDetected = catDetected;
+        boolean siteSawCat = camerasSeeingCat > 0;
+        camerasSeeingCat += catDetected ? 1 : -1;
+        boolean siteSeesCat = camerasSeeingCat > 0;
+        if (siteSawCat != siteSeesCat) {
+            securityService.submit(s -> s.processCatDetection(siteSeesCat));
+        }
+    }
+
+    private static final class Camera {
+        private final CameraQueue queue;
+        private final ImageService imageService;
+        private final FrameSource source;
+        //written under the pipeline's lock
+        private volatile boolean catDetected;
+        private volatile boolean removed;
+        //clock time of the last frame analysed
+        private volatile long lastAnalysed;
+
+        Camera(CameraQueue queue, ImageService imageService, FrameSource source) {
+            this.queue = queue;
+            this.imageService = imageService;
+            this.source = source;
+        }
+    }
+}
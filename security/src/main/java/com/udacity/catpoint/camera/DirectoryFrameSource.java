@@ -0,0 +1,78 @@
+package com.udacity.catpoint.camera;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Consumer;
+
+/**
+ * Frames from a camera that saves each snapshot as a file in a directory. Every file created or
+ * moved into the directory is read once and passed on as a frame.
+ *
+ * Cameras should write to a temporary name elsewhere and rename into place. Modifications aren't
+ * watched, since one write can report several of them and would deliver the frame repeatedly, so
+ * a file written in place may be read before the write completes. It then fails to decode and is
+ * counted as failed by the pipeline.
+ */
+public class DirectoryFrameSource implements FrameSource {
+
+    private final Path directory;
+    private final WatchService watchService;
+    private Thread thread;
+
+    public DirectoryFrameSource(Path directory) throws IOException {
+        this.directory = directory;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+    }
+
+    @Override
+    public void start(Consumer<byte[]> sink) {
+        thread = new Thread(() -> watch(sink), "catpoint-camera-dir-" + directory.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to stop watching " + directory, e);
+        }
+    }
+
+    private void watch(Consumer<byte[]> sink) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    //too many files at once; later frames will still arrive
+                    continue;
+                }
+                Path file = directory.resolve((Path) event.context());
+                try {
+                    if (Files.isRegularFile(file)) {
+                        sink.accept(Files.readAllBytes(file));
+                    }
+                } catch (IOException e) {
+                    //deleted or replaced before we got to it
+                }
+            }
+            if (!key.reset()) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.udacity.catpoint.camera;
+
+import java.util.function.Consumer;
+
+/**
+ * A camera feed. Once started, the source reads frames on its own thread and hands each encoded
+ * image (JPEG, PNG or anything else ImageIO can read) to the sink as soon as it's complete.
+ */
+public interface FrameSource extends AutoCloseable {
+
+    void start(Consumer<byte[]> sink);
+
+    /**
+     * Stops reading. Frames already handed to the sink are unaffected.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,165 @@
+package com.udacity.catpoint.camera;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Frames from a Motion JPEG stream: a file of recorded footage or a camera's feed over a local
+ * socket. Frames are cut out of the stream at the JPEG start and end markers, so plain
+ * concatenated JPEGs and multipart HTTP-style streams both work; anything between frames is skipped.
+ */
+public class MjpegFrameSource implements FrameSource {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    //a live camera sends several frames a second, so this much silence means the feed has stalled
+    public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final int SOI = 0xD8;
+    private static final int EOI = 0xD9;
+    //a frame larger than this is assumed to be a corrupt stream and discarded
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final long RECONNECT_DELAY_NANOS = 1_000_000_000L;
+
+    private final String name;
+    private final Callable<InputStream> opener;
+    private final long frameIntervalNanos;
+    private final boolean reconnect;
+    private volatile boolean running = true;
+    private volatile InputStream stream;
+    private Thread thread;
+
+    /**
+     * @param name Used to name the reading thread
+     * @param opener Opens the stream; called again after a failure if reconnect is set
+     * @param frameInterval Pause between frames, e.g. to play a file at its recorded frame rate
+     * @param reconnect Whether to reopen the stream after it ends or fails
+     */
+    public MjpegFrameSource(String name, Callable<InputStream> opener, Duration frameInterval, boolean reconnect) {
+        this.name = name;
+        this.opener = opener;
+        this.frameIntervalNanos = frameInterval.toNanos();
+        this.reconnect = reconnect;
+    }
+
+    /**
+     * Plays a recorded file once at the given frame interval.
+     */
+    public static MjpegFrameSource file(Path file, Duration frameInterval) {
+        return new MjpegFrameSource(file.getFileName().toString(), () -> Files.newInputStream(file),
+                frameInterval, false);
+    }
+
+    /**
+     * Reads a live feed from a socket, reconnecting if the camera goes away.
+     */
+    public static MjpegFrameSource socket(InetSocketAddress address) {
+        return socket(address, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Reads a live feed from a socket, reconnecting if the camera goes away, can't be reached
+     * within the connect timeout, or sends nothing for the read timeout.
+     */
+    public static MjpegFrameSource socket(InetSocketAddress address, Duration connectTimeout, Duration readTimeout) {
+        return new MjpegFrameSource(address.getHostString() + ":" + address.getPort(), () -> {
+            Socket socket = new Socket();
+            try {
+                socket.setSoTimeout((int) readTimeout.toMillis());
+                socket.connect(address, (int) connectTimeout.toMillis());
+                return socket.getInputStream();
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }, Duration.ZERO, true);
+    }
+
+    @Override
+    public void start(Consumer<byte[]> sink) {
+        thread = new Thread(() -> run(sink), "catpoint-camera-mjpeg-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeStream();
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run(Consumer<byte[]> sink) {
+        while (running) {
+            try (InputStream in = new BufferedInputStream(opener.call())) {
+                stream = in;
+                if (!running) {
+                    return;
+                }
+                readFrames(in, sink);
+            } catch (Exception e) {
+                //stream failed or couldn't be opened; retry below if reconnecting
+            } finally {
+                stream = null;
+            }
+            if (!reconnect) {
+                return;
+            }
+            LockSupport.parkNanos(RECONNECT_DELAY_NANOS);
+        }
+    }
+
+    private void readFrames(InputStream in, Consumer<byte[]> sink) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(64 * 1024);
+        boolean inFrame = false;
+        int previous = -1;
+        int b;
+        while (running && (b = in.read()) >= 0) {
+            if (!inFrame) {
+                if (previous == 0xFF && b == SOI) {
+                    inFrame = true;
+                    frame.reset();
+                    frame.write(0xFF);
+                    frame.write(SOI);
+                    //don't let the marker's 0xD8 pair with a following byte
+                    previous = -1;
+                    continue;
+                }
+            } else {
+                frame.write(b);
+                if (previous == 0xFF && b == EOI) {
+                    sink.accept(frame.toByteArray());
+                    inFrame = false;
+                    if (frameIntervalNanos > 0) {
+                        LockSupport.parkNanos(frameIntervalNanos);
+                    }
+                } else if (frame.size() > MAX_FRAME_BYTES) {
+                    inFrame = false;
+                }
+            }
+            previous = b;
+        }
+    }
+
+    private void closeStream() {
+        InputStream in = stream;
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                //closing only to unblock the reader
+            }
+        }
+    }
+}
@@ -1,29 +1,14 @@
 package com.udacity.catpoint.data;
 
-import java.awt.*;
-
 /**
- * List of potential states the alarm can have. Also contains metadata about what
- * text and color is associated with the alarm.
+ * List of potential states the alarm can have. The text and color shown for each state
+ * live in StyleService, so the data layer doesn't depend on AWT.
+ *
+ * The append-only log, its snapshots and the audit journal store these by ordinal, so new states
+ * must be added at the end and existing ones never reordered or removed.
  */
 public enum AlarmStatus {
-    NO_ALARM("Cool and Good", new Color(120,200,30)),
-    PENDING_ALARM("I'm in Danger...", new Color(200,150,20)),
-    ALARM("Awooga!", new Color(250,80,50));
-
-    private final String description;
-    private final Color color;
-
-    AlarmStatus(String description, Color color) {
-        this.description = description;
-        this.color = color;
-    }
-
-    public String getDescription() {
-        return description;
-    }
-
-    public Color getColor() {
-        return color;
-    }
-}
\ No newline at end of file
+    NO_ALARM,
+    PENDING_ALARM,
+    ALARM
+}
@@ -0,0 +1,527 @@
+package com.udacity.catpoint.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Repository that persists every change as a small delta record appended to a memory-mapped
+ * log segment, instead of re-serializing the whole sensor set on each write. Toggling a sensor
+ * costs a fixed-size append no matter how many sensors exist.
+ *
+ * When a segment fills up the repository rolls over to a new one and a background thread
+ * writes a snapshot of the state at the roll-over point, after which older segments are
+ * deleted. On startup the latest snapshot is loaded and any newer segments are replayed on top.
+ *
+ * Sensors live in a {@link SensorStore}. Replaying the log fills the store's primitive columns
+ * directly, so Sensor objects are only created for sensors callers actually ask for.
+ */
+public class AppendOnlyLogSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AppendOnlyLogSecurityRepositoryImpl.class);
+
+    static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+
+    //record opcodes. 0 marks the unwritten tail of a preallocated segment
+    private static final byte OP_END = 0;
+    private static final byte OP_PUT_SENSOR = 1;
+    private static final byte OP_REMOVE_SENSOR = 2;
+    private static final byte OP_SENSOR_ACTIVE = 3;
+    private static final byte OP_ALARM_STATUS = 4;
+    private static final byte OP_ARMING_STATUS = 5;
+
+    //opcode + two uuid halves + one value byte
+    private static final int FIXED_RECORD_BYTES = 1 + Long.BYTES * 2 + 1;
+
+    //names are stored with an unsigned short length prefix
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    //the first format wrote names with writeUTF, whose modified UTF-8 can outgrow its length prefix
+    private static final int SNAPSHOT_MAGIC_MODIFIED_UTF8 = 0xCA7901;
+    //names as in the log: unsigned short length, then UTF-8
+    private static final int SNAPSHOT_MAGIC = 0xCA7902;
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final ExecutorService compactor;
+
+    private final SensorStore store = new SensorStore();
+    //sorted view handed out by getSensors, rebuilt after sensors are added, removed or renamed
+    private Set<Sensor> sortedView;
+    //written under the lock, read without it
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+    private final LongAdder snapshotFailures = new LongAdder();
+
+    //true if the directory held no snapshot or segments when opened
+    private final boolean empty;
+
+    private long generation;
+    private MappedByteBuffer segment;
+
+    public AppendOnlyLogSecurityRepositoryImpl() {
+        this(defaultDirectory());
+    }
+
+    public AppendOnlyLogSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    AppendOnlyLogSecurityRepositoryImpl(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "catpoint-wal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Files.createDirectories(directory);
+            long snapshotGeneration = loadSnapshot();
+            List<Long> generations = listSegmentGenerations();
+            empty = !Files.exists(directory.resolve(SNAPSHOT_FILE)) && generations.isEmpty();
+            generation = snapshotGeneration;
+            for (long g : generations) {
+                if (g < snapshotGeneration) {
+                    Files.deleteIfExists(segmentPath(g));
+                } else {
+                    replaySegment(g);
+                    generation = g;
+                }
+            }
+            segment = openSegmentForAppend(generation);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open sensor log in " + directory, ioe);
+        }
+    }
+
+    /**
+     * Opens the log in the given directory. If the directory holds no log yet, the sensors and
+     * statuses of the previous repository are copied into it first, so switching an existing
+     * install over from {@link PretendDatabaseSecurityRepositoryImpl} keeps its state. The
+     * previous repository is only created when there is something to import.
+     */
+    public static AppendOnlyLogSecurityRepositoryImpl openImporting(Path directory,
+                                                                   Supplier<? extends SecurityRepository> previous) {
+        AppendOnlyLogSecurityRepositoryImpl repository = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        if (repository.empty) {
+            repository.importFrom(previous.get());
+        }
+        return repository;
+    }
+
+    /**
+     * ~/.catpoint/wal
+     */
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".catpoint", "wal");
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        appendPut(sensor);
+        store.put(sensor);
+        sortedView = null;
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        UUID id = sensor.getSensorId();
+        appendFixed(OP_REMOVE_SENSOR, id, (byte) 0);
+        store.remove(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        sortedView = null;
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        int slot = store.slotOf(sensor.getSensorId());
+        if (slot >= 0 && Objects.equals(store.getName(slot), sensor.getName())
+                && store.getSensorType(slot) == sensor.getSensorType()) {
+            //only the activation flag can have changed, which the sort order does not depend on
+            appendFixed(OP_SENSOR_ACTIVE, sensor.getSensorId(), toByte(sensor.getActive()));
+            store.setActive(slot, Boolean.TRUE.equals(sensor.getActive()));
+            return;
+        }
+        appendPut(sensor);
+        store.put(sensor);
+        sortedView = null;
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> updated) {
+        updated.forEach(this::updateSensor);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        appendFixed(OP_ALARM_STATUS, null, (byte) alarmStatus.ordinal());
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        appendFixed(OP_ARMING_STATUS, null, (byte) armingStatus.ordinal());
+        this.armingStatus = armingStatus;
+    }
+
+    /**
+     * Returns a read-only sorted snapshot. Activation changes show up in it because it holds the
+     * store's own Sensor objects, but sensors added or removed later don't.
+     */
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        if (sortedView == null) {
+            Set<Sensor> sorted = new TreeSet<>();
+            for (int slot = 0; slot < store.size(); slot++) {
+                sorted.add(store.getSensor(slot));
+            }
+            sortedView = Collections.unmodifiableSet(sorted);
+        }
+        return sortedView;
+    }
+
+    @Override
+    public synchronized Sensor findSensor(long mostSigBits, long leastSigBits) {
+        int slot = store.slotOf(mostSigBits, leastSigBits);
+        return slot < 0 ? null : store.getSensor(slot);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return store.getActiveCount();
+    }
+
+    /**
+     * Snapshots that could not be written. Segments are only deleted once a snapshot covers them,
+     * so while this keeps growing the log directory does too.
+     */
+    public long getSnapshotFailureCount() {
+        return snapshotFailures.sum();
+    }
+
+    /**
+     * Flushes the current segment to disk and waits for any pending snapshot to finish.
+     */
+    @Override
+    public synchronized void close() {
+        segment.force();
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void appendFixed(byte op, UUID id, byte value) {
+        ensureCapacity(FIXED_RECORD_BYTES);
+        int start = segment.position();
+        segment.put(start + 1 + Long.BYTES * 2, value);
+        if (id != null) {
+            segment.putLong(start + 1, id.getMostSignificantBits());
+            segment.putLong(start + 1 + Long.BYTES, id.getLeastSignificantBits());
+        }
+        commit(start, op, FIXED_RECORD_BYTES);
+    }
+
+    private void appendPut(Sensor sensor) {
+        byte[] name = sensor.getName() == null ? new byte[0] : sensor.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Sensor name is too long to store: " + sensor.getName());
+        }
+        int length = FIXED_RECORD_BYTES + 1 + Short.BYTES + name.length;
+        ensureCapacity(length);
+        int start = segment.position();
+        segment.position(start + 1);
+        segment.putLong(sensor.getSensorId().getMostSignificantBits());
+        segment.putLong(sensor.getSensorId().getLeastSignificantBits());
+        segment.put(toByte(sensor.getActive()));
+        segment.put(toByte(sensor.getSensorType()));
+        segment.putShort((short) name.length);
+        segment.put(name);
+        commit(start, OP_PUT_SENSOR, length);
+    }
+
+    /**
+     * Writes the opcode last so a record interrupted half-way is read back as the end of the log.
+     */
+    private void commit(int start, byte op, int length) {
+        segment.put(start, op);
+        segment.position(start + length);
+    }
+
+    /**
+     * Rolls over to a new segment if the next record does not fit. Callers append before touching
+     * in-memory state, so the snapshot taken here describes exactly what precedes the new segment.
+     */
+    private void ensureCapacity(int length) {
+        //always leave room for the end marker
+        if (segment.remaining() > length) {
+            return;
+        }
+        segment.force();
+        final long snapshotGeneration = generation + 1;
+        final Snapshot snapshot = captureSnapshot();
+        try {
+            generation = snapshotGeneration;
+            segment = openSegmentForAppend(generation);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to roll sensor log segment", ioe);
+        }
+        compactor.execute(() -> writeSnapshot(snapshotGeneration, snapshot));
+    }
+
+    private Snapshot captureSnapshot() {
+        int count = store.size();
+        long[] mostSigBits = new long[count];
+        long[] leastSigBits = new long[count];
+        boolean[] active = new boolean[count];
+        byte[] types = new byte[count];
+        String[] names = new String[count];
+        for (int slot = 0; slot < count; slot++) {
+            mostSigBits[slot] = store.getMostSigBits(slot);
+            leastSigBits[slot] = store.getLeastSigBits(slot);
+            active[slot] = store.isActive(slot);
+            types[slot] = toByte(store.getSensorType(slot));
+            names[slot] = store.getName(slot);
+        }
+        return new Snapshot(alarmStatus, armingStatus, mostSigBits, leastSigBits, active, types, names);
+    }
+
+    private void writeSnapshot(long snapshotGeneration, Snapshot snapshot) {
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                         Channels.newOutputStream(channel)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(snapshotGeneration);
+                out.writeByte(snapshot.alarmStatus.ordinal());
+                out.writeByte(snapshot.armingStatus.ordinal());
+                out.writeInt(snapshot.names.length);
+                for (int i = 0; i < snapshot.names.length; i++) {
+                    out.writeLong(snapshot.mostSigBits[i]);
+                    out.writeLong(snapshot.leastSigBits[i]);
+                    out.writeBoolean(snapshot.active[i]);
+                    out.writeByte(snapshot.types[i]);
+                    byte[] name = snapshot.names[i] == null ? new byte[0]
+                            : snapshot.names[i].getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(name.length);
+                    out.write(name);
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(tmp, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (long g : listSegmentGenerations()) {
+                if (g < snapshotGeneration) {
+                    Files.deleteIfExists(segmentPath(g));
+                }
+            }
+        } catch (IOException ioe) {
+            //older segments are kept, so nothing is lost; the next roll-over will try again
+            snapshotFailures.increment();
+            log.warn("Unable to write sensor snapshot {} in {}", snapshotGeneration, directory, ioe);
+        }
+    }
+
+    private long loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_MODIFIED_UTF8) {
+                throw new IOException("Not a sensor snapshot: " + file);
+            }
+            long snapshotGeneration = in.readLong();
+            alarmStatus = AlarmStatus.values()[in.readByte()];
+            armingStatus = ArmingStatus.values()[in.readByte()];
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long mostSigBits = in.readLong();
+                long leastSigBits = in.readLong();
+                boolean active = in.readBoolean();
+                SensorType sensorType = toSensorType(in.readByte());
+                String name;
+                if (magic == SNAPSHOT_MAGIC) {
+                    byte[] bytes = new byte[in.readUnsignedShort()];
+                    in.readFully(bytes);
+                    name = new String(bytes, StandardCharsets.UTF_8);
+                } else {
+                    name = in.readUTF();
+                }
+                store.put(mostSigBits, leastSigBits, name, sensorType, active);
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    private void replaySegment(long g) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(g), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= FIXED_RECORD_BYTES) {
+                byte op = buffer.get();
+                if (op == OP_END) {
+                    break;
+                }
+                long mostSigBits = buffer.getLong();
+                long leastSigBits = buffer.getLong();
+                byte value = buffer.get();
+                switch (op) {
+                    case OP_PUT_SENSOR:
+                        SensorType sensorType = toSensorType(buffer.get());
+                        byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                        buffer.get(name);
+                        store.put(mostSigBits, leastSigBits, new String(name, StandardCharsets.UTF_8),
+                                sensorType, value != 0);
+                        break;
+                    case OP_REMOVE_SENSOR:
+                        store.remove(mostSigBits, leastSigBits);
+                        break;
+                    case OP_SENSOR_ACTIVE:
+                        int slot = store.slotOf(mostSigBits, leastSigBits);
+                        if (slot >= 0) {
+                            store.setActive(slot, value != 0);
+                        }
+                        break;
+                    case OP_ALARM_STATUS:
+                        alarmStatus = AlarmStatus.values()[value];
+                        break;
+                    case OP_ARMING_STATUS:
+                        armingStatus = ArmingStatus.values()[value];
+                        break;
+                    default:
+                        throw new IOException("Corrupt sensor log segment " + segmentPath(g));
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the given segment and positions it after the last committed record.
+     */
+    private MappedByteBuffer openSegmentForAppend(long g) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(g), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            while (buffer.remaining() >= FIXED_RECORD_BYTES) {
+                int start = buffer.position();
+                byte op = buffer.get(start);
+                if (op == OP_END) {
+                    break;
+                }
+                int length = FIXED_RECORD_BYTES;
+                if (op == OP_PUT_SENSOR) {
+                    length += 1 + Short.BYTES + (buffer.getShort(start + FIXED_RECORD_BYTES + 1) & 0xFFFF);
+                }
+                buffer.position(start + length);
+            }
+            return buffer;
+        }
+    }
+
+    //the statuses are written even if they're the defaults, so the log is never empty afterwards
+    private synchronized void importFrom(SecurityRepository previous) {
+        for (Sensor sensor : previous.getSensors()) {
+            addSensor(sensor);
+        }
+        setAlarmStatus(previous.getAlarmStatus());
+        setArmingStatus(previous.getArmingStatus());
+    }
+
+    private List<Long> listSegmentGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : stream) {
+                String fileName = p.getFileName().toString();
+                generations.add(Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+                        fileName.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    private Path segmentPath(long g) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, g, SEGMENT_SUFFIX));
+    }
+
+    private static byte toByte(Boolean value) {
+        return (byte) (Boolean.TRUE.equals(value) ? 1 : 0);
+    }
+
+    private static byte toByte(SensorType sensorType) {
+        return sensorType == null ? -1 : (byte) sensorType.ordinal();
+    }
+
+    private static SensorType toSensorType(byte ordinal) {
+        return ordinal < 0 ? null : SensorType.values()[ordinal];
+    }
+
+    private static final class Snapshot {
+        private final AlarmStatus alarmStatus;
+        private final ArmingStatus armingStatus;
+        private final long[] mostSigBits;
+        private final long[] leastSigBits;
+        private final boolean[] active;
+        private final byte[] types;
+        private final String[] names;
+
+        Snapshot(AlarmStatus alarmStatus, ArmingStatus armingStatus, long[] mostSigBits, long[] leastSigBits,
+                 boolean[] active, byte[] types, String[] names) {
+            this.alarmStatus = alarmStatus;
+            this.armingStatus = armingStatus;
+            this.mostSigBits = mostSigBits;
+            this.leastSigBits = leastSigBits;
+            this.active = active;
+            this.types = types;
+            this.names = names;
+        }
+    }
+}
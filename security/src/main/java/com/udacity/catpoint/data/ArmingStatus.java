@@ -1,29 +1,13 @@
 package com.udacity.catpoint.data;
 
-import java.awt.*;
-
 /**
  * List of potential states the security system can use to describe how the system is armed.
- * Also contains metadata about what text and color is associated with the arming status.
+ * The text and color shown for each state live in StyleService.
+ *
+ * Stored by ordinal, like {@link AlarmStatus}: add new states at the end only.
  */
 public enum ArmingStatus {
-    DISARMED("Disarmed", new Color(120,200,30)),
-    ARMED_HOME("Armed - At Home", new Color(190,180,50)),
-    ARMED_AWAY("Armed - Away", new Color(170,30,150));
-
-    private final String description;
-    private final Color color;
-
-    ArmingStatus(String description, Color color) {
-        this.description = description;
-        this.color = color;
-    }
-
-    public String getDescription() {
-        return description;
-    }
-
-    public Color getColor() {
-        return color;
-    }
-}
\ No newline at end of file
+    DISARMED,
+    ARMED_HOME,
+    ARMED_AWAY
+}
@@ -4,8 +4,11 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 
 import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.prefs.Preferences;
 
 /**
@@ -16,6 +19,7 @@ import java.util.prefs.Preferences;
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
 
     private final Set<Sensor> sensors;
+    private final Set<UUID> activeSensorIds = new HashSet<>();
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
 
@@ -24,10 +28,19 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
 
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
     private static final Gson gson = new Gson(); //used to serialize objects into JSON
 
+    private final Preferences prefs;
+
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class));
+    }
+
+    /**
+     * @param prefs Node to load state from and save it to, e.g. a throwaway node for benchmarks
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs) {
+        this.prefs = prefs;
         //load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
         armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
@@ -41,18 +54,21 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
             Type type = new TypeToken<Set<Sensor>>() {
             }.getType();
             sensors = gson.fromJson(sensorString, type);
+            sensors.forEach(this::trackActive);
         }
     }
 
     @Override
     public void addSensor(Sensor sensor) {
         sensors.add(sensor);
+        trackActive(sensor);
         prefs.put(SENSORS, gson.toJson(sensors));
     }
 
     @Override
     public void removeSensor(Sensor sensor) {
         sensors.remove(sensor);
+        activeSensorIds.remove(sensor.getSensorId());
         prefs.put(SENSORS, gson.toJson(sensors));
     }
 
@@ -60,6 +76,17 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     public void updateSensor(Sensor sensor) {
         sensors.remove(sensor);
         sensors.add(sensor);
+        trackActive(sensor);
+        prefs.put(SENSORS, gson.toJson(sensors));
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        updated.forEach(sensor -> {
+            sensors.remove(sensor);
+            sensors.add(sensor);
+            trackActive(sensor);
+        });
         prefs.put(SENSORS, gson.toJson(sensors));
     }
 
@@ -89,4 +116,17 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     public ArmingStatus getArmingStatus() {
         return armingStatus;
     }
+
+    @Override
+    public int getActiveSensorCount() {
+        return activeSensorIds.size();
+    }
+
+    private void trackActive(Sensor sensor) {
+        if (Boolean.TRUE.equals(sensor.getActive())) {
+            activeSensorIds.add(sensor.getSensorId());
+        } else {
+            activeSensorIds.remove(sensor.getSensorId());
+        }
+    }
 }
\ No newline at end of file
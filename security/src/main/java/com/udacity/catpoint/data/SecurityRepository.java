@@ -1,6 +1,8 @@
 package com.udacity.catpoint.data;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -9,11 +11,40 @@ public interface SecurityRepository {
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
+
+    /**
+     * Persists changes to several sensors as a single unit. Implementations that write their
+     * whole state on every change should override this so the batch costs one write.
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
     void setAlarmStatus(AlarmStatus alarmStatus);
     void setArmingStatus(ArmingStatus armingStatus);
     Set<Sensor> getSensors();
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
 
+    /**
+     * Number of sensors currently active. Implementations should keep this as a running count
+     * so the alarm checks done on every sensor event and camera frame don't scan all sensors.
+     */
+    default int getActiveSensorCount() {
+        return (int) getSensors().stream().filter(Sensor::getActive).count();
+    }
 
+    /**
+     * Finds a sensor by the two halves of its id, or returns null. Implementations with an id
+     * index should override this so lookups take constant time and don't allocate a UUID.
+     */
+    default Sensor findSensor(long mostSigBits, long leastSigBits) {
+        UUID id = new UUID(mostSigBits, leastSigBits);
+        for (Sensor sensor : getSensors()) {
+            if (sensor.getSensorId().equals(id)) {
+                return sensor;
+            }
+        }
+        return null;
+    }
 }
\ No newline at end of file
@@ -1,8 +1,6 @@
 package com.udacity.catpoint.data;
 
 
-import com.google.common.collect.ComparisonChain;
-
 import java.util.Objects;
 import java.util.UUID;
 
@@ -77,10 +75,11 @@ public class Sensor implements Comparable<Sensor> {
 
     @Override
     public int compareTo(Sensor o) {
-        return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
-                .result();
+        //same order as comparing name, type name, then id, without building a comparison chain
+        int result = this.name.compareTo(o.name);
+        if (result == 0 && this.sensorType != o.sensorType) {
+            result = this.sensorType.name().compareTo(o.sensorType.name());
+        }
+        return result != 0 ? result : this.sensorId.compareTo(o.sensorId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+package com.udacity.catpoint.data;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Compact in-memory sensor table stored as parallel primitive columns:
+ * - id halves as longs
+ * - the sensor type as a byte ordinal
+ * - the active flag as one bit
+ * - the name as an interned String, shared by every sensor with that name
+ *
+ * An open-addressed index maps id halves to slots, so lookups and toggles take constant time
+ * and allocate nothing.
+ *
+ * {@link Sensor} objects are only created when a caller asks for one, and the same object is
+ * then returned for that slot until the sensor is removed or rewritten. Slots aren't stable:
+ * removing a sensor moves the last one into its slot.
+ *
+ * Not thread-safe; the owning repository synchronizes access.
+ */
+public class SensorStore {
+
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+    private static final byte NO_TYPE = -1;
+
+    private long[] mostSigBits;
+    private long[] leastSigBits;
+    private byte[] types;
+    private String[] names;
+    private long[] activeBits;
+    private Sensor[] views;
+    //slot + 1 for each occupied bucket, 0 for empty
+    private int[] index;
+    private int size;
+    private int activeCount;
+
+    public SensorStore() {
+        this(16);
+    }
+
+    public SensorStore(int initialCapacity) {
+        allocate(Math.max(4, initialCapacity));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return the sensor's slot, or -1 if it isn't stored
+     */
+    public int slotOf(long mostSig, long leastSig) {
+        int mask = index.length - 1;
+        for (int bucket = bucketFor(mostSig, leastSig, mask); index[bucket] != 0; bucket = (bucket + 1) & mask) {
+            int slot = index[bucket] - 1;
+            if (leastSigBits[slot] == leastSig && mostSigBits[slot] == mostSig) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public int slotOf(UUID sensorId) {
+        return slotOf(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+    }
+
+    /**
+     * Stores the sensor, replacing any with the same id, and makes this object the one returned
+     * by {@link #getSensor(int)} for its slot.
+     *
+     * @return the sensor's slot
+     */
+    public int put(Sensor sensor) {
+        UUID id = sensor.getSensorId();
+        int slot = put(id.getMostSignificantBits(), id.getLeastSignificantBits(), sensor.getName(),
+                sensor.getSensorType(), Boolean.TRUE.equals(sensor.getActive()));
+        views[slot] = sensor;
+        return slot;
+    }
+
+    /**
+     * Stores a sensor from its parts, replacing any with the same id.
+     *
+     * @return the sensor's slot
+     */
+    public int put(long mostSig, long leastSig, String name, SensorType sensorType, boolean active) {
+        int slot = slotOf(mostSig, leastSig);
+        if (slot < 0) {
+            if (size == mostSigBits.length) {
+                grow();
+            }
+            slot = size++;
+            mostSigBits[slot] = mostSig;
+            leastSigBits[slot] = leastSig;
+            insertIndex(slot);
+        }
+        names[slot] = name == null ? null : name.intern();
+        types[slot] = sensorType == null ? NO_TYPE : (byte) sensorType.ordinal();
+        views[slot] = null;
+        setActive(slot, active);
+        return slot;
+    }
+
+    /**
+     * @return false if no sensor had this id
+     */
+    public boolean remove(long mostSig, long leastSig) {
+        int slot = slotOf(mostSig, leastSig);
+        if (slot < 0) {
+            return false;
+        }
+        if (isActive(slot)) {
+            activeCount--;
+            setActiveBit(slot, false);
+        }
+        removeIndex(slot);
+        int last = --size;
+        if (slot != last) {
+            //move the last sensor into the hole and repoint its index bucket
+            mostSigBits[slot] = mostSigBits[last];
+            leastSigBits[slot] = leastSigBits[last];
+            types[slot] = types[last];
+            names[slot] = names[last];
+            views[slot] = views[last];
+            setActiveBit(slot, isActive(last));
+            setActiveBit(last, false);
+            index[bucketOfSlot(last)] = slot + 1;
+        }
+        names[last] = null;
+        views[last] = null;
+        return true;
+    }
+
+    public boolean isActive(int slot) {
+        return (activeBits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Updates the flag, and the Sensor object for the slot if one has been handed out.
+     */
+    public void setActive(int slot, boolean active) {
+        if (isActive(slot) != active) {
+            activeCount += active ? 1 : -1;
+            setActiveBit(slot, active);
+        }
+        Sensor view = views[slot];
+        if (view != null && !Boolean.valueOf(active).equals(view.getActive())) {
+            view.setActive(active);
+        }
+    }
+
+    public long getMostSigBits(int slot) {
+        return mostSigBits[slot];
+    }
+
+    public long getLeastSigBits(int slot) {
+        return leastSigBits[slot];
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public SensorType getSensorType(int slot) {
+        return types[slot] == NO_TYPE ? null : SENSOR_TYPES[types[slot]];
+    }
+
+    /**
+     * The Sensor object for a slot, created the first time it's asked for.
+     */
+    public Sensor getSensor(int slot) {
+        Sensor view = views[slot];
+        if (view == null) {
+            view = new Sensor(names[slot], getSensorType(slot));
+            view.setSensorId(new UUID(mostSigBits[slot], leastSigBits[slot]));
+            view.setActive(isActive(slot));
+            views[slot] = view;
+        }
+        return view;
+    }
+
+    private void setActiveBit(int slot, boolean active) {
+        if (active) {
+            activeBits[slot >>> 6] |= 1L << slot;
+        } else {
+            activeBits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    private void allocate(int capacity) {
+        mostSigBits = new long[capacity];
+        leastSigBits = new long[capacity];
+        types = new byte[capacity];
+        names = new String[capacity];
+        activeBits = new long[(capacity + 63) >>> 6];
+        views = new Sensor[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    }
+
+    private void grow() {
+        int capacity = mostSigBits.length * 2;
+        mostSigBits = Arrays.copyOf(mostSigBits, capacity);
+        leastSigBits = Arrays.copyOf(leastSigBits, capacity);
+        types = Arrays.copyOf(types, capacity);
+        names = Arrays.copyOf(names, capacity);
+        activeBits = Arrays.copyOf(activeBits, (capacity + 63) >>> 6);
+        views = Arrays.copyOf(views, capacity);
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        for (int slot = 0; slot < size; slot++) {
+            insertIndex(slot);
+        }
+    }
+
+    private void insertIndex(int slot) {
+        int mask = index.length - 1;
+        int bucket = bucketFor(mostSigBits[slot], leastSigBits[slot], mask);
+        while (index[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        index[bucket] = slot + 1;
+    }
+
+    private int bucketOfSlot(int slot) {
+        int mask = index.length - 1;
+        int bucket = bucketFor(mostSigBits[slot], leastSigBits[slot], mask);
+        while (index[bucket] != slot + 1) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    /**
+     * Deletes the slot's bucket, shifting later entries of the same probe run back so lookups
+     * never stop at a false gap.
+     */
+    private void removeIndex(int slot) {
+        int mask = index.length - 1;
+        int gap = bucketOfSlot(slot);
+        for (int next = (gap + 1) & mask; index[next] != 0; next = (next + 1) & mask) {
+            int moved = index[next] - 1;
+            int home = bucketFor(mostSigBits[moved], leastSigBits[moved], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                index[gap] = index[next];
+                gap = next;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    private static int bucketFor(long mostSig, long leastSig, int mask) {
+        long h = (mostSig ^ leastSig) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -2,6 +2,8 @@ package com.udacity.catpoint.data;
 
 /**
  * List of available sensor types. Not currently used by system, other than for display.
+ *
+ * Stored by ordinal, like {@link AlarmStatus}: add new types at the end only.
  */
 public enum SensorType {
     DOOR, WINDOW, MOTION
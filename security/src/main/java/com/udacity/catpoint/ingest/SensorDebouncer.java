@@ -0,0 +1,215 @@
+package com.udacity.catpoint.ingest;
+
+import com.udacity.catpoint.data.SensorStore;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Filters chattering sensors before their events reach SecurityService.
+ *
+ * A sensor must stay in a state for that state's hold window before a change back is passed on.
+ * A change arriving sooner is held back, and is dropped altogether if the sensor returns to its
+ * previous state within the window; otherwise it is passed on once the window ends, from
+ * {@link #pollDue}. A flapping contact therefore produces one change each way instead of one
+ * per bounce. Activations should normally have no hold window, so an intrusion is never delayed.
+ *
+ * Repeats of the state last passed on are dropped within the repeat window. A repeat is not a
+ * new activation. After the window one is passed on again, in case the state was changed
+ * elsewhere in the meantime.
+ *
+ * State lives in primitive arrays indexed by each sensor's slot in a {@link SensorStore}, whose
+ * active flag records the state last passed on. Only ids the {@link SensorLookup} knows are
+ * tracked, so spoofed or stale ids can't fill the table. Not thread-safe; the gateway's selector
+ * thread owns it.
+ */
+public class SensorDebouncer {
+
+    /**
+     * Receives the changes that were held back and are now due.
+     */
+    public interface Sink {
+        void accept(long mostSigBits, long leastSigBits, boolean active);
+    }
+
+    /**
+     * Tells the debouncer whether an id belongs to a configured sensor.
+     */
+    public interface SensorLookup {
+        boolean isKnown(long mostSigBits, long leastSigBits);
+    }
+
+    //sensors tracked unless configured otherwise; events from ids beyond this pass straight through
+    public static final int DEFAULT_MAX_SENSORS = 1 << 16;
+
+    private static final long NOT_PENDING = Long.MAX_VALUE;
+
+    private final long activeHoldNanos;
+    private final long inactiveHoldNanos;
+    private final long repeatNanos;
+    private final int maxSensors;
+    private final LongSupplier clock;
+
+    private final SensorStore sensors = new SensorStore();
+    //when the state last passed on was entered, for the hold windows
+    private long[] lastChange = new long[16];
+    //when that state was last passed on, for the repeat window
+    private long[] lastForwarded = new long[16];
+    //when the held-back opposite state is due, or NOT_PENDING
+    private long[] pendingDue = new long[16];
+    private int pendingCount;
+    //earliest due time while pendingCount > 0
+    private long nextDue;
+
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    /**
+     * @param activeHold How long a sensor must stay active before a deactivation is passed on
+     * @param inactiveHold How long a sensor must stay inactive before an activation is passed on
+     * @param repeatWindow How long repeats of the same state are dropped for
+     * @param maxSensors Most sensors tracked; events for any more are passed on unfiltered
+     */
+    public SensorDebouncer(long activeHold, long inactiveHold, long repeatWindow, TimeUnit unit, int maxSensors) {
+        this(unit.toNanos(activeHold), unit.toNanos(inactiveHold), unit.toNanos(repeatWindow), maxSensors,
+                System::nanoTime);
+    }
+
+    SensorDebouncer(long activeHoldNanos, long inactiveHoldNanos, long repeatNanos, int maxSensors, LongSupplier clock) {
+        this.activeHoldNanos = activeHoldNanos;
+        this.inactiveHoldNanos = inactiveHoldNanos;
+        this.repeatNanos = repeatNanos;
+        this.maxSensors = maxSensors;
+        this.clock = clock;
+        Arrays.fill(pendingDue, NOT_PENDING);
+    }
+
+    /**
+     * Events that were dropped, either as repeats or as bounces that reverted within a hold window.
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    /**
+     * Events passed on unfiltered because maxSensors were already tracked.
+     */
+    public long getUntrackedCount() {
+        return untracked.sum();
+    }
+
+    /**
+     * Events from ids the lookup doesn't know are passed on untracked, to be counted and dropped
+     * by whoever applies them. The lookup is only asked about ids not tracked yet.
+     *
+     * @return true if the event should be passed on now
+     */
+    public boolean accept(SensorEvent event, SensorLookup lookup) {
+        long now = clock.getAsLong();
+        long mostSig = event.sensorIdMostSigBits;
+        long leastSig = event.sensorIdLeastSigBits;
+        boolean active = event.active;
+
+        int slot = sensors.slotOf(mostSig, leastSig);
+        if (slot < 0) {
+            if (!lookup.isKnown(mostSig, leastSig)) {
+                return true;
+            }
+            if (sensors.size() >= maxSensors) {
+                untracked.increment();
+                return true;
+            }
+            slot = sensors.put(mostSig, leastSig, null, null, active);
+            ensureCapacity(slot + 1);
+            lastChange[slot] = now;
+            lastForwarded[slot] = now;
+            pendingDue[slot] = NOT_PENDING;
+            return true;
+        }
+
+        if (sensors.isActive(slot) == active) {
+            if (pendingDue[slot] != NOT_PENDING) {
+                //bounced back before the change was passed on, so it never happened
+                clearPending(slot);
+                suppressed.increment();
+                return false;
+            }
+            if (now - lastForwarded[slot] < repeatNanos) {
+                suppressed.increment();
+                return false;
+            }
+            lastForwarded[slot] = now;
+            return true;
+        }
+
+        if (pendingDue[slot] != NOT_PENDING) {
+            //already waiting to pass this change on
+            suppressed.increment();
+            return false;
+        }
+        long due = lastChange[slot] + (active ? inactiveHoldNanos : activeHoldNanos);
+        if (now - due >= 0) {
+            forward(slot, active, now);
+            return true;
+        }
+        pendingDue[slot] = due;
+        if (pendingCount++ == 0 || due - nextDue < 0) {
+            nextDue = due;
+        }
+        return false;
+    }
+
+    /**
+     * Passes on every held-back change whose hold window has ended.
+     */
+    public void pollDue(Sink sink) {
+        if (pendingCount == 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (now - nextDue < 0) {
+            return;
+        }
+        boolean first = true;
+        for (int slot = 0; slot < sensors.size() && pendingCount > 0; slot++) {
+            long due = pendingDue[slot];
+            if (due == NOT_PENDING) {
+                continue;
+            }
+            if (now - due >= 0) {
+                clearPending(slot);
+                boolean active = !sensors.isActive(slot);
+                forward(slot, active, now);
+                sink.accept(sensors.getMostSigBits(slot), sensors.getLeastSigBits(slot), active);
+            } else if (first || due - nextDue < 0) {
+                nextDue = due;
+                first = false;
+            }
+        }
+    }
+
+    private void forward(int slot, boolean active, long now) {
+        sensors.setActive(slot, active);
+        lastChange[slot] = now;
+        lastForwarded[slot] = now;
+    }
+
+    private void clearPending(int slot) {
+        pendingDue[slot] = NOT_PENDING;
+        pendingCount--;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= lastChange.length) {
+            return;
+        }
+        int capacity = Math.max(size, lastChange.length * 2);
+        lastChange = Arrays.copyOf(lastChange, capacity);
+        lastForwarded = Arrays.copyOf(lastForwarded, capacity);
+        int old = pendingDue.length;
+        pendingDue = Arrays.copyOf(pendingDue, capacity);
+        Arrays.fill(pendingDue, old, capacity, NOT_PENDING);
+    }
+}
@@ -0,0 +1,32 @@
+package com.udacity.catpoint.ingest;
+
+import java.util.UUID;
+
+/**
+ * One sensor state change received by the {@link SensorIngestionGateway}. Instances are pooled
+ * and overwritten as new messages arrive, so don't hold on to one after it has been handled.
+ */
+public final class SensorEvent {
+    long sensorIdMostSigBits;
+    long sensorIdLeastSigBits;
+    boolean active;
+
+    public long getSensorIdMostSigBits() {
+        return sensorIdMostSigBits;
+    }
+
+    public long getSensorIdLeastSigBits() {
+        return sensorIdLeastSigBits;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Convenience for callers that need a UUID; allocates, so the ingestion path doesn't use it.
+     */
+    public UUID getSensorId() {
+        return new UUID(sensorIdMostSigBits, sensorIdLeastSigBits);
+    }
+}
@@ -0,0 +1,43 @@
+package com.udacity.catpoint.ingest;
+
+/**
+ * Fixed-size run of pooled events handed to SecurityService in one command.
+ */
+final class SensorEventBatch {
+    private final SensorEvent[] events;
+    private int size;
+
+    SensorEventBatch(int capacity) {
+        events = new SensorEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new SensorEvent();
+        }
+    }
+
+    /**
+     * The next unused slot; only counted once {@link #commit()} is called.
+     */
+    SensorEvent slot() {
+        return events[size];
+    }
+
+    void commit() {
+        size++;
+    }
+
+    SensorEvent get(int i) {
+        return events[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == events.length;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
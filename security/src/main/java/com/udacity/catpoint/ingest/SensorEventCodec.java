@@ -0,0 +1,54 @@
+package com.udacity.catpoint.ingest;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Binary wire format for sensor state changes. Every message is a fixed 19 bytes in network
+ * byte order:
+ * <pre>
+ *   0      magic (0xCA)
+ *   1      version (1)
+ *   2      flags, bit 0 set when the sensor is active
+ *   3-10   sensor id, most significant bits
+ *   11-18  sensor id, least significant bits
+ * </pre>
+ * A UDP datagram carries one or more messages back to back; a TCP connection is a plain stream of them.
+ */
+public final class SensorEventCodec {
+
+    public static final int MESSAGE_BYTES = 19;
+
+    static final byte MAGIC = (byte) 0xCA;
+    static final byte VERSION = 1;
+    static final byte FLAG_ACTIVE = 1;
+
+    private SensorEventCodec() {
+    }
+
+    /**
+     * Reads one message at the buffer's position into a reused event. The position always moves
+     * forward by {@link #MESSAGE_BYTES}, whether or not the message was valid.
+     *
+     * @return false if the message had the wrong magic or version
+     */
+    public static boolean decode(ByteBuffer in, SensorEvent out) {
+        int start = in.position();
+        in.position(start + MESSAGE_BYTES);
+        if (in.get(start) != MAGIC || in.get(start + 1) != VERSION) {
+            return false;
+        }
+        out.active = (in.get(start + 2) & FLAG_ACTIVE) != 0;
+        out.sensorIdMostSigBits = in.getLong(start + 3);
+        out.sensorIdLeastSigBits = in.getLong(start + 11);
+        return true;
+    }
+
+    public static void encode(UUID sensorId, boolean active, ByteBuffer out) {
+        out.put(MAGIC);
+        out.put(VERSION);
+        out.put(active ? FLAG_ACTIVE : 0);
+        out.putLong(sensorId.getMostSignificantBits());
+        out.putLong(sensorId.getLeastSignificantBits());
+    }
+}
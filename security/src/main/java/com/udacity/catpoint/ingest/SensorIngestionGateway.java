@@ -0,0 +1,436 @@
+package com.udacity.catpoint.ingest;
+
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accepts sensor state changes from devices over UDP and TCP and feeds them into SecurityService.
+ * Messages use the fixed-size format in {@link SensorEventCodec}.
+ *
+ * One selector thread does all the network work. It decodes straight from its buffers into pooled
+ * {@link SensorEvent}s, so steady-state ingestion allocates nothing per message. Events are
+ * grouped into batches, and each batch becomes a single {@link SecurityService#submit} command,
+ * which finds each sensor through the repository's id index.
+ * When every batch is still waiting to be applied, the selector thread stops reading. TCP
+ * senders then slow down, and excess UDP traffic is dropped by the kernel instead of piling up
+ * on the heap.
+ *
+ * Every event for a known sensor goes through {@link SecurityService#changeSensorActivationStatus},
+ * including one repeating the sensor's current state, so a repeated activation escalates a pending
+ * alarm just as it does from the GUI. An optional {@link SensorDebouncer} drops repeats and bounces
+ * from chattering sensors as they are decoded, so they never cost a repository write or a round of
+ * listener calls; repeats inside its repeat window then no longer escalate.
+ *
+ * A connection that fails while being accepted, e.g. because the peer already reset it or the
+ * process is out of file descriptors, is closed, logged and counted, and ingestion carries on. Only
+ * a failure of the selector or of a listening channel stops the selector thread; the cause is
+ * logged and kept in {@link #getFailure}.
+ */
+public class SensorIngestionGateway implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorIngestionGateway.class);
+
+    private static final int DATAGRAM_BYTES = 64 * 1024;
+    private static final int CONNECTION_BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_DATAGRAMS_PER_WAKEUP = 256;
+    private static final long SELECT_TIMEOUT_MILLIS = 10;
+
+    private final SecurityService securityService;
+    private final Selector selector;
+    private final DatagramChannel udpChannel;
+    private final ServerSocketChannel tcpChannel;
+    private final ByteBuffer datagramBuffer = ByteBuffer.allocateDirect(DATAGRAM_BYTES);
+    private final BlockingQueue<SensorEventBatch> freeBatches;
+    private final SensorDebouncer debouncer;
+    private final SensorDebouncer.Sink debounced = this::enqueue;
+    private final Thread thread;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder unknownSensor = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder failedConnections = new LongAdder();
+
+    private volatile boolean running = true;
+    private volatile IOException failure;
+    //only touched by the selector thread
+    private SensorEventBatch currentBatch;
+
+    public SensorIngestionGateway(SecurityService securityService, InetSocketAddress udpAddress,
+                                  InetSocketAddress tcpAddress) throws IOException {
+        this(securityService, udpAddress, tcpAddress, null);
+    }
+
+    /**
+     * @param debouncer Filters events before they are batched, or null to pass every event on
+     */
+    public SensorIngestionGateway(SecurityService securityService, InetSocketAddress udpAddress,
+                                  InetSocketAddress tcpAddress, SensorDebouncer debouncer) throws IOException {
+        this(securityService, udpAddress, tcpAddress, debouncer, 1024, 8);
+    }
+
+    /**
+     * @param udpAddress Address to receive datagrams on, or null to disable UDP
+     * @param tcpAddress Address to accept connections on, or null to disable TCP
+     * @param debouncer Filters events before they are batched, or null to pass every event on
+     * @param batchSize Most events handed to SecurityService in one command
+     * @param batchCount Number of batches that may be waiting to be applied before reading pauses
+     */
+    public SensorIngestionGateway(SecurityService securityService, InetSocketAddress udpAddress,
+                                  InetSocketAddress tcpAddress, SensorDebouncer debouncer,
+                                  int batchSize, int batchCount) throws IOException {
+        this.securityService = securityService;
+        this.debouncer = debouncer;
+        this.freeBatches = new ArrayBlockingQueue<>(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            freeBatches.add(new SensorEventBatch(batchSize));
+        }
+
+        this.selector = Selector.open();
+        try {
+            if (udpAddress != null) {
+                udpChannel = DatagramChannel.open();
+                udpChannel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+                udpChannel.bind(udpAddress);
+                udpChannel.configureBlocking(false);
+                udpChannel.register(selector, SelectionKey.OP_READ);
+            } else {
+                udpChannel = null;
+            }
+            if (tcpAddress != null) {
+                tcpChannel = ServerSocketChannel.open();
+                tcpChannel.bind(tcpAddress);
+                tcpChannel.configureBlocking(false);
+                tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+            } else {
+                tcpChannel = null;
+            }
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+
+        this.thread = new Thread(this::run, "catpoint-sensor-ingest");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Address UDP is bound to, useful when binding to port 0; null if UDP is disabled.
+     */
+    public InetSocketAddress getUdpAddress() throws IOException {
+        return udpChannel == null ? null : (InetSocketAddress) udpChannel.getLocalAddress();
+    }
+
+    /**
+     * Address TCP is listening on, useful when binding to port 0; null if TCP is disabled.
+     */
+    public InetSocketAddress getTcpAddress() throws IOException {
+        return tcpChannel == null ? null : (InetSocketAddress) tcpChannel.getLocalAddress();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    public long getMalformedCount() {
+        return malformed.sum();
+    }
+
+    /**
+     * Events naming a sensor the repository doesn't know about.
+     */
+    public long getUnknownSensorCount() {
+        return unknownSensor.sum();
+    }
+
+    /**
+     * Events that reached SecurityService, including ones that didn't change the sensor's state.
+     */
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    /**
+     * Events the debouncer dropped; always 0 without one.
+     */
+    public long getDebouncedCount() {
+        return debouncer == null ? 0 : debouncer.getSuppressedCount();
+    }
+
+    /**
+     * Events passed on without debouncing because the debouncer was already tracking its
+     * maximum number of sensors; always 0 without one.
+     */
+    public long getUntrackedCount() {
+        return debouncer == null ? 0 : debouncer.getUntrackedCount();
+    }
+
+    /**
+     * TCP connections that failed while being accepted and were dropped.
+     */
+    public long getFailedConnectionCount() {
+        return failedConnections.sum();
+    }
+
+    /**
+     * Why the selector thread stopped, or null while it is running or after a normal close.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                Set<SelectionKey> keys = selector.selectedKeys();
+                for (Iterator<SelectionKey> it = keys.iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.channel() == udpChannel) {
+                        readDatagrams();
+                    } else {
+                        readStream(key);
+                    }
+                }
+                if (debouncer != null) {
+                    debouncer.pollDue(debounced);
+                }
+                //hand over whatever arrived this round rather than waiting for a full batch
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+            log.error("Sensor ingestion stopped", e);
+        } finally {
+            closeChannels();
+        }
+    }
+
+    /**
+     * Accepts one pending connection. Failures concern that connection only, so they are logged
+     * and counted rather than stopping ingestion.
+     */
+    private void accept() {
+        SocketChannel connection = null;
+        try {
+            connection = tcpChannel.accept();
+            if (connection == null) {
+                return;
+            }
+            configure(connection);
+            connection.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(CONNECTION_BUFFER_BYTES));
+        } catch (IOException e) {
+            failedConnections.increment();
+            log.warn("Dropped a sensor connection that failed while being accepted", e);
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (IOException ignored) {
+                    //already failed, nothing more to do
+                }
+            }
+        }
+    }
+
+    //package-private so tests can fail the setup of one connection
+    void configure(SocketChannel connection) throws IOException {
+        connection.configureBlocking(false);
+        connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    private void readDatagrams() throws IOException, InterruptedException {
+        for (int i = 0; i < MAX_DATAGRAMS_PER_WAKEUP; i++) {
+            datagramBuffer.clear();
+            if (udpChannel.receive(datagramBuffer) == null) {
+                return;
+            }
+            datagramBuffer.flip();
+            if (!decodeAll(datagramBuffer)) {
+                //a datagram is self-contained, so just drop the rest of a bad one
+                continue;
+            }
+            if (!running) {
+                //closed while waiting for a free batch, so the rest was never decoded
+                return;
+            }
+            if (datagramBuffer.hasRemaining()) {
+                malformed.increment();
+            }
+        }
+    }
+
+    private void readStream(SelectionKey key) throws IOException, InterruptedException {
+        SocketChannel connection = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read;
+        try {
+            read = connection.read(buffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        buffer.flip();
+        boolean valid = decodeAll(buffer);
+        buffer.compact();
+        if (read < 0 || !valid) {
+            //a bad message in a stream leaves us out of step with the framing, so drop the connection
+            key.cancel();
+            connection.close();
+        }
+    }
+
+    /**
+     * Decodes every complete message in the buffer, leaving any partial one in place.
+     *
+     * @return false if a malformed message was found
+     */
+    private boolean decodeAll(ByteBuffer buffer) throws InterruptedException {
+        while (buffer.remaining() >= SensorEventCodec.MESSAGE_BYTES) {
+            if (currentBatch == null && !takeFreeBatch()) {
+                return true;
+            }
+            received.increment();
+            if (!SensorEventCodec.decode(buffer, currentBatch.slot())) {
+                malformed.increment();
+                return false;
+            }
+            if (debouncer != null && !debouncer.accept(currentBatch.slot(), this::isKnown)) {
+                //leave the slot to be overwritten by the next message
+                continue;
+            }
+            currentBatch.commit();
+            if (currentBatch.isFull()) {
+                flush();
+            }
+        }
+        return true;
+    }
+
+    private boolean isKnown(long mostSigBits, long leastSigBits) {
+        return securityService.findSensor(mostSigBits, leastSigBits) != null;
+    }
+
+    /**
+     * Adds a change the debouncer held back and has now released.
+     */
+    private void enqueue(long mostSigBits, long leastSigBits, boolean active) {
+        try {
+            if (currentBatch == null && !takeFreeBatch()) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        SensorEvent event = currentBatch.slot();
+        event.sensorIdMostSigBits = mostSigBits;
+        event.sensorIdLeastSigBits = leastSigBits;
+        event.active = active;
+        currentBatch.commit();
+        if (currentBatch.isFull()) {
+            flush();
+        }
+    }
+
+    /**
+     * Waits for a batch to be recycled, giving up if the gateway is closed meanwhile.
+     *
+     * @return false if closed before a batch came free
+     */
+    private boolean takeFreeBatch() throws InterruptedException {
+        while (running) {
+            currentBatch = freeBatches.poll(SELECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (currentBatch != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flush() {
+        SensorEventBatch batch = currentBatch;
+        if (batch == null || batch.size() == 0) {
+            return;
+        }
+        currentBatch = null;
+        try {
+            securityService.submit(s -> apply(s, batch)).whenComplete((v, ex) -> recycle(batch));
+        } catch (RejectedExecutionException e) {
+            recycle(batch);
+        }
+    }
+
+    private void recycle(SensorEventBatch batch) {
+        batch.clear();
+        freeBatches.add(batch);
+    }
+
+    /**
+     * Runs as a state command, so it is serialized with every other change to the service.
+     */
+    private void apply(SecurityService service, SensorEventBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            SensorEvent event = batch.get(i);
+            Sensor sensor = service.findSensor(event.sensorIdMostSigBits, event.sensorIdLeastSigBits);
+            if (sensor == null) {
+                unknownSensor.increment();
+                continue;
+            }
+            service.changeSensorActivationStatus(sensor, event.active);
+            applied.increment();
+        }
+    }
+
+    private void closeChannels() {
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                //already shutting down, nothing more to do
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            //already shutting down, nothing more to do
+        }
+    }
+}
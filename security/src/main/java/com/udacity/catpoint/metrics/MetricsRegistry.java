@@ -0,0 +1,162 @@
+package com.udacity.catpoint.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, gauges and latency recorders for one process. Look metrics up once when wiring
+ * components together and keep the returned object; updating it is then lock-free and allocation-free.
+ *
+ * The current values can be rendered as text, one {@code name value} line per figure, and published
+ * over JMX as a single MBean with one attribute per line.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter with this name, creating it on first use.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Returns the latency recorder with this name, creating it on first use.
+     */
+    public LatencyRecorder latency(String name) {
+        return latencies.computeIfAbsent(name, n -> new LatencyRecorder());
+    }
+
+    /**
+     * Reports a value owned by another component, such as a queue depth, read whenever metrics are.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Current value of every metric, sorted by name. Latencies are reported in microseconds, as
+     * doubles so sub-microsecond timings don't round down to 0.
+     */
+    public Map<String, Number> snapshot() {
+        Map<String, Number> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        latencies.forEach((name, recorder) -> {
+            values.put(name + ".count", recorder.getCount());
+            values.put(name + ".mean_us", recorder.getMeanNanos() / 1_000.0);
+            values.put(name + ".p50_us", recorder.getValueAtPercentile(50) / 1_000.0);
+            values.put(name + ".p99_us", recorder.getValueAtPercentile(99) / 1_000.0);
+            values.put(name + ".p999_us", recorder.getValueAtPercentile(99.9) / 1_000.0);
+            values.put(name + ".max_us", recorder.getMaxNanos() / 1_000.0);
+        });
+        return values;
+    }
+
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        snapshot().forEach((name, value) -> {
+            text.append(name).append(' ');
+            if (value instanceof Double) {
+                //three places keep nanosecond resolution for the microsecond latencies
+                text.append(String.format(Locale.ROOT, "%.3f", value.doubleValue()));
+            } else {
+                text.append(value);
+            }
+            text.append('\n');
+        });
+        return text.toString();
+    }
+
+    /**
+     * Publishes every metric, including ones added later, as attributes of an MBean on the platform
+     * MBean server.
+     *
+     * @param objectName e.g. {@code com.udacity.catpoint:type=Metrics}
+     * @return the name to pass to {@link #unregisterMBean(ObjectName)}
+     */
+    public ObjectName registerMBean(String objectName) throws JMException {
+        ObjectName name = new ObjectName(objectName);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), name);
+        return name;
+    }
+
+    public void unregisterMBean(ObjectName name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+
+    /**
+     * Read-only view of {@link #snapshot()}. Its attribute list is rebuilt on each request so metrics
+     * registered after the MBean show up too.
+     */
+    private final class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = snapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> values = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Number value = values.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            //the MBean has no operations
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            Map<String, Number> values = snapshot();
+            MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+            int i = 0;
+            for (Map.Entry<String, Number> entry : values.entrySet()) {
+                attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                        entry.getKey(), true, false, false);
+            }
+            return new MBeanInfo(MetricsRegistry.class.getName(), "Catpoint metrics", attributes,
+                    null, null, null);
+        }
+    }
+}
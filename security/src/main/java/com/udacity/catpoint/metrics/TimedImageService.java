@@ -0,0 +1,51 @@
+package com.udacity.catpoint.metrics;
+
+import com.udacity.catpoint.image.ImageService;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records how long another ImageService takes to answer. Wrap the recognizer itself, beneath any
+ * caching, to measure real recognition latency. Asynchronous calls are timed until their result
+ * arrives, and a batch is recorded as a single call so the delegate still sees the whole batch.
+ */
+public class TimedImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final LatencyRecorder latency;
+
+    public TimedImageService(ImageService delegate, LatencyRecorder latency) {
+        this.delegate = delegate;
+        this.latency = latency;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image) {
+        long start = System.nanoTime();
+        try {
+            return delegate.imageContainsCat(image);
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> result = delegate.imageContainsCatAsync(image);
+        result.whenComplete((catDetected, error) -> latency.recordSince(start));
+        return result;
+    }
+
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images) {
+        long start = System.nanoTime();
+        try {
+            return delegate.imagesContainCat(images);
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+}
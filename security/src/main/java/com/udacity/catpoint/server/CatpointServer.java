@@ -0,0 +1,329 @@
+package com.udacity.catpoint.server;
+
+import com.udacity.catpoint.audit.AuditJournal;
+import com.udacity.catpoint.audit.AuditLog;
+import com.udacity.catpoint.camera.CameraStreamPipeline;
+import com.udacity.catpoint.camera.DirectoryFrameSource;
+import com.udacity.catpoint.camera.FrameSource;
+import com.udacity.catpoint.camera.MjpegFrameSource;
+import com.udacity.catpoint.data.AppendOnlyLogSecurityRepositoryImpl;
+import com.udacity.catpoint.image.AsyncImageService;
+import com.udacity.catpoint.image.AwsImageService;
+import com.udacity.catpoint.image.BatchingImageService;
+import com.udacity.catpoint.image.CachingImageService;
+import com.udacity.catpoint.image.FakeImageService;
+import com.udacity.catpoint.image.FrameDifferenceImageService;
+import com.udacity.catpoint.image.ImageService;
+import com.udacity.catpoint.image.LocalImageService;
+import com.udacity.catpoint.image.PreprocessingImageService;
+import com.udacity.catpoint.ingest.SensorIngestionGateway;
+import com.udacity.catpoint.metrics.MetricsRegistry;
+import com.udacity.catpoint.metrics.TimedImageService;
+import com.udacity.catpoint.service.SecurityEventLoop;
+import com.udacity.catpoint.service.SecurityService;
+import com.udacity.catpoint.service.StatusDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the security system without a UI: the repository, the image pipeline, SecurityService on
+ * its event loop, the optional audit journal, sensor ingestion gateway and camera pipeline, and the local
+ * {@link ControlApi}. None of the Swing panels are created, so no AWT or Swing classes are loaded.
+ *
+ * Metrics for every component are served by the control API at /metrics and published over JMX as
+ * {@value #METRICS_MBEAN}. Starting the platform MBean server takes longer than the rest of startup,
+ * so the MBean is registered in the background.
+ */
+public class CatpointServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CatpointServer.class);
+
+    static final String METRICS_MBEAN = "com.udacity.catpoint:type=Metrics";
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final CompletableFuture<ObjectName> metricsMBean;
+
+    private final AppendOnlyLogSecurityRepositoryImpl securityRepository;
+    private final SecurityEventLoop eventLoop;
+    private final AuditJournal auditJournal;
+    private final SecurityService securityService;
+    private final SensorIngestionGateway ingestionGateway;
+    private final CameraStreamPipeline cameraPipeline;
+    private final ControlApi controlApi;
+    //null unless image.batch was set; assigned while the image pipeline is built
+    private BatchingImageService batchingImageService;
+
+    public CatpointServer(ServerConfig config) throws IOException {
+        //what has been started so far, newest first, so a failed start closes it all again
+        Deque<Runnable> opened = new ArrayDeque<>();
+        try {
+            securityRepository = new AppendOnlyLogSecurityRepositoryImpl(config.getRepositoryDirectory());
+            opened.push(securityRepository::close);
+            metrics.gauge("repository.snapshotFailures", securityRepository::getSnapshotFailureCount);
+            eventLoop = new SecurityEventLoop();
+            opened.push(eventLoop::close);
+            metrics.gauge("security.eventLoop.pending", eventLoop::getPendingCount);
+            auditJournal = config.getAuditJournal() == null ? null : new AuditJournal(config.getAuditJournal());
+            if (auditJournal != null) {
+                opened.push(auditJournal::close);
+                metrics.gauge("audit.batches", auditJournal::getBatchCount);
+            }
+            ImageService sharedImageService = createSharedImageService(config);
+            if (batchingImageService != null) {
+                opened.push(batchingImageService::close);
+            }
+            FrameDifferenceImageService frameDifference = new FrameDifferenceImageService(sharedImageService);
+            metrics.gauge("image.frames.analysed", frameDifference::getAnalysedCount);
+            metrics.gauge("image.frames.skipped", frameDifference::getSkippedCount);
+            //preprocess outermost, so differencing, hashing and encoding all see the smaller frame
+            securityService = new SecurityService(securityRepository,
+                    new PreprocessingImageService(config.getFramePreprocessor(), frameDifference), eventLoop,
+                    StatusDispatcher.DIRECT, auditJournal == null ? AuditLog.NONE : auditJournal, metrics);
+            securityService.setDelays(config.getEntryDelay(), config.getExitDelay());
+
+            if (config.getIngestUdpAddress() != null || config.getIngestTcpAddress() != null) {
+                ingestionGateway = new SensorIngestionGateway(securityService,
+                        config.getIngestUdpAddress(), config.getIngestTcpAddress(), config.getIngestDebouncer());
+                opened.push(ingestionGateway::close);
+                metrics.gauge("ingest.received", ingestionGateway::getReceivedCount);
+                metrics.gauge("ingest.malformed", ingestionGateway::getMalformedCount);
+                metrics.gauge("ingest.unknownSensor", ingestionGateway::getUnknownSensorCount);
+                metrics.gauge("ingest.applied", ingestionGateway::getAppliedCount);
+                metrics.gauge("ingest.debounced", ingestionGateway::getDebouncedCount);
+                metrics.gauge("ingest.untracked", ingestionGateway::getUntrackedCount);
+                metrics.gauge("ingest.failedConnections", ingestionGateway::getFailedConnectionCount);
+                metrics.gauge("ingest.failed", () -> ingestionGateway.getFailure() == null ? 0 : 1);
+            } else {
+                ingestionGateway = null;
+            }
+
+            Map<String, String> cameras = config.getCameras();
+            if (!cameras.isEmpty()) {
+                //cameras share the recognizer and cache, but frame differencing only makes sense within one stream
+                cameraPipeline = new CameraStreamPipeline(securityService,
+                        cameraId -> new PreprocessingImageService(config.getFramePreprocessor(cameraId),
+                                new FrameDifferenceImageService(sharedImageService)),
+                        config.getCameraQueueCapacity(), Runtime.getRuntime().availableProcessors(),
+                        config.getCameraStaleAfter());
+                opened.push(cameraPipeline::close);
+                for (Map.Entry<String, String> camera : cameras.entrySet()) {
+                    cameraPipeline.addCamera(camera.getKey(), createFrameSource(camera.getKey(), camera.getValue()));
+                }
+                metrics.gauge("camera.count", cameraPipeline::getCameraCount);
+                metrics.gauge("camera.seeingCat", cameraPipeline::getCamerasSeeingCat);
+                metrics.gauge("camera.frames.processed", cameraPipeline::getProcessedCount);
+                metrics.gauge("camera.frames.failed", cameraPipeline::getFailedCount);
+                metrics.gauge("camera.frames.dropped", cameraPipeline::getDroppedCount);
+                metrics.gauge("camera.verdicts.expired", cameraPipeline::getExpiredCount);
+            } else {
+                cameraPipeline = null;
+            }
+            controlApi = new ControlApi(securityService, metrics, config.getControlAddress());
+            opened.push(controlApi::close);
+            metricsMBean = CompletableFuture.supplyAsync(() -> registerMetrics(metrics), r -> {
+                Thread t = new Thread(r, "catpoint-metrics-jmx");
+                t.setDaemon(true);
+                t.start();
+            });
+        } catch (IOException | RuntimeException e) {
+            while (!opened.isEmpty()) {
+                try {
+                    opened.pop().run();
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    public SecurityService getSecurityService() {
+        return securityService;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public ControlApi getControlApi() {
+        return controlApi;
+    }
+
+    /**
+     * Null unless an ingest address was configured.
+     */
+    public SensorIngestionGateway getIngestionGateway() {
+        return ingestionGateway;
+    }
+
+    /**
+     * Null unless cameras were configured.
+     */
+    public CameraStreamPipeline getCameraPipeline() {
+        return cameraPipeline;
+    }
+
+    /**
+     * Null unless an audit journal was configured.
+     */
+    public AuditJournal getAuditJournal() {
+        return auditJournal;
+    }
+
+    /**
+     * Stops taking requests, lets queued state changes finish and closes the journal and repository.
+     */
+    @Override
+    public void close() {
+        ObjectName mbean = metricsMBean.join();
+        if (mbean != null) {
+            try {
+                metrics.unregisterMBean(mbean);
+            } catch (JMException ignored) {
+                //already gone
+            }
+        }
+        controlApi.close();
+        if (ingestionGateway != null) {
+            ingestionGateway.close();
+        }
+        if (cameraPipeline != null) {
+            cameraPipeline.close();
+        }
+        eventLoop.close();
+        if (batchingImageService != null) {
+            batchingImageService.close();
+        }
+        if (auditJournal != null) {
+            auditJournal.close();
+        }
+        securityRepository.close();
+    }
+
+    /**
+     * Returns null if another server in this JVM has already published its metrics.
+     */
+    private static ObjectName registerMetrics(MetricsRegistry metrics) {
+        try {
+            return metrics.registerMBean(METRICS_MBEAN);
+        } catch (JMException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The recognizer behind a cache, shared by SecurityService and every camera. The fake
+     * recognizer isn't cached.
+     */
+    private ImageService createSharedImageService(ServerConfig config) throws IOException {
+        ImageService recognizer;
+        switch (config.getImageService()) {
+            case "fake":
+                recognizer = new FakeImageService();
+                break;
+            case "local":
+                if (config.getImageModel() == null) {
+                    throw new IllegalArgumentException("image.service=local needs image.model, a model file"
+                            + " written by LinearCatModelTrainer from frames of your own cameras");
+                }
+                recognizer = new LocalImageService(config.getImageModel());
+                break;
+            case "aws":
+                recognizer = new AwsImageService();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown image.service " + config.getImageService());
+        }
+        //time the recognizer itself, so cache hits and skipped frames don't hide how slow it is
+        ImageService timed = new TimedImageService(recognizer, metrics.latency("image.recognition"));
+        Integer inFlight = config.getImageInFlight();
+        ImageService front = config.getImageBatchSize() > 1
+                ? createBatchingImageService(config, timed, inFlight)
+                : createAsyncImageService(config, timed, inFlight);
+        if (recognizer instanceof FakeImageService) {
+            //it guesses, so a cache would only repeat its first guess
+            return front;
+        }
+        CachingImageService cache = new CachingImageService(front);
+        metrics.gauge("image.cache.hits", cache::getHitCount);
+        metrics.gauge("image.cache.misses", cache::getMissCount);
+        metrics.gauge("image.cache.collisions", cache::getCollisionCount);
+        return cache;
+    }
+
+    private AsyncImageService createAsyncImageService(ServerConfig config, ImageService timed, Integer inFlight) {
+        AsyncImageService async;
+        if (config.isVirtualImageThreads()) {
+            async = AsyncImageService.onVirtualThreads(timed,
+                    inFlight == null ? AsyncImageService.DEFAULT_VIRTUAL_IN_FLIGHT : inFlight);
+        } else if (inFlight != null) {
+            async = AsyncImageService.onPlatformThreads(timed, inFlight);
+        } else {
+            async = new AsyncImageService(timed);
+        }
+        metrics.gauge("image.inFlight", async::getInFlightCount);
+        //0 if virtual threads were asked for but the runtime predates them
+        metrics.gauge("image.virtualThreads", () -> async.isVirtual() ? 1 : 0);
+        return async;
+    }
+
+    /**
+     * The batcher queues frames without blocking its callers, so it takes the place of the pool.
+     */
+    private BatchingImageService createBatchingImageService(ServerConfig config, ImageService timed, Integer inFlight) {
+        BatchingImageService batching = new BatchingImageService(timed, config.getImageBatchSize(),
+                config.getImageBatchWindow(), BatchingImageService.DEFAULT_MAX_IN_FLIGHT,
+                inFlight == null ? BatchingImageService.DEFAULT_QUEUE_CAPACITY : inFlight);
+        metrics.gauge("image.batch.windowMicros", () -> batching.getCurrentWindow().toNanos() / 1_000);
+        batchingImageService = batching;
+        return batching;
+    }
+
+    /**
+     * @param spec dir:&lt;directory&gt;, mjpeg:&lt;file&gt; or tcp:&lt;host&gt;:&lt;port&gt;
+     */
+    private static FrameSource createFrameSource(String cameraId, String spec) throws IOException {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? "" : spec.substring(0, colon);
+        String target = spec.substring(colon + 1);
+        switch (kind) {
+            case "dir":
+                return new DirectoryFrameSource(Paths.get(target));
+            case "mjpeg":
+                return MjpegFrameSource.file(Paths.get(target), Duration.ZERO);
+            case "tcp":
+                int port = target.lastIndexOf(':');
+                if (port < 0) {
+                    throw new IllegalArgumentException("camera." + cameraId + " must be tcp:host:port, was " + spec);
+                }
+                return MjpegFrameSource.socket(new InetSocketAddress(target.substring(0, port),
+                        Integer.parseInt(target.substring(port + 1))));
+            default:
+                throw new IllegalArgumentException("camera." + cameraId + " must start with dir:, mjpeg: or tcp:");
+        }
+    }
+
+    /**
+     * @param args Optional path to the config file, defaulting to catpoint.properties
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        long start = System.nanoTime();
+        ServerConfig config = ServerConfig.load(Paths.get(args.length > 0 ? args[0] : "catpoint.properties"));
+        CatpointServer server = new CatpointServer(config);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "catpoint-shutdown"));
+        log.info("Catpoint server started in {} ms, control API on {}",
+                (System.nanoTime() - start) / 1_000_000, server.getControlApi().getAddress());
+    }
+}
@@ -0,0 +1,242 @@
+package com.udacity.catpoint.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.metrics.MetricsRegistry;
+import com.udacity.catpoint.service.SecurityService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Small plain-text HTTP API for operating a headless server from the same machine:
+ * <pre>
+ *   GET  /status           arming status, alarm status and sensor counts
+ *   GET  /sensors          one line per sensor: id, active, type, name
+ *   POST /sensors          body is a SensorType name, a space and the sensor's name; responds with the new id
+ *   POST /arming           body is an ArmingStatus name
+ *   POST /sensors/{id}     body is true or false
+ *   DELETE /sensors/{id}   removes the sensor
+ *   GET  /metrics          one line per metric: name, value
+ * </pre>
+ * Changes go through {@link SecurityService#submit} and the response is sent once they've been applied.
+ */
+public class ControlApi implements AutoCloseable {
+
+    private final SecurityService securityService;
+    private final MetricsRegistry metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public ControlApi(SecurityService securityService, InetSocketAddress address) throws IOException {
+        this(securityService, new MetricsRegistry(), address);
+    }
+
+    /**
+     * @param metrics Registry served at /metrics
+     */
+    public ControlApi(SecurityService securityService, MetricsRegistry metrics, InetSocketAddress address)
+            throws IOException {
+        this.securityService = securityService;
+        this.metrics = metrics;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "catpoint-control-api");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/status", this::handleStatus);
+        server.createContext("/sensors", this::handleSensors);
+        server.createContext("/arming", this::handleArming);
+        server.createContext("/metrics", this::handleMetrics);
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) return;
+        StringBuilder body = new StringBuilder();
+        //read everything in one command so the values are consistent with each other
+        boolean read = apply(exchange, s -> body
+                .append("arming=").append(s.getArmingStatus()).append('\n')
+                .append("alarm=").append(s.getAlarmStatus()).append('\n')
+                .append("sensors=").append(s.getSensors().size()).append('\n')
+                .append("activeSensors=").append(s.getActiveSensorCount()).append('\n'));
+        if (read) {
+            respond(exchange, 200, body.toString());
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) return;
+        respond(exchange, 200, metrics.toText());
+    }
+
+    private void handleSensors(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/sensors") || path.equals("/sensors/")) {
+            if (!requireMethod(exchange, "GET", "POST")) return;
+            if (exchange.getRequestMethod().equals("POST")) {
+                addSensor(exchange);
+                return;
+            }
+            //copy on the state executor, since the repository's set isn't safe to iterate concurrently
+            List<Sensor> sensors = new ArrayList<>();
+            if (!apply(exchange, s -> sensors.addAll(s.getSensors()))) return;
+            StringBuilder body = new StringBuilder();
+            for (Sensor sensor : sensors) {
+                body.append(sensor.getSensorId()).append(' ')
+                        .append(sensor.getActive()).append(' ')
+                        .append(sensor.getSensorType()).append(' ')
+                        .append(sensor.getName()).append('\n');
+            }
+            respond(exchange, 200, body.toString());
+            return;
+        }
+
+        if (!requireMethod(exchange, "POST", "DELETE")) return;
+        UUID id;
+        try {
+            id = UUID.fromString(path.substring("/sensors/".length()));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "Invalid sensor id\n");
+            return;
+        }
+        if (exchange.getRequestMethod().equals("DELETE")) {
+            removeSensor(exchange, id);
+            return;
+        }
+        String value = readBody(exchange);
+        if (!value.equals("true") && !value.equals("false")) {
+            respond(exchange, 400, "Body must be true or false\n");
+            return;
+        }
+        boolean active = Boolean.parseBoolean(value);
+        boolean[] found = new boolean[1];
+        boolean applied = apply(exchange, s -> {
+            Sensor sensor = s.findSensor(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (sensor != null) {
+                found[0] = true;
+                s.changeSensorActivationStatus(sensor, active);
+            }
+        });
+        if (!applied) return;
+        respond(exchange, found[0] ? 204 : 404, found[0] ? "" : "Unknown sensor\n");
+    }
+
+    private void addSensor(HttpExchange exchange) throws IOException {
+        String body = readBody(exchange);
+        int space = body.indexOf(' ');
+        SensorType type;
+        try {
+            type = SensorType.valueOf(space < 0 ? body : body.substring(0, space));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "Body must start with one of DOOR, WINDOW, MOTION\n");
+            return;
+        }
+        String name = space < 0 ? "" : body.substring(space + 1).trim();
+        if (name.isEmpty()) {
+            respond(exchange, 400, "Body must name the sensor after its type\n");
+            return;
+        }
+        Sensor sensor = new Sensor(name, type);
+        if (apply(exchange, s -> s.addSensor(sensor))) {
+            respond(exchange, 201, sensor.getSensorId() + "\n");
+        }
+    }
+
+    private void removeSensor(HttpExchange exchange, UUID id) throws IOException {
+        boolean[] found = new boolean[1];
+        boolean applied = apply(exchange, s -> {
+            Sensor sensor = s.findSensor(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (sensor != null) {
+                found[0] = true;
+                s.removeSensor(sensor);
+            }
+        });
+        if (!applied) return;
+        respond(exchange, found[0] ? 204 : 404, found[0] ? "" : "Unknown sensor\n");
+    }
+
+    private void handleArming(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) return;
+        ArmingStatus status;
+        try {
+            status = ArmingStatus.valueOf(readBody(exchange));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "Body must be one of DISARMED, ARMED_HOME, ARMED_AWAY\n");
+            return;
+        }
+        if (apply(exchange, s -> s.setArmingStatus(status))) {
+            respond(exchange, 204, "");
+        }
+    }
+
+    /**
+     * Runs the command on the service's state executor and waits for it, so the client sees the result.
+     *
+     * @return false if the change failed, in which case an error has already been sent; a command
+     * rejecting its arguments, such as a sensor name too long to store, is the client's error
+     */
+    private boolean apply(HttpExchange exchange, Consumer<SecurityService> command) throws IOException {
+        try {
+            securityService.submit(command).get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "Interrupted\n");
+        } catch (ExecutionException e) {
+            boolean rejected = e.getCause() instanceof IllegalArgumentException;
+            respond(exchange, rejected ? 400 : 500, (rejected ? e.getCause().getMessage() : e.getCause()) + "\n");
+        }
+        return false;
+    }
+
+    private static boolean requireMethod(HttpExchange exchange, String... methods) throws IOException {
+        if (Arrays.asList(methods).contains(exchange.getRequestMethod())) {
+            return true;
+        }
+        exchange.getResponseHeaders().add("Allow", String.join(", ", methods));
+        respond(exchange, 405, "Use " + String.join(" or ", methods) + "\n");
+        return false;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.udacity.catpoint.server;
+
+import com.udacity.catpoint.camera.CameraStreamPipeline;
+import com.udacity.catpoint.data.AppendOnlyLogSecurityRepositoryImpl;
+import com.udacity.catpoint.image.BatchingImageService;
+import com.udacity.catpoint.image.FramePreprocessor;
+import com.udacity.catpoint.ingest.SensorDebouncer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for the headless server, read from a properties file. Every key is optional:
+ * <pre>
+ *   repository.dir   directory for the append-only sensor log (default ~/.catpoint/wal)
+ *   alarm.entryDelay ms a pending alarm waits before escalating to an alarm on its own (default 0, off)
+ *   alarm.exitDelay  ms after arming during which activated sensors are ignored (default 0, off)
+ *   image.service    fake, local or aws (default fake)
+ *   image.model      model file for the local image service, required by it (see LinearCatModelTrainer)
+ *   image.threads    platform, a fixed pool; or virtual, one virtual thread per frame on Java 21 (default platform)
+ *   image.inFlight   frames being recognised or waiting at once (default 32 plus one per processor, 1024 when virtual)
+ *   image.batch      most frames sent to the recognizer in one request, worth raising for aws (default 1, off);
+ *                    batching replaces the image.threads pool, and image.inFlight then bounds the frames waiting
+ *   image.batch.window  longest ms to wait for a batch to fill (default 20)
+ *   image.width      widest frame sent for recognition, larger ones are scaled down (default 640)
+ *   image.height     tallest frame sent for recognition (default 480)
+ *   image.regions    regions of interest as x,y,w,h fractions of the frame, separated by ';' (default whole frame)
+ *   ingest.udp       host:port to receive sensor datagrams on (default off)
+ *   ingest.tcp       host:port to accept sensor connections on (default off)
+ *   ingest.debounce.active    ms a sensor must stay active before a deactivation is passed on (default 0)
+ *   ingest.debounce.inactive  ms a sensor must stay inactive before an activation is passed on (default 0)
+ *   ingest.debounce.repeat    ms repeats of a sensor's current state are dropped for (default 0)
+ *   control.port     loopback port for the control API (default 7080, 0 picks a free port)
+ *   audit.journal    file to journal every state transition to (default off)
+ *   camera.&lt;id&gt;      a camera feed: dir:&lt;directory&gt;, mjpeg:&lt;file&gt; or tcp:&lt;host&gt;:&lt;port&gt;
+ *   camera.&lt;id&gt;.regions  regions of interest for one camera, overriding image.regions
+ *   camera.queue     frames each camera may have waiting before its oldest is dropped (default 4)
+ *   camera.stale     ms a camera's cat verdict lasts without another frame being analysed (default 30000)
+ * </pre>
+ */
+public class ServerConfig {
+
+    private final Properties props;
+
+    public ServerConfig(Properties props) {
+        this.props = props;
+    }
+
+    /**
+     * Loads the file if it exists; a missing file just means every setting takes its default.
+     */
+    public static ServerConfig load(Path file) {
+        Properties props = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream is = Files.newInputStream(file)) {
+                props.load(is);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read server config " + file, e);
+            }
+        }
+        return new ServerConfig(props);
+    }
+
+    public Path getRepositoryDirectory() {
+        String dir = props.getProperty("repository.dir");
+        if (dir == null) {
+            return AppendOnlyLogSecurityRepositoryImpl.defaultDirectory();
+        }
+        return expandHome(dir.trim());
+    }
+
+    public Duration getEntryDelay() {
+        return Duration.ofMillis(millis(props.getProperty("alarm.entryDelay")));
+    }
+
+    public Duration getExitDelay() {
+        return Duration.ofMillis(millis(props.getProperty("alarm.exitDelay")));
+    }
+
+    /**
+     * Null unless a journal file was configured.
+     */
+    public Path getAuditJournal() {
+        String file = props.getProperty("audit.journal");
+        if (file == null || file.trim().isEmpty()) {
+            return null;
+        }
+        return expandHome(file.trim());
+    }
+
+    /**
+     * Camera id to feed, for every camera.&lt;id&gt; key, sorted by id.
+     */
+    public Map<String, String> getCameras() {
+        Map<String, String> cameras = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            String id = key.startsWith("camera.") ? key.substring("camera.".length()) : "";
+            if (!id.isEmpty() && !id.equals("queue") && !id.equals("stale") && id.indexOf('.') < 0) {
+                cameras.put(id, props.getProperty(key).trim());
+            }
+        }
+        return cameras;
+    }
+
+    public int getCameraQueueCapacity() {
+        return Integer.parseInt(props.getProperty("camera.queue",
+                String.valueOf(CameraStreamPipeline.DEFAULT_QUEUE_CAPACITY)).trim());
+    }
+
+    public Duration getCameraStaleAfter() {
+        String stale = props.getProperty("camera.stale");
+        return stale == null ? CameraStreamPipeline.DEFAULT_STALE_AFTER : Duration.ofMillis(Long.parseLong(stale.trim()));
+    }
+
+    /**
+     * Preprocessing for frames from the UI or SecurityService callers.
+     */
+    public FramePreprocessor getFramePreprocessor() {
+        return framePreprocessor(props.getProperty("image.regions"));
+    }
+
+    /**
+     * Preprocessing for one camera's frames, using its own regions of interest if it has any.
+     */
+    public FramePreprocessor getFramePreprocessor(String cameraId) {
+        return framePreprocessor(props.getProperty("camera." + cameraId + ".regions", props.getProperty("image.regions")));
+    }
+
+    public String getImageService() {
+        return props.getProperty("image.service", "fake").trim();
+    }
+
+    /**
+     * True if recognition should run on virtual threads.
+     */
+    public boolean isVirtualImageThreads() {
+        String threads = props.getProperty("image.threads", "platform").trim();
+        if (!threads.equals("platform") && !threads.equals("virtual")) {
+            throw new IllegalArgumentException("image.threads must be platform or virtual, was " + threads);
+        }
+        return threads.equals("virtual");
+    }
+
+    /**
+     * Null unless image.inFlight was set.
+     */
+    public Integer getImageInFlight() {
+        String inFlight = props.getProperty("image.inFlight");
+        return inFlight == null ? null : Integer.valueOf(inFlight.trim());
+    }
+
+    /**
+     * 1, meaning no batching, unless image.batch was set.
+     */
+    public int getImageBatchSize() {
+        return Integer.parseInt(props.getProperty("image.batch", "1").trim());
+    }
+
+    public Duration getImageBatchWindow() {
+        String window = props.getProperty("image.batch.window");
+        return window == null ? BatchingImageService.DEFAULT_MAX_WINDOW : Duration.ofMillis(Long.parseLong(window.trim()));
+    }
+
+    /**
+     * Null when unset, which the local image service refuses.
+     */
+    public Path getImageModel() {
+        String model = props.getProperty("image.model");
+        return model == null ? null : Paths.get(model.trim());
+    }
+
+    public InetSocketAddress getIngestUdpAddress() {
+        return address("ingest.udp");
+    }
+
+    public InetSocketAddress getIngestTcpAddress() {
+        return address("ingest.tcp");
+    }
+
+    /**
+     * Null unless at least one ingest.debounce key was set.
+     */
+    public SensorDebouncer getIngestDebouncer() {
+        String active = props.getProperty("ingest.debounce.active");
+        String inactive = props.getProperty("ingest.debounce.inactive");
+        String repeat = props.getProperty("ingest.debounce.repeat");
+        if (active == null && inactive == null && repeat == null) {
+            return null;
+        }
+        return new SensorDebouncer(millis(active), millis(inactive), millis(repeat), TimeUnit.MILLISECONDS,
+                SensorDebouncer.DEFAULT_MAX_SENSORS);
+    }
+
+    public InetSocketAddress getControlAddress() {
+        int port = Integer.parseInt(props.getProperty("control.port", "7080").trim());
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private FramePreprocessor framePreprocessor(String regions) {
+        int width = Integer.parseInt(props.getProperty("image.width",
+                String.valueOf(FramePreprocessor.DEFAULT_MAX_WIDTH)).trim());
+        int height = Integer.parseInt(props.getProperty("image.height",
+                String.valueOf(FramePreprocessor.DEFAULT_MAX_HEIGHT)).trim());
+        return new FramePreprocessor(width, height, parseRegions(regions));
+    }
+
+    /**
+     * @param value x,y,w,h fractions per region, separated by ';'
+     */
+    static List<FramePreprocessor.Region> parseRegions(String value) {
+        List<FramePreprocessor.Region> regions = new ArrayList<>();
+        if (value == null) {
+            return regions;
+        }
+        for (String region : value.split(";")) {
+            if (region.trim().isEmpty()) {
+                continue;
+            }
+            String[] parts = region.split(",");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Region of interest must be x,y,w,h, was " + region.trim());
+            }
+            regions.add(new FramePreprocessor.Region(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+                    Double.parseDouble(parts[2].trim()), Double.parseDouble(parts[3].trim())));
+        }
+        return regions;
+    }
+
+    private static long millis(String value) {
+        return value == null ? 0 : Long.parseLong(value.trim());
+    }
+
+    private static Path expandHome(String path) {
+        return path.startsWith("~")
+                ? Paths.get(System.getProperty("user.home"), path.substring(1))
+                : Paths.get(path);
+    }
+
+    private InetSocketAddress address(String key) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        value = value.trim();
+        int colon = value.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException(key + " must be host:port, was " + value);
+        }
+        return new InetSocketAddress(value.substring(0, colon), Integer.parseInt(value.substring(colon + 1)));
+    }
+}
@@ -0,0 +1,60 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+
+/**
+ * The alarm state machine as pure functions, shared by SecurityService and the multi-tenant
+ * engine so both follow the same rules. Each returns the alarm status to set, or null if no
+ * rule applies and the alarm should be left alone.
+ */
+final class AlarmRules {
+
+    private AlarmRules() {
+    }
+
+    /**
+     * Disarming always clears the alarm; arming at home with a cat in view raises it immediately.
+     */
+    static AlarmStatus onArmingChanged(ArmingStatus arming, boolean catDetected) {
+        if (arming == ArmingStatus.DISARMED) {
+            return AlarmStatus.NO_ALARM;
+        }
+        if (arming == ArmingStatus.ARMED_HOME && catDetected) {
+            return AlarmStatus.ALARM;
+        }
+        return null;
+    }
+
+    /**
+     * Sensors can't be changed while the alarm is sounding.
+     */
+    static boolean sensorChangesBlocked(AlarmStatus alarm) {
+        return alarm == AlarmStatus.ALARM;
+    }
+
+    static AlarmStatus onSensorChanged(boolean active, AlarmStatus alarm, ArmingStatus arming,
+                                       boolean anySensorActive) {
+        if (active) {
+            if (arming != ArmingStatus.DISARMED) {
+                if (alarm == AlarmStatus.NO_ALARM) {
+                    return AlarmStatus.PENDING_ALARM;
+                } else if (alarm == AlarmStatus.PENDING_ALARM) {
+                    return AlarmStatus.ALARM;
+                }
+            }
+        } else if (alarm == AlarmStatus.PENDING_ALARM && !anySensorActive) {
+            return AlarmStatus.NO_ALARM;
+        }
+        return null;
+    }
+
+    static AlarmStatus onCatDetection(boolean catDetected, ArmingStatus arming, boolean anySensorActive) {
+        if (catDetected && arming == ArmingStatus.ARMED_HOME) {
+            return AlarmStatus.ALARM;
+        } else if (!catDetected && !anySensorActive) {
+            return AlarmStatus.NO_ALARM;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,248 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.application.StatusListener;
+import com.udacity.catpoint.data.AlarmStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.SwingUtilities;
+import java.awt.Component;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers StatusListener notifications asynchronously, so a slow listener never adds latency to
+ * sensor handling. Each listener gets its own mailbox holding at most one pending notification
+ * of each kind; a newer notification replaces one that hasn't been delivered yet, so a burst of
+ * alarm changes collapses to the latest state.
+ *
+ * Swing components are always called on the event dispatch thread, with every ready mailbox
+ * drained in a single EDT task. Other listeners are called on a small worker pool, one
+ * notification at a time per listener. A listener that throws is logged and keeps receiving
+ * later notifications, as do the listeners drained after it.
+ */
+public class CoalescingStatusDispatcher implements StatusDispatcher, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CoalescingStatusDispatcher.class);
+
+    private static final int NO_CAT_UPDATE = -1;
+
+    private final ExecutorService workers;
+    private final Map<StatusListener, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Queue<Mailbox> edtReady = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean edtDrainScheduled = new AtomicBoolean();
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public CoalescingStatusDispatcher() {
+        this(2);
+    }
+
+    /**
+     * @param workerThreads Threads used to call listeners that aren't Swing components
+     */
+    public CoalescingStatusDispatcher(int workerThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread t = new Thread(r, "catpoint-status-dispatch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public StatusListener decorate(StatusListener listener) {
+        return mailboxes.computeIfAbsent(listener, l -> new Mailbox(l, l instanceof Component));
+    }
+
+    @Override
+    public void release(StatusListener listener) {
+        Mailbox mailbox = mailboxes.remove(listener);
+        if (mailbox != null) {
+            mailbox.release();
+        }
+    }
+
+    /**
+     * Notifications waiting to be delivered, across all listeners.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            depth += mailbox.depth();
+        }
+        return depth;
+    }
+
+    /**
+     * Notifications waiting to be delivered to one listener; never more than three.
+     */
+    public int getQueueDepth(StatusListener listener) {
+        Mailbox mailbox = mailboxes.get(listener);
+        return mailbox == null ? 0 : mailbox.depth();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * Notifications replaced by a newer one before they could be delivered.
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Notifications whose listener threw.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Stops the worker pool. Notifications for non-Swing listeners posted afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    private void drainEdt() {
+        edtDrainScheduled.set(false);
+        Mailbox mailbox;
+        while ((mailbox = edtReady.poll()) != null) {
+            mailbox.run();
+        }
+    }
+
+    /**
+     * Pending notifications for one listener. Posting sets a slot and schedules the mailbox unless
+     * it is already scheduled; delivery empties the slots, then checks again after unscheduling so
+     * a notification posted mid-delivery is never stranded.
+     */
+    private final class Mailbox implements StatusListener, Runnable {
+        private final StatusListener target;
+        private final boolean swing;
+
+        private final AtomicReference<AlarmStatus> pendingAlarm = new AtomicReference<>();
+        private final AtomicInteger pendingCat = new AtomicInteger(NO_CAT_UPDATE);
+        private final AtomicBoolean pendingSensorChange = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean released;
+
+        Mailbox(StatusListener target, boolean swing) {
+            this.target = target;
+            this.swing = swing;
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+            if (pendingAlarm.getAndSet(status) != null) {
+                coalesced.increment();
+            }
+            schedule();
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            if (pendingCat.getAndSet(catDetected ? 1 : 0) != NO_CAT_UPDATE) {
+                coalesced.increment();
+            }
+            schedule();
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            if (pendingSensorChange.getAndSet(true)) {
+                coalesced.increment();
+            }
+            schedule();
+        }
+
+        @Override
+        public void run() {
+            if (released) {
+                return;
+            }
+            try {
+                int cat = pendingCat.getAndSet(NO_CAT_UPDATE);
+                if (cat != NO_CAT_UPDATE) {
+                    deliver(() -> target.catDetected(cat == 1));
+                }
+                AlarmStatus alarm = pendingAlarm.getAndSet(null);
+                if (alarm != null) {
+                    deliver(() -> target.notify(alarm));
+                }
+                if (pendingSensorChange.getAndSet(false)) {
+                    deliver(target::sensorStatusChanged);
+                }
+            } finally {
+                scheduled.set(false);
+                if (depth() > 0) {
+                    schedule();
+                }
+            }
+        }
+
+        private void deliver(Runnable call) {
+            try {
+                call.run();
+                delivered.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Status listener {} failed", target, e);
+            }
+        }
+
+        /**
+         * Drops pending notifications and ignores later ones, which a dispatch that started
+         * before the listener was removed may still post.
+         */
+        void release() {
+            released = true;
+            pendingAlarm.set(null);
+            pendingCat.set(NO_CAT_UPDATE);
+            pendingSensorChange.set(false);
+        }
+
+        int depth() {
+            return (pendingAlarm.get() != null ? 1 : 0)
+                    + (pendingCat.get() != NO_CAT_UPDATE ? 1 : 0)
+                    + (pendingSensorChange.get() ? 1 : 0);
+        }
+
+        private void schedule() {
+            if (released || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            if (swing) {
+                edtReady.add(this);
+                if (edtDrainScheduled.compareAndSet(false, true)) {
+                    SwingUtilities.invokeLater(CoalescingStatusDispatcher.this::drainEdt);
+                }
+            } else if (workers.isShutdown()) {
+                //closed; nobody is left to deliver to
+                scheduled.set(false);
+            } else {
+                try {
+                    workers.execute(this);
+                } catch (RejectedExecutionException e) {
+                    //closed since the check above
+                    scheduled.set(false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Hosts many independent homes in one process. Each home follows the same rules as a
+ * SecurityService, but its state is a compact {@link TenantState} rather than a repository of
+ * Sensor objects, so a single node can hold tens of thousands of them.
+ *
+ * Tenants are spread across a fixed set of {@link SecurityEventLoop} workers by tenant id. Every
+ * operation on a tenant runs on its worker, so a home's changes are applied one at a time in
+ * submission order while different homes proceed in parallel, all without locks.
+ *
+ * Each worker also owns a {@link TimingWheel} for the entry and exit delays of its tenants. A
+ * single ticker thread asks every worker to advance its wheel once per tick, so millions of
+ * pending delays cost no threads and each delay is enforced within one tick.
+ * - The exit delay starts when a home is armed. Sensors that activate during it don't raise the
+ *   alarm, so the occupants can leave.
+ * - The entry delay starts when a sensor moves a home to PENDING_ALARM. If the alarm is still
+ *   pending when it ends, the alarm escalates to ALARM.
+ * Both delays default to zero, which turns them off.
+ *
+ * State is kept in memory only; persisting it is up to the caller, e.g. from the alarm listener.
+ */
+public class MultiTenantSecurityEngine implements AutoCloseable {
+
+    private final SecurityEventLoop[] workers;
+    //tenants[i] is only touched on workers[i]
+    private final TenantTable[] tenants;
+    //wheels[i] and advanceWheel[i] likewise belong to workers[i]
+    private final TimingWheel[] wheels;
+    private final Runnable[] advanceWheel;
+    private final TenantAlarmListener alarmListener;
+    private final AtomicInteger tenantCount = new AtomicInteger();
+    private final long tickNanos;
+    private final Thread ticker;
+    private volatile boolean running = true;
+
+    public MultiTenantSecurityEngine(TenantAlarmListener alarmListener) {
+        this(Runtime.getRuntime().availableProcessors(), alarmListener);
+    }
+
+    /**
+     * @param workerCount Number of worker threads tenants are partitioned across
+     * @param alarmListener Told about every alarm status a tenant sets
+     */
+    public MultiTenantSecurityEngine(int workerCount, TenantAlarmListener alarmListener) {
+        this(workerCount, Duration.ofMillis(10), alarmListener);
+    }
+
+    /**
+     * @param workerCount Number of worker threads tenants are partitioned across
+     * @param tick Resolution of entry and exit delays
+     * @param alarmListener Told about every alarm status a tenant sets
+     */
+    public MultiTenantSecurityEngine(int workerCount, Duration tick, TenantAlarmListener alarmListener) {
+        this.workers = new SecurityEventLoop[workerCount];
+        this.tenants = new TenantTable[workerCount];
+        this.wheels = new TimingWheel[workerCount];
+        this.advanceWheel = new Runnable[workerCount];
+        this.tickNanos = tick.toNanos();
+        long now = System.nanoTime();
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new SecurityEventLoop();
+            tenants[i] = new TenantTable();
+            TimingWheel wheel = new TimingWheel(tickNanos, now);
+            wheels[i] = wheel;
+            advanceWheel[i] = () -> wheel.advance(System.nanoTime());
+        }
+        this.alarmListener = alarmListener;
+        this.ticker = new Thread(this::tick, "catpoint-tenant-timer");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Starts hosting a home, disarmed and with no sensors.
+     *
+     * @return future completing with false if the tenant already existed
+     */
+    public CompletableFuture<Boolean> addTenant(long tenantId) {
+        int worker = workerFor(tenantId);
+        return CompletableFuture.supplyAsync(() -> {
+            boolean added = tenants[worker].put(new TenantState(tenantId));
+            if (added) {
+                tenantCount.incrementAndGet();
+            }
+            return added;
+        }, workers[worker]);
+    }
+
+    /**
+     * @return future completing with false if the tenant didn't exist
+     */
+    public CompletableFuture<Boolean> removeTenant(long tenantId) {
+        int worker = workerFor(tenantId);
+        return CompletableFuture.supplyAsync(() -> {
+            TenantState state = tenants[worker].get(tenantId);
+            if (state == null) {
+                return false;
+            }
+            state.cancelEntryDelay();
+            state.cancelExitDelay();
+            tenants[worker].remove(tenantId);
+            tenantCount.decrementAndGet();
+            return true;
+        }, workers[worker]);
+    }
+
+    public int getTenantCount() {
+        return tenantCount.get();
+    }
+
+    /**
+     * Sets how long a home waits before escalating a pending alarm, and how long after arming it
+     * ignores sensors. Takes effect from the next time each delay starts.
+     */
+    public CompletableFuture<Void> setDelays(long tenantId, Duration entryDelay, Duration exitDelay) {
+        return onTenant(tenantId, state -> {
+            state.setEntryDelayMillis((int) Math.min(Integer.MAX_VALUE, entryDelay.toMillis()));
+            state.setExitDelayMillis((int) Math.min(Integer.MAX_VALUE, exitDelay.toMillis()));
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> addSensor(long tenantId, UUID sensorId) {
+        return onTenant(tenantId, state -> {
+            state.addSensor(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> removeSensor(long tenantId, UUID sensorId) {
+        return onTenant(tenantId, state -> {
+            state.removeSensor(requireSensor(state, sensorId));
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> setArmingStatus(long tenantId, ArmingStatus armingStatus) {
+        return onTenant(tenantId, state -> {
+            state.cancelExitDelay();
+            if (armingStatus != ArmingStatus.DISARMED) {
+                state.deactivateAllSensors();
+            }
+            AlarmStatus next = AlarmRules.onArmingChanged(armingStatus, state.isCatDetected());
+            if (next != null) {
+                setAlarmStatus(state, next);
+            }
+            state.setArmingStatus(armingStatus);
+            if (armingStatus != ArmingStatus.DISARMED && state.getExitDelayMillis() > 0) {
+                state.setExitDelay(wheelFor(state).schedule(
+                        state.getExitDelayMillis() * 1_000_000L, state::exitDelayEnded));
+            }
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> changeSensorActivationStatus(long tenantId, UUID sensorId, boolean active) {
+        return onTenant(tenantId, state -> {
+            int slot = requireSensor(state, sensorId);
+            if (AlarmRules.sensorChangesBlocked(state.getAlarmStatus())) {
+                return null;
+            }
+            state.setActive(slot, active);
+            if (active && state.inExitDelay()) {
+                //the occupants are on their way out
+                return null;
+            }
+            AlarmStatus next = AlarmRules.onSensorChanged(active, state.getAlarmStatus(), state.getArmingStatus(),
+                    state.getActiveCount() > 0);
+            if (next != null) {
+                setAlarmStatus(state, next);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Applies the verdict of an image scan for the home's camera.
+     */
+    public CompletableFuture<Void> processCatDetection(long tenantId, boolean catDetected) {
+        return onTenant(tenantId, state -> {
+            state.setCatDetected(catDetected);
+            AlarmStatus next = AlarmRules.onCatDetection(catDetected, state.getArmingStatus(),
+                    state.getActiveCount() > 0);
+            if (next != null) {
+                setAlarmStatus(state, next);
+            }
+            return null;
+        });
+    }
+
+    public CompletableFuture<AlarmStatus> getAlarmStatus(long tenantId) {
+        return onTenant(tenantId, TenantState::getAlarmStatus);
+    }
+
+    public CompletableFuture<ArmingStatus> getArmingStatus(long tenantId) {
+        return onTenant(tenantId, TenantState::getArmingStatus);
+    }
+
+    /**
+     * Stops the ticker, then every worker after it has finished the operations already queued.
+     * Delays still pending are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SecurityEventLoop worker : workers) {
+            worker.close();
+        }
+    }
+
+    private void tick() {
+        long next = System.nanoTime() + tickNanos;
+        while (running) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            long now = System.nanoTime();
+            if (now < next) {
+                continue;
+            }
+            //if we fell behind, the wheels catch up on their own; don't fire a burst of ticks
+            next += tickNanos;
+            if (next <= now) {
+                next = now + tickNanos;
+            }
+            for (int i = 0; i < workers.length; i++) {
+                try {
+                    workers[i].execute(advanceWheel[i]);
+                } catch (RejectedExecutionException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private TimingWheel wheelFor(TenantState state) {
+        return wheels[workerFor(state.tenantId)];
+    }
+
+    /**
+     * Runs the action on the tenant's worker. The future fails with IllegalArgumentException if the
+     * tenant doesn't exist.
+     */
+    private <T> CompletableFuture<T> onTenant(long tenantId, Function<TenantState, T> action) {
+        int worker = workerFor(tenantId);
+        return CompletableFuture.supplyAsync(() -> {
+            TenantState state = tenants[worker].get(tenantId);
+            if (state == null) {
+                throw new IllegalArgumentException("Unknown tenant " + tenantId);
+            }
+            return action.apply(state);
+        }, workers[worker]);
+    }
+
+    private int workerFor(long tenantId) {
+        long h = tenantId * 0xC2B2AE3D27D4EB4FL;
+        return (int) (((h ^ (h >>> 31)) >>> 1) % workers.length);
+    }
+
+    private static int requireSensor(TenantState state, UUID sensorId) {
+        int slot = state.findSensor(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown sensor " + sensorId + " for tenant " + state.tenantId);
+        }
+        return slot;
+    }
+
+    private void setAlarmStatus(TenantState state, AlarmStatus status) {
+        state.setAlarmStatus(status);
+        if (status != AlarmStatus.PENDING_ALARM) {
+            state.cancelEntryDelay();
+        } else if (state.getEntryDelayMillis() > 0 && !state.inEntryDelay()) {
+            state.setEntryDelay(wheelFor(state).schedule(state.getEntryDelayMillis() * 1_000_000L,
+                    () -> entryDelayEnded(state)));
+        }
+        alarmListener.alarmStatusChanged(state.tenantId, status);
+    }
+
+    private void entryDelayEnded(TenantState state) {
+        state.setEntryDelay(null);
+        if (state.getAlarmStatus() == AlarmStatus.PENDING_ALARM) {
+            setAlarmStatus(state, AlarmStatus.ALARM);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.udacity.catpoint.service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer event loop for security state. Any number of threads (sensors, cameras, the UI)
+ * hand it commands, and one dedicated thread runs them one at a time in the order they were
+ * submitted, so state transitions never interleave and no locks are needed around them.
+ *
+ * Commands travel through a fixed-size ring buffer. Producers claim a slot with a single atomic
+ * increment and publish by filling it; the loop thread empties slots in sequence. Producers only
+ * wait when the ring is full, and the loop thread parks when it is empty.
+ */
+public class SecurityEventLoop implements Executor, AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long PRODUCER_PARK_NANOS = 10_000;
+    private static final int SPINS_BEFORE_PARK = 100;
+    //fills a slot claimed by a producer that was then rejected, so the loop doesn't wait on it
+    private static final Runnable REJECTED = () -> { };
+
+    private final AtomicReferenceArray<Runnable> slots;
+    private final int mask;
+    //next sequence a producer may claim
+    private final AtomicLong claimSequence = new AtomicLong();
+    //every slot before this sequence has been run and emptied
+    private volatile long consumedSequence;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+    private final Thread thread;
+
+    public SecurityEventLoop() {
+        this(1024);
+    }
+
+    /**
+     * @param capacity Number of commands that may be waiting; rounded up to a power of two
+     */
+    public SecurityEventLoop(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.thread = new Thread(this::run, "catpoint-security-loop");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a command behind everything submitted before it. Commands submitted from the loop
+     * thread itself run immediately, since they are already serialized with all other state changes.
+     *
+     * @throws RejectedExecutionException if the loop has been closed
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (Thread.currentThread() == thread) {
+            command.run();
+            return;
+        }
+        if (!running) {
+            throw new RejectedExecutionException("Security event loop is closed");
+        }
+
+        long sequence = claimSequence.getAndIncrement();
+        for (int attempt = 0; sequence - consumedSequence >= slots.length(); attempt++) {
+            //ring is full, wait for the loop thread to free this slot
+            backOff(attempt);
+        }
+        //close() may have run since the check above. If the loop saw this claim it keeps draining
+        //until the slot is filled; if it didn't, it has exited and the command would never run
+        boolean accepted = running;
+        slots.set((int) sequence & mask, accepted ? command : REJECTED);
+        if (sleeping || !accepted) {
+            LockSupport.unpark(thread);
+        }
+        if (!accepted) {
+            throw new RejectedExecutionException("Security event loop is closed");
+        }
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Number of commands submitted but not yet run.
+     */
+    public long getPendingCount() {
+        return claimSequence.get() - consumedSequence;
+    }
+
+    /**
+     * Stops accepting commands, runs everything already queued and waits for the loop thread to exit.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (!inEventLoop()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Spins briefly, then yields, then sleeps, so a full ring doesn't starve the loop thread of CPU.
+     */
+    private static void backOff(int attempt) {
+        if (attempt < SPINS_BEFORE_PARK) {
+            Thread.onSpinWait();
+        } else if (attempt < SPINS_BEFORE_PARK * 2) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        int idleSpins = 0;
+        while (true) {
+            int index = (int) next & mask;
+            Runnable command = slots.get(index);
+            if (command == null) {
+                if (!running && next == claimSequence.get()) {
+                    return;
+                }
+                if (++idleSpins < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                //announce we're going to sleep, then check once more before parking
+                sleeping = true;
+                if (slots.get(index) == null && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+                idleSpins = 0;
+                continue;
+            }
+
+            idleSpins = 0;
+            slots.set(index, null);
+            consumedSequence = ++next;
+            try {
+                command.run();
+            } catch (Throwable e) {
+                //this is the only state thread, so report even an Error and keep going
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+}
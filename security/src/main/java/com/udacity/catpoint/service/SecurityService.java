@@ -1,125 +1,409 @@
 package com.udacity.catpoint.service;
 
 import com.udacity.catpoint.application.StatusListener;
+import com.udacity.catpoint.audit.AuditCause;
+import com.udacity.catpoint.audit.AuditEvent;
+import com.udacity.catpoint.audit.AuditLog;
 import com.udacity.catpoint.data.AlarmStatus;
 import com.udacity.catpoint.data.ArmingStatus;
 import com.udacity.catpoint.data.SecurityRepository;
 import com.udacity.catpoint.data.Sensor;
 import com.udacity.catpoint.image.ImageService;
+import com.udacity.catpoint.metrics.LatencyRecorder;
+import com.udacity.catpoint.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 public class SecurityService {
+    private static final Logger log = LoggerFactory.getLogger(SecurityService.class);
+
+    //only hands expired delays over to each service's state executor, so one thread serves them all
+    private static final ScheduledExecutorService DELAY_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "catpoint-security-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
     private final ImageService imageService;
     private final SecurityRepository securityRepository;
-    private final Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
-    private boolean catDetected = false;
+    private final Executor stateExecutor;
+    private final StatusDispatcher statusDispatcher;
+    private final AuditLog auditLog;
+    private final LatencyRecorder imageLatency;
+    private final LatencyRecorder sensorChangeLatency;
+    private final LatencyRecorder dispatchLatency;
+    private final LatencyRecorder repositoryWriteLatency;
+    private final LongAdder alarmChanges;
+    private final LongAdder auditFailures;
+    //registered listener -> the listener actually called, as decorated by the dispatcher, in
+    //registration order. Replaced on every change, so dispatch can iterate it without a lock
+    private volatile Map<StatusListener, StatusListener> statusListeners = Collections.emptyMap();
+    private final AtomicLong frameSequence = new AtomicLong();
+    private long lastAppliedFrame;
+    private volatile boolean catDetected = false;
+    private volatile long entryDelayNanos;
+    private volatile long exitDelayNanos;
+    //token of the delay currently running, or null. An expiry whose token no longer matches was cancelled
+    private volatile Object entryDelay;
+    private volatile Object exitDelay;
 
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
+        this(securityRepository, imageService, Runnable::run);
+    }
+
+    /**
+     * @param stateExecutor Executor that state changes submitted through {@link #submit(Consumer)}
+     *                      and asynchronous image results are applied on. Pass a
+     *                      {@link SecurityEventLoop} to serialize them on a single thread.
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, Executor stateExecutor) {
+        this(securityRepository, imageService, stateExecutor, StatusDispatcher.DIRECT);
+    }
+
+    /**
+     * @param statusDispatcher Decides how listeners are called. Pass a {@link CoalescingStatusDispatcher}
+     *                         so slow listeners don't hold up state changes.
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, Executor stateExecutor,
+                           StatusDispatcher statusDispatcher) {
+        this(securityRepository, imageService, stateExecutor, statusDispatcher, AuditLog.NONE);
+    }
+
+    /**
+     * @param auditLog Receives every alarm, arming and sensor transition along with its cause.
+     *                 Pass an {@link com.udacity.catpoint.audit.AuditJournal} to keep a history on disk.
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, Executor stateExecutor,
+                           StatusDispatcher statusDispatcher, AuditLog auditLog) {
+        this(securityRepository, imageService, stateExecutor, statusDispatcher, auditLog, new MetricsRegistry());
+    }
+
+    /**
+     * @param metrics Registry to record image processing, sensor change, listener dispatch and
+     *                repository write latencies in, under names starting with {@code security.}
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, Executor stateExecutor,
+                           StatusDispatcher statusDispatcher, AuditLog auditLog, MetricsRegistry metrics) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.stateExecutor = stateExecutor;
+        this.statusDispatcher = statusDispatcher;
+        this.auditLog = auditLog;
+        this.imageLatency = metrics.latency("security.processImage");
+        this.sensorChangeLatency = metrics.latency("security.changeSensorActivationStatus");
+        this.dispatchLatency = metrics.latency("security.listenerDispatch");
+        this.repositoryWriteLatency = metrics.latency("security.repositoryWrite");
+        this.alarmChanges = metrics.counter("security.alarmChanges");
+        this.auditFailures = metrics.counter("security.auditFailures");
     }
 
-    public void setArmingStatus(ArmingStatus armingStatus) {
-        // Always reset alarm when disarming
-        if (armingStatus == ArmingStatus.DISARMED) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
-        } else {
-            // Reset all sensors and handle cat detection
-            resetAllSensors();
+    /**
+     * Runs a command against this service on the state executor. Producers on any thread should
+     * use this for changes, e.g. {@code submit(s -> s.changeSensorActivationStatus(sensor, true))},
+     * so that transitions are applied one at a time in submission order.
+     *
+     * @return future completing once the command has run
+     */
+    public CompletableFuture<Void> submit(Consumer<SecurityService> command) {
+        return CompletableFuture.runAsync(() -> command.accept(this), stateExecutor);
+    }
 
-            // Special case: Arming to HOME with cat detected
-            if (armingStatus == ArmingStatus.ARMED_HOME && catDetected) {
-                setAlarmStatus(AlarmStatus.ALARM);
-            }
+    /**
+     * Sets how long a pending alarm waits before escalating to ALARM on its own, and how long after
+     * arming activated sensors are ignored so the occupants can leave. Both default to zero, which
+     * turns them off, and take effect from the next time each delay starts. Delays expire on the
+     * state executor, so pass a {@link SecurityEventLoop} to serialize them with other changes.
+     */
+    public void setDelays(Duration entryDelay, Duration exitDelay) {
+        this.entryDelayNanos = entryDelay.toNanos();
+        this.exitDelayNanos = exitDelay.toNanos();
+    }
+
+    /**
+     * True while the exit delay that started when the system was armed is running.
+     */
+    public boolean inExitDelay() {
+        return exitDelay != null;
+    }
+
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        exitDelay = null;
+        // Arming starts from a clean slate, so reset all sensors first
+        if (armingStatus != ArmingStatus.DISARMED) {
+            resetAllSensors(AuditCause.ARMING);
+        }
+        AlarmStatus next = AlarmRules.onArmingChanged(armingStatus, catDetected);
+        if (next != null) {
+            setAlarmStatus(next, AuditCause.ARMING);
         }
 
+        ArmingStatus previous = getArmingStatus();
+        long start = System.nanoTime();
         securityRepository.setArmingStatus(armingStatus);
+        repositoryWriteLatency.recordSince(start);
+        if (previous != armingStatus) {
+            audit(AuditEvent.Type.ARMING, null, previous.ordinal(), armingStatus.ordinal(), AuditCause.USER);
+        }
+        if (armingStatus != ArmingStatus.DISARMED && exitDelayNanos > 0) {
+            exitDelay = scheduleDelay(exitDelayNanos, this::exitDelayEnded);
+        }
         notifyArmingStatusChanged(armingStatus); // Add this line
     }
 
     public void resetAllSensors() {
-        new HashSet<>(getSensors()).forEach(sensor -> {
-            sensor.setActive(false);
-            securityRepository.updateSensor(sensor);
-        });
+        resetAllSensors(AuditCause.USER);
+    }
+
+    private void resetAllSensors(AuditCause cause) {
+        //deactivate everything first, then persist the whole change in one batch
+        List<Sensor> changed = new ArrayList<>();
+        for (Sensor sensor : getSensors()) {
+            if (sensor.getActive()) {
+                sensor.setActive(false);
+                changed.add(sensor);
+            }
+        }
+        if (!changed.isEmpty()) {
+            long start = System.nanoTime();
+            securityRepository.updateSensors(changed);
+            repositoryWriteLatency.recordSince(start);
+            for (Sensor sensor : changed) {
+                audit(AuditEvent.Type.SENSOR, sensor, 1, 0, cause);
+            }
+        }
     }
 
     public void processImage(BufferedImage image) {
+        long start = System.nanoTime();
+        long frame = frameSequence.incrementAndGet();
         if (image == null) {
-            // Only notify listeners without changing alarm status
-            catDetected = false;
-            statusListeners.forEach(sl -> sl.catDetected(false));
-            return;
+            clearCatDetection(frame);
+        } else {
+            applyCatDetection(frame, imageService.imageContainsCat(image));
+        }
+        imageLatency.recordSince(start);
+    }
+
+    /**
+     * Sends the image for analysis without blocking the caller and applies the result on the
+     * state executor. If results arrive out of order, those older than the most recently
+     * applied frame are discarded so a slow scan can't overwrite a newer verdict.
+     *
+     * @return future completing with whether a cat was detected
+     */
+    public CompletableFuture<Boolean> processImageAsync(BufferedImage image) {
+        long start = System.nanoTime();
+        long frame = frameSequence.incrementAndGet();
+        if (image == null) {
+            return CompletableFuture.supplyAsync(() -> {
+                clearCatDetection(frame);
+                imageLatency.recordSince(start);
+                return false;
+            }, stateExecutor);
         }
 
-        boolean currentCatDetected = imageService.imageContainsCat(image);
+        return imageService.imageContainsCatAsync(image).thenApplyAsync(currentCatDetected -> {
+            applyCatDetection(frame, currentCatDetected);
+            imageLatency.recordSince(start);
+            return currentCatDetected;
+        }, stateExecutor);
+    }
+
+    /**
+     * Applies a verdict reached elsewhere, e.g. by a
+     * {@link com.udacity.catpoint.camera.CameraStreamPipeline} combining many cameras, exactly as
+     * if a frame with that verdict had just been processed.
+     */
+    public void processCatDetection(boolean catDetected) {
+        applyCatDetection(frameSequence.incrementAndGet(), catDetected);
+    }
+
+    private synchronized void clearCatDetection(long frame) {
+        if (frame < lastAppliedFrame) return;
+        lastAppliedFrame = frame;
+
+        // Only notify listeners without changing alarm status
+        catDetected = false;
+        dispatch(sl -> sl.catDetected(false));
+    }
+
+    private synchronized void applyCatDetection(long frame, boolean currentCatDetected) {
+        if (frame < lastAppliedFrame) return;
+        lastAppliedFrame = frame;
+
         this.catDetected = currentCatDetected;
-        statusListeners.forEach(sl -> sl.catDetected(currentCatDetected));
+        dispatch(sl -> sl.catDetected(currentCatDetected));
 
-        if (currentCatDetected && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(AlarmStatus.ALARM);
-        } else if (!currentCatDetected && allSensorsInactive()) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
+        AlarmStatus next = AlarmRules.onCatDetection(currentCatDetected, getArmingStatus(), areAnySensorsActive());
+        if (next != null) {
+            setAlarmStatus(next, AuditCause.CAMERA);
         }
     }
 
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
         // Block changes if alarm is active
-        if (getAlarmStatus() == AlarmStatus.ALARM) return;
+        if (AlarmRules.sensorChangesBlocked(getAlarmStatus())) return;
 
+        long start = System.nanoTime();
         boolean wasActive = sensor.getActive();
-        sensor.setActive(active);
-        securityRepository.updateSensor(sensor);
+        if (wasActive != active) {
+            sensor.setActive(active);
+            securityRepository.updateSensor(sensor);
+            repositoryWriteLatency.recordSince(start);
+            audit(AuditEvent.Type.SENSOR, sensor, wasActive ? 1 : 0, active ? 1 : 0, AuditCause.SENSOR);
+        }
 
+        if (active && exitDelay != null) {
+            //the occupants are on their way out
+            sensorChangeLatency.recordSince(start);
+            return;
+        }
+        //still applied when nothing changed: activating an already active sensor escalates a pending alarm
         handleSensorStateChange(active, wasActive);
+        sensorChangeLatency.recordSince(start);
     }
 
     public void handleSensorStateChange(boolean active, boolean wasActive) {
-        AlarmStatus status = getAlarmStatus();
-        ArmingStatus arming = getArmingStatus();
-
-        if (active) {
-            if (arming != ArmingStatus.DISARMED) {
-                if (status == AlarmStatus.NO_ALARM) {
-                    setAlarmStatus(AlarmStatus.PENDING_ALARM);
-                } else if (status == AlarmStatus.PENDING_ALARM) {
-                    setAlarmStatus(AlarmStatus.ALARM);
-                }
-            }
-        } else {
-            if (status == AlarmStatus.PENDING_ALARM && allSensorsInactive()) {
-                setAlarmStatus(AlarmStatus.NO_ALARM);
-            }
+        AlarmStatus next = AlarmRules.onSensorChanged(active, getAlarmStatus(), getArmingStatus(),
+                areAnySensorsActive());
+        if (next != null) {
+            setAlarmStatus(next, AuditCause.SENSOR);
         }
     }
 
     // Add missing notifiers
     public void notifyCatDetection(boolean detected) {
-        statusListeners.forEach(sl -> sl.catDetected(detected));
+        dispatch(sl -> sl.catDetected(detected));
     }
 
     public void notifyArmingStatusChanged(ArmingStatus status) {
-        statusListeners.forEach(sl -> sl.sensorStatusChanged());
+        dispatch(StatusListener::sensorStatusChanged);
     }
 
     public void setAlarmStatus(AlarmStatus status) {
+        setAlarmStatus(status, AuditCause.USER);
+    }
+
+    private void setAlarmStatus(AlarmStatus status, AuditCause cause) {
+        AlarmStatus previous = getAlarmStatus();
+        long start = System.nanoTime();
         securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        repositoryWriteLatency.recordSince(start);
+        if (previous != status) {
+            alarmChanges.increment();
+            audit(AuditEvent.Type.ALARM, null, previous.ordinal(), status.ordinal(), cause);
+        }
+        if (status != AlarmStatus.PENDING_ALARM) {
+            entryDelay = null;
+        } else if (entryDelayNanos > 0 && entryDelay == null) {
+            entryDelay = scheduleDelay(entryDelayNanos, this::entryDelayEnded);
+        }
+        dispatch(sl -> sl.notify(status));
+    }
+
+    /**
+     * Runs the action with the returned token on the state executor once the delay has passed.
+     */
+    private Object scheduleDelay(long delayNanos, Consumer<Object> expired) {
+        Object token = new Object();
+        DELAY_TIMER.schedule(() -> {
+            try {
+                stateExecutor.execute(() -> expired.accept(token));
+            } catch (RejectedExecutionException e) {
+                //the event loop was closed; nothing is left to escalate
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        return token;
+    }
+
+    private void entryDelayEnded(Object token) {
+        if (entryDelay != token) {
+            return;
+        }
+        entryDelay = null;
+        if (getAlarmStatus() == AlarmStatus.PENDING_ALARM) {
+            setAlarmStatus(AlarmStatus.ALARM, AuditCause.TIMER);
+        }
+    }
+
+    private void exitDelayEnded(Object token) {
+        if (exitDelay == token) {
+            exitDelay = null;
+        }
+    }
+
+    /**
+     * Calls every listener, timing how long the whole round takes.
+     */
+    private void dispatch(Consumer<StatusListener> call) {
+        long start = System.nanoTime();
+        statusListeners.values().forEach(call);
+        dispatchLatency.recordSince(start);
+    }
+
+    /**
+     * Records a transition of this single-home system, which is always tenant 0. A failing audit
+     * log is counted and logged but never stops the transition itself, or a full disk would keep
+     * alarms from reaching listeners.
+     */
+    private void audit(AuditEvent.Type type, Sensor sensor, int oldState, int newState, AuditCause cause) {
+        long mostSigBits = sensor == null ? 0 : sensor.getSensorId().getMostSignificantBits();
+        long leastSigBits = sensor == null ? 0 : sensor.getSensorId().getLeastSignificantBits();
+        try {
+            auditLog.record(0, type, mostSigBits, leastSigBits, oldState, newState, cause);
+        } catch (RuntimeException e) {
+            auditFailures.increment();
+            //once the journal has failed every record fails the same way, so only say so once
+            if (auditFailures.sum() == 1) {
+                log.error("Unable to record {} transition in audit log; later failures are only counted", type, e);
+            }
+        }
     }
 
-    public void addStatusListener(StatusListener statusListener) {
-        statusListeners.add(statusListener);
+    public synchronized void addStatusListener(StatusListener statusListener) {
+        if (statusListeners.containsKey(statusListener)) {
+            return;
+        }
+        Map<StatusListener, StatusListener> listeners = new LinkedHashMap<>(statusListeners);
+        listeners.put(statusListener, statusDispatcher.decorate(statusListener));
+        statusListeners = listeners;
     }
 
-    public void removeStatusListener(StatusListener statusListener) {
-        statusListeners.remove(statusListener);
+    public synchronized void removeStatusListener(StatusListener statusListener) {
+        if (!statusListeners.containsKey(statusListener)) {
+            return;
+        }
+        Map<StatusListener, StatusListener> listeners = new LinkedHashMap<>(statusListeners);
+        listeners.remove(statusListener);
+        statusListeners = listeners;
+        statusDispatcher.release(statusListener);
     }
 
     public boolean areAnySensorsActive() {
-        return getSensors().stream().anyMatch(Sensor::getActive);
+        return getActiveSensorCount() > 0;
+    }
+
+    public int getActiveSensorCount() {
+        return securityRepository.getActiveSensorCount();
     }
 
     public boolean allSensorsInactive() {
@@ -134,18 +418,29 @@ public class SecurityService {
         return securityRepository.getSensors();
     }
 
+    /**
+     * Finds a sensor by the two halves of its id without building a UUID, or returns null.
+     */
+    public Sensor findSensor(long mostSigBits, long leastSigBits) {
+        return securityRepository.findSensor(mostSigBits, leastSigBits);
+    }
+
     public void addSensor(Sensor sensor) {
+        long start = System.nanoTime();
         securityRepository.addSensor(sensor);
+        repositoryWriteLatency.recordSince(start);
     }
 
     public void removeSensor(Sensor sensor) {
+        long start = System.nanoTime();
         securityRepository.removeSensor(sensor);
+        repositoryWriteLatency.recordSince(start);
     }
 
     public ArmingStatus getArmingStatus() {
         return securityRepository.getArmingStatus();
     }
     public Set<StatusListener> getStatusListeners() {
-        return new HashSet<>(statusListeners);
+        return new LinkedHashSet<>(statusListeners.keySet());
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.application.StatusListener;
+
+/**
+ * Decides how SecurityService delivers notifications to each registered StatusListener.
+ */
+public interface StatusDispatcher {
+
+    /**
+     * Calls every listener directly on the thread that changed the state.
+     */
+    StatusDispatcher DIRECT = listener -> listener;
+
+    /**
+     * Returns the listener SecurityService should actually call in place of the registered one.
+     */
+    StatusListener decorate(StatusListener listener);
+
+    /**
+     * Called once a listener is removed from SecurityService, so anything held for it can be
+     * dropped. Notifications not yet delivered to it are discarded.
+     */
+    default void release(StatusListener listener) {
+    }
+}
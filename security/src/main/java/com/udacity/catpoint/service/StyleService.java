@@ -1,11 +1,54 @@
 package com.udacity.catpoint.service;
 
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+
 import java.awt.*;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
- * Simple "service" for providing style information.
+ * Simple "service" for providing style information, including the text and color shown for
+ * each alarm and arming status.
  */
 public class StyleService {
     // Added 'final' to make this a true constant
     public static final Font HEADING_FONT = new Font("Sans Serif", Font.BOLD, 24);
-}
\ No newline at end of file
+
+    private static final Map<AlarmStatus, String> ALARM_DESCRIPTIONS = new EnumMap<>(AlarmStatus.class);
+    private static final Map<AlarmStatus, Color> ALARM_COLORS = new EnumMap<>(AlarmStatus.class);
+    private static final Map<ArmingStatus, String> ARMING_DESCRIPTIONS = new EnumMap<>(ArmingStatus.class);
+    private static final Map<ArmingStatus, Color> ARMING_COLORS = new EnumMap<>(ArmingStatus.class);
+
+    static {
+        ALARM_DESCRIPTIONS.put(AlarmStatus.NO_ALARM, "Cool and Good");
+        ALARM_COLORS.put(AlarmStatus.NO_ALARM, new Color(120,200,30));
+        ALARM_DESCRIPTIONS.put(AlarmStatus.PENDING_ALARM, "I'm in Danger...");
+        ALARM_COLORS.put(AlarmStatus.PENDING_ALARM, new Color(200,150,20));
+        ALARM_DESCRIPTIONS.put(AlarmStatus.ALARM, "Awooga!");
+        ALARM_COLORS.put(AlarmStatus.ALARM, new Color(250,80,50));
+
+        ARMING_DESCRIPTIONS.put(ArmingStatus.DISARMED, "Disarmed");
+        ARMING_COLORS.put(ArmingStatus.DISARMED, new Color(120,200,30));
+        ARMING_DESCRIPTIONS.put(ArmingStatus.ARMED_HOME, "Armed - At Home");
+        ARMING_COLORS.put(ArmingStatus.ARMED_HOME, new Color(190,180,50));
+        ARMING_DESCRIPTIONS.put(ArmingStatus.ARMED_AWAY, "Armed - Away");
+        ARMING_COLORS.put(ArmingStatus.ARMED_AWAY, new Color(170,30,150));
+    }
+
+    public static String getDescription(AlarmStatus status) {
+        return ALARM_DESCRIPTIONS.get(status);
+    }
+
+    public static Color getColor(AlarmStatus status) {
+        return ALARM_COLORS.get(status);
+    }
+
+    public static String getDescription(ArmingStatus status) {
+        return ARMING_DESCRIPTIONS.get(status);
+    }
+
+    public static Color getColor(ArmingStatus status) {
+        return ARMING_COLORS.get(status);
+    }
+}
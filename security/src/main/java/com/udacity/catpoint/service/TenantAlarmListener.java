@@ -0,0 +1,11 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+
+/**
+ * Told whenever a home hosted by {@link MultiTenantSecurityEngine} sets its alarm status.
+ * Called on the worker thread that owns the tenant, so implementations should hand slow work off.
+ */
+public interface TenantAlarmListener {
+    void alarmStatusChanged(long tenantId, AlarmStatus status);
+}
@@ -0,0 +1,190 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+
+import java.util.Arrays;
+
+/**
+ * Everything the multi-tenant engine keeps about one home, packed into primitives: statuses as
+ * byte ordinals, sensor ids as parallel arrays of id halves and the active flags as a bit set.
+ * A home has a handful of sensors, so finding one is a short linear scan over the id arrays.
+ *
+ * Only ever touched by the worker thread that owns the tenant.
+ */
+final class TenantState {
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final int INITIAL_SENSORS = 4;
+
+    final long tenantId;
+    private byte armingStatus = (byte) ArmingStatus.DISARMED.ordinal();
+    private byte alarmStatus = (byte) AlarmStatus.NO_ALARM.ordinal();
+    private boolean catDetected;
+
+    private long[] sensorMostSigBits = new long[INITIAL_SENSORS];
+    private long[] sensorLeastSigBits = new long[INITIAL_SENSORS];
+    private long[] activeBits = new long[1];
+    private int sensorCount;
+    private int activeCount;
+
+    private int entryDelayMillis;
+    private int exitDelayMillis;
+    //non-null while the delay is running
+    private TimingWheel.Timeout entryDelay;
+    private TimingWheel.Timeout exitDelay;
+
+    TenantState(long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    AlarmStatus getAlarmStatus() {
+        return ALARM_STATUSES[alarmStatus];
+    }
+
+    void setAlarmStatus(AlarmStatus status) {
+        alarmStatus = (byte) status.ordinal();
+    }
+
+    ArmingStatus getArmingStatus() {
+        return ARMING_STATUSES[armingStatus];
+    }
+
+    void setArmingStatus(ArmingStatus status) {
+        armingStatus = (byte) status.ordinal();
+    }
+
+    boolean isCatDetected() {
+        return catDetected;
+    }
+
+    void setCatDetected(boolean catDetected) {
+        this.catDetected = catDetected;
+    }
+
+    int getEntryDelayMillis() {
+        return entryDelayMillis;
+    }
+
+    void setEntryDelayMillis(int entryDelayMillis) {
+        this.entryDelayMillis = entryDelayMillis;
+    }
+
+    int getExitDelayMillis() {
+        return exitDelayMillis;
+    }
+
+    void setExitDelayMillis(int exitDelayMillis) {
+        this.exitDelayMillis = exitDelayMillis;
+    }
+
+    boolean inEntryDelay() {
+        return entryDelay != null;
+    }
+
+    void setEntryDelay(TimingWheel.Timeout entryDelay) {
+        this.entryDelay = entryDelay;
+    }
+
+    void cancelEntryDelay() {
+        if (entryDelay != null) {
+            entryDelay.cancel();
+            entryDelay = null;
+        }
+    }
+
+    boolean inExitDelay() {
+        return exitDelay != null;
+    }
+
+    void setExitDelay(TimingWheel.Timeout exitDelay) {
+        this.exitDelay = exitDelay;
+    }
+
+    void exitDelayEnded() {
+        exitDelay = null;
+    }
+
+    void cancelExitDelay() {
+        if (exitDelay != null) {
+            exitDelay.cancel();
+            exitDelay = null;
+        }
+    }
+
+    int getSensorCount() {
+        return sensorCount;
+    }
+
+    int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return the sensor's slot, or -1 if this home has no such sensor
+     */
+    int findSensor(long mostSigBits, long leastSigBits) {
+        for (int i = 0; i < sensorCount; i++) {
+            if (sensorLeastSigBits[i] == leastSigBits && sensorMostSigBits[i] == mostSigBits) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an inactive sensor unless it's already present.
+     */
+    void addSensor(long mostSigBits, long leastSigBits) {
+        if (findSensor(mostSigBits, leastSigBits) >= 0) {
+            return;
+        }
+        if (sensorCount == sensorMostSigBits.length) {
+            int capacity = sensorCount * 2;
+            sensorMostSigBits = Arrays.copyOf(sensorMostSigBits, capacity);
+            sensorLeastSigBits = Arrays.copyOf(sensorLeastSigBits, capacity);
+            activeBits = Arrays.copyOf(activeBits, (capacity + 63) >>> 6);
+        }
+        sensorMostSigBits[sensorCount] = mostSigBits;
+        sensorLeastSigBits[sensorCount] = leastSigBits;
+        setActiveBit(sensorCount, false);
+        sensorCount++;
+    }
+
+    /**
+     * Removes the sensor by moving the last one into its slot, so slots aren't stable across removals.
+     */
+    void removeSensor(int slot) {
+        setActive(slot, false);
+        int last = --sensorCount;
+        sensorMostSigBits[slot] = sensorMostSigBits[last];
+        sensorLeastSigBits[slot] = sensorLeastSigBits[last];
+        setActiveBit(slot, isActive(last));
+        setActiveBit(last, false);
+    }
+
+    boolean isActive(int slot) {
+        return (activeBits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    void setActive(int slot, boolean active) {
+        if (isActive(slot) != active) {
+            activeCount += active ? 1 : -1;
+            setActiveBit(slot, active);
+        }
+    }
+
+    void deactivateAllSensors() {
+        Arrays.fill(activeBits, 0L);
+        activeCount = 0;
+    }
+
+    private void setActiveBit(int slot, boolean active) {
+        if (active) {
+            activeBits[slot >>> 6] |= 1L << slot;
+        } else {
+            activeBits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.udacity.catpoint.service;
+
+/**
+ * Tenants owned by one worker, keyed by primitive tenant id so lookups don't box.
+ * Open addressing with linear probing and backward-shift deletion, kept at most half full.
+ */
+final class TenantTable {
+    private long[] keys = new long[16];
+    private TenantState[] values = new TenantState[16];
+    private int size;
+
+    TenantState get(long tenantId) {
+        int mask = values.length - 1;
+        for (int slot = slotFor(tenantId, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == tenantId) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return false if the tenant was already present
+     */
+    boolean put(TenantState state) {
+        if (get(state.tenantId) != null) {
+            return false;
+        }
+        if ((size + 1) * 2 > values.length) {
+            resize();
+        }
+        insert(state);
+        size++;
+        return true;
+    }
+
+    /**
+     * @return false if the tenant wasn't present
+     */
+    boolean remove(long tenantId) {
+        int mask = values.length - 1;
+        int slot = slotFor(tenantId, mask);
+        while (values[slot] != null && keys[slot] != tenantId) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+            return false;
+        }
+        //shift later entries of the same probe run back so lookups never stop at a false gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = slotFor(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = null;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        TenantState[] old = values;
+        keys = new long[old.length * 2];
+        values = new TenantState[old.length * 2];
+        for (TenantState state : old) {
+            if (state != null) {
+                insert(state);
+            }
+        }
+    }
+
+    private void insert(TenantState state) {
+        int mask = values.length - 1;
+        int slot = slotFor(state.tenantId, mask);
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = state.tenantId;
+        values[slot] = state;
+    }
+
+    private static int slotFor(long tenantId, int mask) {
+        long h = tenantId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
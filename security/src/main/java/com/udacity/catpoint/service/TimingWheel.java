@@ -0,0 +1,197 @@
+package com.udacity.catpoint.service;
+
+/**
+ * Hierarchical timing wheel for large numbers of timers. Scheduling and cancelling are O(1)
+ * and no thread is created per timer. Expired timers run inside {@link #advance(long)}, which
+ * the owner calls regularly.
+ *
+ * There are four levels of 256 slots. The first level holds timers due within 256 ticks, the
+ * next within 256^2 ticks, and so on. When the lower level wraps around, the matching slot of
+ * the level above is emptied and its timers are re-filed closer to their deadline. A timer is
+ * therefore moved at most three times before it fires. Deadlines are rounded up to the next
+ * tick.
+ *
+ * Not thread-safe. Schedule, cancel and advance on a single owner thread, e.g. the
+ * {@link SecurityEventLoop} of the state the timers act on.
+ */
+public class TimingWheel {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    //furthest a timer can be filed ahead; longer ones are re-filed when they get closer
+    private static final long MAX_SPAN = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+    private final long startNanos;
+    //level * SLOTS + slot -> first timer in that slot
+    private final Timeout[] buckets = new Timeout[LEVELS * SLOTS];
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickNanos Resolution of the wheel
+     * @param startNanos Current time, on the same clock later passed to {@link #advance(long)}
+     */
+    public TimingWheel(long tickNanos, long startNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Runs the task once at least delayNanos have passed, at the first {@link #advance(long)} after that.
+     */
+    public Timeout schedule(long delayNanos, Runnable task) {
+        long ticks = Math.max(1, (delayNanos + tickNanos - 1) / tickNanos);
+        Timeout timeout = new Timeout(this, currentTick + ticks, task);
+        file(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel forward to the given time, running every timer that has come due.
+     *
+     * @return number of timers that ran
+     */
+    public int advance(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        int fired = 0;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                //nothing to move or fire, skip straight to the target
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            //take timers off the head one at a time, so a task may safely cancel others in this slot
+            int bucket = (int) (currentTick & SLOT_MASK);
+            Timeout timeout;
+            while ((timeout = buckets[bucket]) != null) {
+                unlink(timeout);
+                timeout.done = true;
+                fired++;
+                run(timeout.task);
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Number of timers scheduled and not yet run or cancelled.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empties the slots of higher levels whose span starts at the current tick, re-filing each
+     * timer on a lower level.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            //a level only turns over when every level below it has wrapped to zero
+            if (((currentTick >>> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+                return;
+            }
+            int bucket = level * SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Timeout timeout = buckets[bucket];
+            buckets[bucket] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.unlinked();
+                file(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void file(Timeout timeout) {
+        long delta = Math.min(timeout.deadlineTick - currentTick, MAX_SPAN);
+        long target = currentTick + delta;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int bucket = level * SLOTS + (int) ((target >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Timeout head = buckets[bucket];
+        timeout.bucket = bucket;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.unlinked();
+        size--;
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, e);
+        }
+    }
+
+    /**
+     * Handle to a scheduled timer.
+     */
+    public static final class Timeout {
+        private static final int NOT_FILED = -1;
+
+        private final TimingWheel wheel;
+        private final long deadlineTick;
+        private final Runnable task;
+        private Timeout prev;
+        private Timeout next;
+        private int bucket = NOT_FILED;
+        private boolean done;
+
+        private Timeout(TimingWheel wheel, long deadlineTick, Runnable task) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        /**
+         * Stops the timer from running. Does nothing if it already ran or was cancelled.
+         *
+         * @return true if this call cancelled it
+         */
+        public boolean cancel() {
+            if (done) {
+                return false;
+            }
+            wheel.unlink(this);
+            done = true;
+            return true;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        private void unlinked() {
+            prev = null;
+            next = null;
+            bucket = NOT_FILED;
+        }
+    }
+}
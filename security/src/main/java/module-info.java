@@ -3,6 +3,9 @@ module com.udacity.catpoint.security {
     requires transitive com.miglayout.swing;
     requires java.desktop;
     requires java.prefs;
+    requires java.management;
+    requires jdk.httpserver;
+    requires org.slf4j;
     requires transitive com.google.gson;
     requires transitive dev.mccue.guava.collect;
     requires transitive dev.mccue.guava.reflect;
@@ -10,7 +10,9 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -150,6 +152,23 @@ public class SecurityServiceTest {
         assertFalse(securityService.getStatusListeners().contains(statusListener));
     }
 
+    @Test
+    void notify_callsListenersInRegistrationOrder() {
+        List<String> calls = new ArrayList<>();
+        for (String name : List.of("first", "second", "third", "fourth")) {
+            securityService.addStatusListener(new TestStatusListener() {
+                @Override
+                public void catDetected(boolean catDetected) {
+                    calls.add(name);
+                }
+            });
+        }
+
+        securityService.notifyCatDetection(true);
+
+        assertEquals(List.of("first", "second", "third", "fourth"), calls);
+    }
+
     @Test
     void getStatusListeners_returnsCopy() {
         Set<StatusListener> listeners = securityService.getStatusListeners();
@@ -0,0 +1,70 @@
+package com.udacity.catpoint.application;
+
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorTableModelTest {
+
+    private SensorTableModel model;
+    private final List<TableModelEvent> events = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        model = new SensorTableModel();
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            sensors.add(new Sensor(String.format("Sensor %05d", i * 2), SensorType.DOOR));
+        }
+        model.setSensors(sensors);
+        model.addTableModelListener(events::add);
+    }
+
+    @Test
+    void sensorAdded_insertsSingleRowInSortedPosition() {
+        Sensor added = new Sensor("Sensor 00003", SensorType.MOTION);
+
+        model.sensorAdded(added);
+
+        assertEquals(50_001, model.getRowCount());
+        assertSame(added, model.getSensor(2));
+        assertEquals(1, events.size());
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(2, events.get(0).getFirstRow());
+        assertEquals(2, events.get(0).getLastRow());
+    }
+
+    @Test
+    void sensorUpdated_firesForThatRowOnly() {
+        Sensor sensor = model.getSensor(1234);
+        sensor.setActive(true);
+
+        model.sensorUpdated(sensor);
+
+        assertEquals("Active", model.getValueAt(1234, SensorTableModel.STATUS_COLUMN));
+        assertEquals("Deactivate", model.getValueAt(1234, SensorTableModel.TOGGLE_COLUMN));
+        assertEquals(1, events.size());
+        assertEquals(TableModelEvent.UPDATE, events.get(0).getType());
+        assertEquals(1234, events.get(0).getFirstRow());
+        assertEquals(1234, events.get(0).getLastRow());
+    }
+
+    @Test
+    void sensorRemoved_deletesSingleRow() {
+        Sensor sensor = model.getSensor(10);
+
+        model.sensorRemoved(sensor);
+
+        assertEquals(49_999, model.getRowCount());
+        assertNotEquals(sensor, model.getSensor(10));
+        assertEquals(TableModelEvent.DELETE, events.get(0).getType());
+        assertEquals(10, events.get(0).getFirstRow());
+    }
+}
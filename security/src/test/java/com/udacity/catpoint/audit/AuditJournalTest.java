@@ -0,0 +1,205 @@
+package com.udacity.catpoint.audit;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuditJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private long now = 1_000;
+
+    @Test
+    void stateAt_rebuildsTenantStateAsOfEachPointInTime() throws IOException {
+        Path file = dir.resolve("audit.jnl");
+        UUID door = UUID.randomUUID();
+        UUID window = UUID.randomUUID();
+        try (AuditJournal journal = new AuditJournal(file, AuditJournal.DEFAULT_BATCH_BYTES, () -> now)) {
+            arming(journal, 1, ArmingStatus.DISARMED, ArmingStatus.ARMED_AWAY);
+            now = 2_000;
+            sensor(journal, 1, door, true);
+            alarm(journal, 1, AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM, AuditCause.SENSOR);
+            //another tenant in between must not leak into tenant 1
+            sensor(journal, 2, window, true);
+            now = 3_000;
+            sensor(journal, 1, window, true);
+            alarm(journal, 1, AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM, AuditCause.SENSOR);
+            now = 4_000;
+            arming(journal, 1, ArmingStatus.ARMED_AWAY, ArmingStatus.DISARMED);
+            alarm(journal, 1, AlarmStatus.ALARM, AlarmStatus.NO_ALARM, AuditCause.ARMING);
+        }
+
+        AuditJournalReader reader = new AuditJournalReader(file);
+        assertEquals(8, reader.size());
+
+        AuditState beforeAnything = reader.stateAt(1, 999);
+        assertEquals(ArmingStatus.DISARMED, beforeAnything.getArmingStatus());
+        assertEquals(-1, beforeAnything.getSequence());
+
+        AuditState pending = reader.stateAt(1, 2_500);
+        assertEquals(ArmingStatus.ARMED_AWAY, pending.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, pending.getAlarmStatus());
+        assertEquals(Set.of(door), pending.getActiveSensors());
+        assertNull(pending.isSensorActive(window));
+
+        AuditState alarm = reader.stateAt(1, 3_000);
+        assertEquals(AlarmStatus.ALARM, alarm.getAlarmStatus());
+        assertEquals(Set.of(door, window), alarm.getActiveSensors());
+
+        AuditState disarmed = reader.stateAt(1, Long.MAX_VALUE);
+        assertEquals(ArmingStatus.DISARMED, disarmed.getArmingStatus());
+        assertEquals(AlarmStatus.NO_ALARM, disarmed.getAlarmStatus());
+        assertEquals(7, disarmed.getSequence());
+
+        List<AuditEvent> window3s = reader.read(3_000, 3_000);
+        assertEquals(2, window3s.size());
+        assertEquals(window, window3s.get(0).getSensorId());
+        assertEquals(AuditCause.SENSOR, window3s.get(1).getCause());
+        assertNull(window3s.get(1).getSensorId());
+    }
+
+    @Test
+    void reopen_afterTornWrite_dropsPartialRecordAndContinuesSequence() throws IOException {
+        Path file = dir.resolve("audit.jnl");
+        try (AuditJournal journal = new AuditJournal(file)) {
+            for (int i = 0; i < 3; i++) {
+                sensor(journal, 0, UUID.randomUUID(), true);
+            }
+        }
+        //half a record, as left by a crash mid-write
+        Files.write(file, new byte[AuditJournal.RECORD_BYTES / 2], StandardOpenOption.APPEND);
+        assertEquals(3, new AuditJournalReader(file).size());
+
+        try (AuditJournal journal = new AuditJournal(file)) {
+            alarm(journal, 0, AlarmStatus.NO_ALARM, AlarmStatus.ALARM, AuditCause.CAMERA);
+        }
+
+        AuditJournalReader reader = new AuditJournalReader(file);
+        assertEquals(4, reader.size());
+        assertEquals(3, reader.get(3).getSequence());
+        assertEquals(AuditCause.CAMERA, reader.get(3).getCause());
+    }
+
+    @Test
+    void reopen_afterDamageBeforeTheLastRecord_movesFileAsideInsteadOfCuttingValidRecords() throws IOException {
+        Path file = dir.resolve("audit.jnl");
+        try (AuditJournal journal = new AuditJournal(file)) {
+            for (int i = 0; i < 3; i++) {
+                sensor(journal, 0, UUID.randomUUID(), true);
+            }
+        }
+        //one flipped byte in the first record
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[AuditJournal.HEADER_BYTES + 20] ^= 1;
+        Files.write(file, bytes);
+
+        try (AuditJournal journal = new AuditJournal(file)) {
+            alarm(journal, 0, AlarmStatus.NO_ALARM, AlarmStatus.ALARM, AuditCause.CAMERA);
+        }
+
+        AuditJournalReader reader = new AuditJournalReader(file);
+        assertEquals(1, reader.size());
+        assertEquals(3, reader.get(0).getSequence());
+        try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+            Path aside = files.filter(p -> p.getFileName().toString().startsWith("audit.jnl.corrupt-"))
+                    .findFirst().orElseThrow(AssertionError::new);
+            assertArrayEquals(bytes, Files.readAllBytes(aside));
+        }
+    }
+
+    @Test
+    void reopen_withDamagedLastRecord_cutsOnlyThatRecord() throws IOException {
+        Path file = dir.resolve("audit.jnl");
+        try (AuditJournal journal = new AuditJournal(file)) {
+            for (int i = 0; i < 3; i++) {
+                sensor(journal, 0, UUID.randomUUID(), true);
+            }
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        try (AuditJournal journal = new AuditJournal(file)) {
+            alarm(journal, 0, AlarmStatus.NO_ALARM, AlarmStatus.ALARM, AuditCause.CAMERA);
+        }
+        AuditJournalReader reader = new AuditJournalReader(file);
+        assertEquals(3, reader.size());
+        assertEquals(2, reader.get(2).getSequence());
+    }
+
+    @Test
+    void record_manyThreads_groupsRecordsIntoFewerBatches() throws Exception {
+        Path file = dir.resolve("audit.jnl");
+        int threads = 4;
+        int perThread = 20_000;
+        AuditJournal journal = new AuditJournal(file, 4096, System::currentTimeMillis);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long tenant = t;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    journal.record(tenant, AuditEvent.Type.SENSOR, tenant, i, i & 1, ~i & 1, AuditCause.SENSOR);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        journal.flush();
+        long batches = journal.getBatchCount();
+        journal.close();
+
+        AuditJournalReader reader = new AuditJournalReader(file);
+        assertEquals(threads * perThread, reader.size());
+        assertTrue(batches < reader.size() / 10, "expected group commit, got " + batches + " batches");
+        Set<Long> sequences = new HashSet<>();
+        long lastTimestamp = 0;
+        for (long i = 0; i < reader.size(); i++) {
+            AuditEvent event = reader.get(i);
+            assertEquals(i, event.getSequence());
+            assertTrue(event.getTimestampMillis() >= lastTimestamp);
+            lastTimestamp = event.getTimestampMillis();
+            sequences.add(event.getSequence());
+        }
+        assertEquals(threads * perThread, sequences.size());
+    }
+
+    @Test
+    void record_afterClose_throws() throws IOException {
+        AuditJournal journal = new AuditJournal(dir.resolve("audit.jnl"));
+        journal.close();
+
+        assertThrows(IllegalStateException.class,
+                () -> alarm(journal, 0, AlarmStatus.NO_ALARM, AlarmStatus.ALARM, AuditCause.USER));
+    }
+
+    private static void arming(AuditLog log, long tenant, ArmingStatus from, ArmingStatus to) {
+        log.record(tenant, AuditEvent.Type.ARMING, 0, 0, from.ordinal(), to.ordinal(), AuditCause.USER);
+    }
+
+    private static void alarm(AuditLog log, long tenant, AlarmStatus from, AlarmStatus to, AuditCause cause) {
+        log.record(tenant, AuditEvent.Type.ALARM, 0, 0, from.ordinal(), to.ordinal(), cause);
+    }
+
+    private static void sensor(AuditLog log, long tenant, UUID id, boolean active) {
+        log.record(tenant, AuditEvent.Type.SENSOR, id.getMostSignificantBits(), id.getLeastSignificantBits(),
+                active ? 0 : 1, active ? 1 : 0, AuditCause.SENSOR);
+    }
+}
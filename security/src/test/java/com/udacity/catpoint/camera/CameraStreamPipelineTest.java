@@ -0,0 +1,250 @@
+package com.udacity.catpoint.camera;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.AppendOnlyLogSecurityRepositoryImpl;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.image.ImageService;
+import com.udacity.catpoint.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraStreamPipelineTest {
+
+    @TempDir
+    Path directory;
+
+    private AppendOnlyLogSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private CameraStreamPipeline pipeline;
+
+    //red frames contain a cat; loosely, since jpeg doesn't keep exact colors
+    private final ImageService redMeansCat = new ImageService() {
+        @Override
+        public boolean imageContainsCat(BufferedImage image) {
+            Color color = new Color(image.getRGB(0, 0));
+            return color.getRed() > 200 && color.getGreen() < 50 && color.getBlue() < 50;
+        }
+    };
+
+    @BeforeEach
+    void init() {
+        repository = new AppendOnlyLogSecurityRepositoryImpl(directory.resolve("wal"));
+        securityService = new SecurityService(repository, redMeansCat);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        repository.close();
+    }
+
+    @Test
+    void catDetection_isAggregatedAcrossCameras() throws Exception {
+        pipeline = new CameraStreamPipeline(securityService, redMeansCat);
+        pipeline.addCamera("porch");
+        pipeline.addCamera("garden");
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        pipeline.offer("porch", png(Color.RED));
+        awaitTrue(() -> securityService.getAlarmStatus() == AlarmStatus.ALARM);
+
+        //the garden seeing nothing doesn't clear the porch's cat
+        pipeline.offer("garden", png(Color.GREEN));
+        awaitTrue(() -> pipeline.getProcessedCount() == 2);
+        assertEquals(1, pipeline.getCamerasSeeingCat());
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+
+        pipeline.offer("porch", png(Color.GREEN));
+        awaitTrue(() -> securityService.getAlarmStatus() == AlarmStatus.NO_ALARM);
+        assertEquals(0, pipeline.getCamerasSeeingCat());
+    }
+
+    @Test
+    void noisyCamera_dropsOwnOldestFramesWithoutStarvingOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> analysed = new CopyOnWriteArrayList<>();
+        ImageService slow = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                analysed.add(image.getRGB(0, 0) & 0xFF);
+                return false;
+            }
+        };
+        pipeline = new CameraStreamPipeline(securityService, cameraId -> slow, 4, 1);
+        pipeline.addCamera("noisy");
+        pipeline.addCamera("quiet");
+
+        //the first frame occupies the only worker, the rest pile up behind it
+        for (int i = 0; i < 100; i++) {
+            pipeline.offer("noisy", png(new Color(0, 0, i)));
+            if (i == 0) {
+                awaitTrue(() -> pipeline.getQueueDepth("noisy") == 0);
+            }
+        }
+        pipeline.offer("quiet", png(new Color(0, 0, 200)));
+        assertEquals(4, pipeline.getQueueDepth("noisy"));
+        assertEquals(95, pipeline.getDroppedCount("noisy"));
+
+        release.countDown();
+        awaitTrue(() -> pipeline.getProcessedCount() == 6);
+        //the noisy camera went to the back of the line after its first frame, behind the quiet one
+        assertEquals(List.of(0, 200, 96, 97, 98, 99), analysed);
+    }
+
+    @Test
+    void mjpegFile_framesBetweenMultipartHeadersAreDelivered() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (Color color : new Color[]{Color.GREEN, Color.RED, Color.GREEN}) {
+            stream.write("--frame\r\nContent-Type: image/jpeg\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            stream.write(jpeg(color));
+            stream.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        Path file = directory.resolve("porch.mjpeg");
+        Files.write(file, stream.toByteArray());
+
+        List<byte[]> frames = new CopyOnWriteArrayList<>();
+        MjpegFrameSource source = MjpegFrameSource.file(file, Duration.ZERO);
+        source.start(frames::add);
+        awaitTrue(() -> frames.size() == 3);
+        source.close();
+
+        assertTrue(redMeansCat.imageContainsCat(ImageIO.read(new ByteArrayInputStream(frames.get(1)))));
+        assertFalse(redMeansCat.imageContainsCat(ImageIO.read(new ByteArrayInputStream(frames.get(0)))));
+    }
+
+    @Test
+    void directorySource_newFilesBecomeFrames() throws Exception {
+        Path snapshots = Files.createDirectory(directory.resolve("snapshots"));
+        pipeline = new CameraStreamPipeline(securityService, redMeansCat);
+        pipeline.addCamera("driveway", new DirectoryFrameSource(snapshots));
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        Path tmp = directory.resolve("frame.tmp");
+        Files.write(tmp, png(Color.RED));
+        Files.move(tmp, snapshots.resolve("frame-1.png"));
+
+        awaitTrue(() -> pipeline.isCatDetected("driveway"));
+        awaitTrue(() -> securityService.getAlarmStatus() == AlarmStatus.ALARM);
+    }
+
+    @Test
+    void directorySource_fileMovedIntoPlace_isDeliveredOnce() throws Exception {
+        Path snapshots = Files.createDirectory(directory.resolve("snapshots"));
+        List<byte[]> frames = new CopyOnWriteArrayList<>();
+        DirectoryFrameSource source = new DirectoryFrameSource(snapshots);
+        source.start(frames::add);
+        try {
+            Path tmp = directory.resolve("frame.tmp");
+            Files.write(tmp, png(Color.RED));
+            Files.move(tmp, snapshots.resolve("frame-1.png"));
+            awaitTrue(() -> frames.size() == 1);
+            Thread.sleep(200);
+        } finally {
+            source.close();
+        }
+        assertEquals(1, frames.size());
+    }
+
+    @Test
+    void cameraThatGoesQuiet_stopsCountingAsSeeingCat() throws Exception {
+        AtomicLong now = new AtomicLong();
+        pipeline = new CameraStreamPipeline(securityService, cameraId -> redMeansCat, 4, 1,
+                Duration.ofSeconds(30), now::get);
+        pipeline.addCamera("porch");
+        pipeline.addCamera("garden");
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        pipeline.offer("porch", png(Color.RED));
+        awaitTrue(() -> securityService.getAlarmStatus() == AlarmStatus.ALARM);
+
+        //the garden keeps sending frames, the porch never sends another
+        now.addAndGet(Duration.ofSeconds(20).toNanos());
+        pipeline.offer("garden", png(Color.GREEN));
+        awaitTrue(() -> pipeline.getProcessedCount() == 2);
+        Thread.sleep(50);
+        assertTrue(pipeline.isCatDetected("porch"));
+
+        now.addAndGet(Duration.ofSeconds(20).toNanos());
+        awaitTrue(() -> !pipeline.isCatDetected("porch"));
+        assertEquals(1, pipeline.getExpiredCount());
+        assertEquals(0, pipeline.getCamerasSeeingCat());
+    }
+
+    @Test
+    void mjpegSocket_silentFeed_timesOutAndReconnects() throws Exception {
+        try (ServerSocket camera = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            MjpegFrameSource source = MjpegFrameSource.socket(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), camera.getLocalPort()),
+                    Duration.ofSeconds(1), Duration.ofMillis(100));
+            source.start(frame -> { });
+            try (Socket silent = camera.accept()) {
+                //never sends a frame; the source gives up on it and connects again
+                camera.setSoTimeout(5_000);
+                try (Socket second = camera.accept()) {
+                    assertTrue(second.isConnected());
+                }
+            } finally {
+                source.close();
+            }
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static byte[] png(Color color) throws IOException {
+        return encode(color, "png");
+    }
+
+    private static byte[] jpeg(Color color) throws IOException {
+        return encode(color, "jpg");
+    }
+
+    private static byte[] encode(Color color, String format) throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                image.setRGB(x, y, color.getRGB());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,160 @@
+package com.udacity.catpoint.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppendOnlyLogSecurityRepositoryImplTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopen_replaysSensorsAndStatuses() {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+
+        AppendOnlyLogSecurityRepositoryImpl repository = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        door.setActive(true);
+        repository.updateSensor(door);
+        repository.removeSensor(window);
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        repository.close();
+
+        AppendOnlyLogSecurityRepositoryImpl reopened = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        assertEquals(1, reopened.getSensors().size());
+        Sensor restored = reopened.getSensors().iterator().next();
+        assertEquals(door, restored);
+        assertEquals("Front Door", restored.getName());
+        assertEquals(SensorType.DOOR, restored.getSensorType());
+        assertTrue(restored.getActive());
+        assertEquals(ArmingStatus.ARMED_AWAY, reopened.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+        reopened.close();
+    }
+
+    @Test
+    void reopen_afterSegmentRollOver_restoresLatestState() {
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+
+        //small segments force several roll-overs and background snapshots
+        AppendOnlyLogSecurityRepositoryImpl repository = new AppendOnlyLogSecurityRepositoryImpl(directory, 256);
+        repository.addSensor(motion);
+        for (int i = 0; i < 1001; i++) {
+            motion.setActive(i % 2 == 0);
+            repository.updateSensor(motion);
+        }
+        repository.close();
+
+        AppendOnlyLogSecurityRepositoryImpl reopened = new AppendOnlyLogSecurityRepositoryImpl(directory, 256);
+        assertEquals(1, reopened.getSensors().size());
+        assertTrue(reopened.getSensors().iterator().next().getActive());
+        reopened.close();
+    }
+
+    @Test
+    void snapshot_nameLongerInModifiedUtf8ThanItsPrefixAllows_isWritten() throws IOException {
+        //4 bytes each in UTF-8, so it fits the log, but 6 in the modified UTF-8 of writeUTF
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 12_000; i++) {
+            name.appendCodePoint(0x1F408);
+        }
+        Sensor cat = new Sensor(name.toString(), SensorType.MOTION);
+
+        AppendOnlyLogSecurityRepositoryImpl repository = new AppendOnlyLogSecurityRepositoryImpl(directory, 64 * 1024);
+        repository.addSensor(cat);
+        //roll over into a second segment, so the first is snapshotted and deleted
+        for (int i = 0; i < 1000; i++) {
+            cat.setActive(i % 2 == 0);
+            repository.updateSensor(cat);
+        }
+        repository.close();
+        assertEquals(0, repository.getSnapshotFailureCount());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(f -> f.getFileName().toString().startsWith("wal-")).count());
+        }
+
+        AppendOnlyLogSecurityRepositoryImpl reopened = new AppendOnlyLogSecurityRepositoryImpl(directory, 64 * 1024);
+        assertEquals(name.toString(), reopened.getSensors().iterator().next().getName());
+        reopened.close();
+    }
+
+    @Test
+    void updateSensor_renamedSensor_isPersisted() {
+        Sensor sensor = new Sensor("Old Name", SensorType.WINDOW);
+
+        AppendOnlyLogSecurityRepositoryImpl repository = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        repository.addSensor(sensor);
+        sensor.setName("New Name");
+        repository.updateSensor(sensor);
+        repository.close();
+
+        AppendOnlyLogSecurityRepositoryImpl reopened = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        assertEquals("New Name", reopened.getSensors().iterator().next().getName());
+        reopened.close();
+    }
+
+    @Test
+    void getActiveSensorCount_tracksTogglesAndSurvivesReopen() {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+
+        AppendOnlyLogSecurityRepositoryImpl repository = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        assertEquals(0, repository.getActiveSensorCount());
+
+        door.setActive(true);
+        repository.updateSensor(door);
+        window.setActive(true);
+        repository.updateSensor(window);
+        assertEquals(2, repository.getActiveSensorCount());
+
+        repository.removeSensor(window);
+        assertEquals(1, repository.getActiveSensorCount());
+        repository.close();
+
+        AppendOnlyLogSecurityRepositoryImpl reopened = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        assertEquals(1, reopened.getActiveSensorCount());
+        reopened.close();
+    }
+
+    @Test
+    void openImporting_emptyDirectory_copiesPreviousRepositoryOnce() {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        door.setActive(true);
+        AppendOnlyLogSecurityRepositoryImpl previous = new AppendOnlyLogSecurityRepositoryImpl(directory.resolve("previous"));
+        previous.addSensor(door);
+        previous.setArmingStatus(ArmingStatus.ARMED_HOME);
+        previous.setAlarmStatus(AlarmStatus.ALARM);
+
+        AppendOnlyLogSecurityRepositoryImpl imported = AppendOnlyLogSecurityRepositoryImpl.openImporting(
+                directory.resolve("log"), () -> previous);
+        assertEquals(Set.of(door), imported.getSensors());
+        assertTrue(imported.getSensors().iterator().next().getActive());
+        assertEquals(1, imported.getActiveSensorCount());
+        assertEquals(ArmingStatus.ARMED_HOME, imported.getArmingStatus());
+        assertEquals(AlarmStatus.ALARM, imported.getAlarmStatus());
+        imported.removeSensor(door);
+        imported.close();
+        previous.close();
+
+        AppendOnlyLogSecurityRepositoryImpl reopened = AppendOnlyLogSecurityRepositoryImpl.openImporting(
+                directory.resolve("log"), () -> {
+                    throw new AssertionError("log already exists, nothing to import");
+                });
+        assertTrue(reopened.getSensors().isEmpty());
+        assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+        reopened.close();
+    }
+}
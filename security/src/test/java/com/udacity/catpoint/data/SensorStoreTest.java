@@ -0,0 +1,81 @@
+package com.udacity.catpoint.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorStoreTest {
+
+    @Test
+    void put_thenLookupById_returnsSlotWithSameColumns() {
+        SensorStore store = new SensorStore();
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        door.setActive(true);
+
+        int slot = store.put(door);
+
+        assertEquals(slot, store.slotOf(door.getSensorId()));
+        assertEquals("Front Door", store.getName(slot));
+        assertEquals(SensorType.DOOR, store.getSensorType(slot));
+        assertTrue(store.isActive(slot));
+        assertEquals(1, store.getActiveCount());
+        assertSame(door, store.getSensor(slot));
+    }
+
+    @Test
+    void setActive_updatesCountAndHandedOutSensor() {
+        SensorStore store = new SensorStore();
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        int slot = store.put(window);
+
+        store.setActive(slot, true);
+        assertTrue(window.getActive());
+        assertEquals(1, store.getActiveCount());
+
+        store.setActive(slot, false);
+        assertFalse(window.getActive());
+        assertEquals(0, store.getActiveCount());
+    }
+
+    @Test
+    void put_sameNameTwice_sharesOneNameInstance() {
+        SensorStore store = new SensorStore();
+        int first = store.put(new Sensor(new String("Motion"), SensorType.MOTION));
+        int second = store.put(new Sensor(new String("Motion"), SensorType.MOTION));
+
+        assertSame(store.getName(first), store.getName(second));
+    }
+
+    @Test
+    void removeMany_keepsRemainingSensorsReachableAcrossGrowth() {
+        SensorStore store = new SensorStore(4);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % 3]);
+            sensor.setActive(i % 4 == 0);
+            sensors.add(sensor);
+            store.put(sensor);
+        }
+
+        for (int i = 0; i < 1000; i += 2) {
+            Sensor sensor = sensors.get(i);
+            assertTrue(store.remove(sensor.getSensorId().getMostSignificantBits(),
+                    sensor.getSensorId().getLeastSignificantBits()));
+        }
+
+        assertEquals(500, store.size());
+        assertEquals(0, store.getActiveCount());
+        for (int i = 0; i < 1000; i++) {
+            int slot = store.slotOf(sensors.get(i).getSensorId());
+            if (i % 2 == 0) {
+                assertEquals(-1, slot);
+            } else {
+                assertEquals("Sensor " + i, store.getName(slot));
+                assertSame(sensors.get(i), store.getSensor(slot));
+            }
+        }
+    }
+}
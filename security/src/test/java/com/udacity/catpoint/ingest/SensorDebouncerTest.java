@@ -0,0 +1,114 @@
+package com.udacity.catpoint.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorDebouncerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final SensorDebouncer.SensorLookup ANY = (mostSig, leastSig) -> true;
+
+    private long now = -1_000 * MS;
+    private final List<String> released = new ArrayList<>();
+
+    private SensorEvent event(long id, boolean active) {
+        SensorEvent event = new SensorEvent();
+        event.sensorIdMostSigBits = id;
+        event.sensorIdLeastSigBits = -id;
+        event.active = active;
+        return event;
+    }
+
+    private void poll(SensorDebouncer debouncer) {
+        debouncer.pollDue((mostSig, leastSig, active) -> released.add(mostSig + "=" + active));
+    }
+
+    @Test
+    void repeats_droppedWithinRepeatWindow_passedAfter() {
+        SensorDebouncer debouncer = new SensorDebouncer(0, 0, 100 * MS, 16, () -> now);
+
+        assertTrue(debouncer.accept(event(1, true), ANY));
+        now += 50 * MS;
+        assertFalse(debouncer.accept(event(1, true), ANY));
+        assertTrue(debouncer.accept(event(2, true), ANY));
+        now += 60 * MS;
+        assertTrue(debouncer.accept(event(1, true), ANY));
+        assertFalse(debouncer.accept(event(1, true), ANY));
+        assertEquals(2, debouncer.getSuppressedCount());
+    }
+
+    @Test
+    void chatteringContact_passesOneChangeEachWay() {
+        SensorDebouncer debouncer = new SensorDebouncer(200 * MS, 0, 0, 16, () -> now);
+
+        //opens, then bounces for a while before settling closed
+        assertTrue(debouncer.accept(event(1, true), ANY));
+        for (int i = 0; i < 5; i++) {
+            now += 10 * MS;
+            assertFalse(debouncer.accept(event(1, false), ANY));
+            now += 10 * MS;
+            assertFalse(debouncer.accept(event(1, true), ANY));
+        }
+        now += 10 * MS;
+        assertFalse(debouncer.accept(event(1, false), ANY));
+        poll(debouncer);
+        assertTrue(released.isEmpty());
+
+        now += 100 * MS;
+        poll(debouncer);
+        assertEquals(List.of("1=false"), released);
+        poll(debouncer);
+        assertEquals(1, released.size());
+
+        //with no hold on activations, reopening is passed on at once
+        assertTrue(debouncer.accept(event(1, true), ANY));
+    }
+
+    @Test
+    void bounceThatReverts_isNeverPassedOn() {
+        SensorDebouncer debouncer = new SensorDebouncer(100 * MS, 0, 0, 16, () -> now);
+
+        assertTrue(debouncer.accept(event(1, true), ANY));
+        assertTrue(debouncer.accept(event(2, true), ANY));
+        now += 10 * MS;
+        assertFalse(debouncer.accept(event(1, false), ANY));
+        assertFalse(debouncer.accept(event(2, false), ANY));
+        assertFalse(debouncer.accept(event(1, true), ANY));
+
+        now += 200 * MS;
+        poll(debouncer);
+        assertEquals(List.of("2=false"), released);
+    }
+
+    @Test
+    void sensorsBeyondCapacity_passUnfiltered() {
+        SensorDebouncer debouncer = new SensorDebouncer(100 * MS, 100 * MS, 100 * MS, 1, () -> now);
+
+        assertTrue(debouncer.accept(event(1, true), ANY));
+        assertFalse(debouncer.accept(event(1, true), ANY));
+        assertTrue(debouncer.accept(event(2, true), ANY));
+        assertTrue(debouncer.accept(event(2, true), ANY));
+        assertTrue(debouncer.accept(event(2, false), ANY));
+        assertEquals(3, debouncer.getUntrackedCount());
+    }
+
+    @Test
+    void unknownSensors_passUnfilteredWithoutTakingASlot() {
+        SensorDebouncer debouncer = new SensorDebouncer(100 * MS, 100 * MS, 100 * MS, 1, () -> now);
+        SensorDebouncer.SensorLookup onlyOne = (mostSig, leastSig) -> mostSig == 1;
+
+        for (int id = 2; id < 100; id++) {
+            assertTrue(debouncer.accept(event(id, true), onlyOne));
+            assertTrue(debouncer.accept(event(id, true), onlyOne));
+        }
+        //spoofed ids didn't use up the only slot
+        assertTrue(debouncer.accept(event(1, true), onlyOne));
+        assertFalse(debouncer.accept(event(1, true), onlyOne));
+        assertEquals(0, debouncer.getUntrackedCount());
+    }
+}
@@ -0,0 +1,244 @@
+package com.udacity.catpoint.ingest;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.AppendOnlyLogSecurityRepositoryImpl;
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorIngestionGatewayTest {
+
+    @TempDir
+    Path directory;
+
+    private AppendOnlyLogSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private SensorIngestionGateway gateway;
+    private Sensor door;
+    private Sensor window;
+
+    @BeforeEach
+    void init() throws IOException {
+        repository = new AppendOnlyLogSecurityRepositoryImpl(directory);
+        securityService = new SecurityService(repository, image -> false);
+        door = new Sensor("Front Door", SensorType.DOOR);
+        window = new Sensor("Kitchen Window", SensorType.WINDOW);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        gateway = new SensorIngestionGateway(securityService, loopback, loopback);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+        repository.close();
+    }
+
+    @Test
+    void codec_roundTrip_preservesIdAndState() {
+        UUID id = UUID.randomUUID();
+        ByteBuffer buffer = ByteBuffer.allocate(SensorEventCodec.MESSAGE_BYTES);
+        SensorEventCodec.encode(id, true, buffer);
+        buffer.flip();
+
+        SensorEvent event = new SensorEvent();
+        assertTrue(SensorEventCodec.decode(buffer, event));
+        assertEquals(id, event.getSensorId());
+        assertTrue(event.isActive());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void udp_datagramWithSeveralMessages_appliesEachToSecurityService() throws Exception {
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        ByteBuffer datagram = ByteBuffer.allocate(3 * SensorEventCodec.MESSAGE_BYTES);
+        SensorEventCodec.encode(door.getSensorId(), true, datagram);
+        SensorEventCodec.encode(window.getSensorId(), true, datagram);
+        SensorEventCodec.encode(UUID.randomUUID(), true, datagram);
+        datagram.flip();
+
+        try (DatagramChannel client = DatagramChannel.open()) {
+            client.send(datagram, gateway.getUdpAddress());
+        }
+
+        awaitTrue(() -> gateway.getAppliedCount() + gateway.getUnknownSensorCount() == 3);
+        assertEquals(2, gateway.getAppliedCount());
+        assertEquals(1, gateway.getUnknownSensorCount());
+        assertTrue(door.getActive());
+        assertTrue(window.getActive());
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void tcp_messageSplitAcrossWrites_isReassembled() throws Exception {
+        ByteBuffer message = ByteBuffer.allocate(SensorEventCodec.MESSAGE_BYTES);
+        SensorEventCodec.encode(door.getSensorId(), true, message);
+        message.flip();
+
+        try (SocketChannel client = SocketChannel.open(gateway.getTcpAddress())) {
+            ByteBuffer head = message.duplicate();
+            head.limit(7);
+            client.write(head);
+            Thread.sleep(50);
+            message.position(7);
+            client.write(message);
+
+            awaitTrue(() -> gateway.getAppliedCount() == 1);
+        }
+        assertTrue(door.getActive());
+        assertEquals(0, gateway.getMalformedCount());
+    }
+
+    @Test
+    void tcp_badMagic_countsMalformedAndDropsConnection() throws Exception {
+        try (SocketChannel client = SocketChannel.open(gateway.getTcpAddress())) {
+            client.write(ByteBuffer.allocate(SensorEventCodec.MESSAGE_BYTES));
+
+            awaitTrue(() -> gateway.getMalformedCount() == 1);
+            client.configureBlocking(true);
+            assertEquals(-1, client.read(ByteBuffer.allocate(1)));
+        }
+        assertFalse(door.getActive());
+    }
+
+    @Test
+    void tcp_connectionResetWhileBeingAccepted_isDroppedAndIngestionCarriesOn() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        try (SensorIngestionGateway resetting = new SensorIngestionGateway(securityService, null,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)) {
+            @Override
+            void configure(SocketChannel connection) throws IOException {
+                super.configure(connection);
+                if (accepted.incrementAndGet() == 1) {
+                    throw new IOException("Connection reset by peer");
+                }
+            }
+        }) {
+            try (SocketChannel reset = SocketChannel.open(resetting.getTcpAddress())) {
+                reset.setOption(StandardSocketOptions.SO_LINGER, 0);
+                awaitTrue(() -> resetting.getFailedConnectionCount() == 1);
+                //the half set up connection was closed rather than leaked
+                assertEquals(-1, reset.read(ByteBuffer.allocate(1)));
+            }
+
+            ByteBuffer message = ByteBuffer.allocate(SensorEventCodec.MESSAGE_BYTES);
+            SensorEventCodec.encode(door.getSensorId(), true, message);
+            message.flip();
+            try (SocketChannel client = SocketChannel.open(resetting.getTcpAddress())) {
+                client.write(message);
+                awaitTrue(() -> resetting.getAppliedCount() == 1);
+            }
+            assertTrue(door.getActive());
+            assertNull(resetting.getFailure());
+            assertEquals(1, resetting.getFailedConnectionCount());
+        }
+    }
+
+    @Test
+    void udp_reactivatingActiveSensor_escalatesPendingAlarm() throws Exception {
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        try (DatagramChannel client = DatagramChannel.open()) {
+            send(client, gateway, door, true);
+            awaitTrue(() -> gateway.getAppliedCount() == 1);
+            assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+            send(client, gateway, door, true);
+            awaitTrue(() -> gateway.getAppliedCount() == 2);
+        }
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void close_whileEveryBatchIsWaiting_returnsPromptly() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService stateThread = Executors.newSingleThreadExecutor();
+        //stall the state thread so no batch is recycled
+        stateThread.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        SecurityService stalledService = new SecurityService(repository, image -> false, stateThread);
+        SensorIngestionGateway stalled = new SensorIngestionGateway(stalledService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, null, 1, 1);
+        try (DatagramChannel client = DatagramChannel.open()) {
+            send(client, stalled, door, true);
+            send(client, stalled, window, true);
+            awaitTrue(() -> stalled.getReceivedCount() == 1);
+            //give the selector thread time to start waiting for the only batch
+            Thread.sleep(50);
+
+            long start = System.nanoTime();
+            stalled.close();
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertNull(stalled.getFailure());
+        } finally {
+            release.countDown();
+            stateThread.shutdown();
+        }
+    }
+
+    @Test
+    void debouncer_bouncingDoor_appliesOneChangeEachWay() throws Exception {
+        SensorDebouncer debouncer = new SensorDebouncer(100, 0, 1000, TimeUnit.MILLISECONDS, 16);
+        try (SensorIngestionGateway debounced = new SensorIngestionGateway(securityService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null, debouncer);
+             DatagramChannel client = DatagramChannel.open()) {
+            ByteBuffer datagram = ByteBuffer.allocate(5 * SensorEventCodec.MESSAGE_BYTES);
+            SensorEventCodec.encode(door.getSensorId(), true, datagram);
+            SensorEventCodec.encode(door.getSensorId(), false, datagram);
+            SensorEventCodec.encode(door.getSensorId(), true, datagram);
+            SensorEventCodec.encode(door.getSensorId(), false, datagram);
+            SensorEventCodec.encode(door.getSensorId(), false, datagram);
+            datagram.flip();
+            client.send(datagram, debounced.getUdpAddress());
+
+            awaitTrue(() -> debounced.getAppliedCount() == 2);
+            assertEquals(5, debounced.getReceivedCount());
+            assertEquals(2, debounced.getDebouncedCount());
+            assertFalse(door.getActive());
+        }
+    }
+
+    private static void send(DatagramChannel client, SensorIngestionGateway target, Sensor sensor,
+                             boolean active) throws IOException {
+        ByteBuffer datagram = ByteBuffer.allocate(SensorEventCodec.MESSAGE_BYTES);
+        SensorEventCodec.encode(sensor.getSensorId(), active, datagram);
+        datagram.flip();
+        client.send(datagram, target.getUdpAddress());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.udacity.catpoint.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyRecorderTest {
+
+    @Test
+    void bucketIndex_everyValueFallsInsideItsBucket() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(4) == 0 ? random.nextInt(1_000) : (long) (random.nextDouble() * 3.6e12);
+            int index = LatencyRecorder.bucketIndex(value);
+            assertTrue(LatencyRecorder.highestValueInBucket(index) >= value);
+            assertTrue(index == 0 || LatencyRecorder.highestValueInBucket(index - 1) < value);
+        }
+    }
+
+    @Test
+    void getValueAtPercentile_uniformValues_withinBucketPrecision() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            recorder.record(micros * 1_000);
+        }
+
+        assertEquals(10_000, recorder.getCount());
+        assertEquals(5_000_500, recorder.getMeanNanos(), 1);
+        assertEquals(10_000_000, recorder.getMaxNanos());
+        assertWithinPrecision(5_000_000, recorder.getValueAtPercentile(50));
+        assertWithinPrecision(9_900_000, recorder.getValueAtPercentile(99));
+        assertWithinPrecision(9_990_000, recorder.getValueAtPercentile(99.9));
+        assertEquals(10_000_000, recorder.getValueAtPercentile(100));
+    }
+
+    @Test
+    void record_outOfRangeValues_areClamped() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(-5);
+        recorder.record(Long.MAX_VALUE);
+
+        assertEquals(2, recorder.getCount());
+        assertEquals(0, recorder.getValueAtPercentile(50));
+        assertEquals(3_600_000_000_000L, recorder.getMaxNanos());
+    }
+
+    @Test
+    void record_manyThreads_losesNothing() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        int threads = 4;
+        int perThread = 100_000;
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    recorder.record(1_000 + i % 64);
+                }
+            });
+            recorders.add(thread);
+            thread.start();
+        }
+        for (Thread thread : recorders) {
+            thread.join();
+        }
+
+        assertEquals(threads * perThread, recorder.getCount());
+        assertWithinPrecision(1_063, recorder.getValueAtPercentile(100));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertEquals(expected, actual, expected / LatencyRecorder.SUB_BUCKETS + 1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.udacity.catpoint.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    void snapshot_subMicrosecondLatency_isNotRoundedToZero() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        LatencyRecorder recorder = metrics.latency("dispatch");
+        recorder.record(200);
+        recorder.record(400);
+
+        double mean = metrics.snapshot().get("dispatch.mean_us").doubleValue();
+        assertEquals(0.3, mean, 1e-9);
+        assertTrue(metrics.snapshot().get("dispatch.max_us").doubleValue() > 0);
+        assertTrue(metrics.toText().contains("dispatch.mean_us 0.300\n"), metrics.toText());
+    }
+
+    @Test
+    void mbean_invokingAnOperation_throwsReflectionException() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("frames").increment();
+        ObjectName name = metrics.registerMBean("com.udacity.catpoint.test:type=MetricsRegistryTest");
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "frames"));
+            ReflectionException e = assertThrows(ReflectionException.class, () ->
+                    ManagementFactory.getPlatformMBeanServer().invoke(name, "reset", new Object[0], new String[0]));
+            assertTrue(e.getCause() instanceof NoSuchMethodException);
+        } finally {
+            metrics.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.udacity.catpoint.server;
+
+import com.udacity.catpoint.data.ArmingStatus;
+import com.udacity.catpoint.data.Sensor;
+import com.udacity.catpoint.data.SensorType;
+import com.udacity.catpoint.image.VirtualThreads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.BindException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.awt.image.BufferedImage;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatpointServerTest {
+
+    @TempDir
+    Path directory;
+
+    private CatpointServer server;
+
+    @BeforeEach
+    void init() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("repository.dir", directory.toString());
+        props.setProperty("control.port", "0");
+        server = new CatpointServer(new ServerConfig(props));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void controlApi_armAndActivateSensor_reflectedInStatus() throws IOException {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        server.getSecurityService().submit(s -> s.addSensor(door)).join();
+
+        assertEquals(204, request("POST", "/arming", "ARMED_AWAY"));
+        assertEquals(204, request("POST", "/sensors/" + door.getSensorId(), "true"));
+
+        assertEquals(ArmingStatus.ARMED_AWAY, server.getSecurityService().getArmingStatus());
+        String status = get("/status");
+        assertTrue(status.contains("arming=ARMED_AWAY\n"));
+        assertTrue(status.contains("alarm=PENDING_ALARM\n"));
+        assertTrue(status.contains("activeSensors=1\n"));
+        assertTrue(get("/sensors").startsWith(door.getSensorId() + " true DOOR Front Door"));
+    }
+
+    @Test
+    void controlApi_badRequests_areRejected() throws IOException {
+        assertEquals(400, request("POST", "/arming", "ARMED_SOMEWHERE"));
+        assertEquals(404, request("POST", "/sensors/" + UUID.randomUUID(), "true"));
+        assertEquals(405, request("GET", "/arming", null));
+    }
+
+    @Test
+    void controlApi_addAndRemoveSensor() throws IOException {
+        String id = post("/sensors", "WINDOW Kitchen Window").trim();
+        assertTrue(get("/sensors").startsWith(id + " false WINDOW Kitchen Window"));
+
+        assertEquals(400, request("POST", "/sensors", "WINDOW"));
+        assertEquals(400, request("POST", "/sensors", "SKYLIGHT Roof"));
+        assertEquals(204, request("DELETE", "/sensors/" + id, null));
+        assertEquals(404, request("DELETE", "/sensors/" + id, null));
+        assertEquals("", get("/sensors"));
+    }
+
+    @Test
+    void failedStart_closesWhatWasAlreadyOpened() throws IOException {
+        int ingestPort;
+        try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            ingestPort = probe.getLocalPort();
+        }
+        try (ServerSocket taken = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Properties props = new Properties();
+            props.setProperty("repository.dir", directory.resolve("failed").toString());
+            props.setProperty("control.port", Integer.toString(taken.getLocalPort()));
+            props.setProperty("ingest.tcp", "127.0.0.1:" + ingestPort);
+
+            assertThrows(BindException.class, () -> new CatpointServer(new ServerConfig(props)));
+        }
+        //the ingestion gateway was started before the control API failed, and has let go of its port
+        try (ServerSocket reused = new ServerSocket(ingestPort, 1, InetAddress.getLoopbackAddress())) {
+            assertEquals(ingestPort, reused.getLocalPort());
+        }
+    }
+
+    @Test
+    void virtualImageThreads_scanFramesOrFallBackToPlatformPool() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("repository.dir", directory.resolve("virtual").toString());
+        props.setProperty("control.port", "0");
+        props.setProperty("image.threads", "virtual");
+        props.setProperty("image.inFlight", "8");
+        try (CatpointServer virtual = new CatpointServer(new ServerConfig(props))) {
+            BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+            virtual.getSecurityService().processImageAsync(image).join();
+
+            String metrics = virtual.getMetrics().toText();
+            assertTrue(metrics.contains("image.recognition.count 1\n"), metrics);
+            assertTrue(metrics.contains("image.virtualThreads " + (VirtualThreads.isAvailable() ? 1 : 0) + "\n"), metrics);
+        }
+    }
+
+    @Test
+    void imageBatch_sendsFramesThroughTheBatcher() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("repository.dir", directory.resolve("batch").toString());
+        props.setProperty("control.port", "0");
+        props.setProperty("image.service", "local");
+        props.setProperty("image.model", zeroWeightModel().toString());
+        props.setProperty("image.batch", "4");
+        props.setProperty("image.batch.window", "1");
+        try (CatpointServer batching = new CatpointServer(new ServerConfig(props))) {
+            BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+            batching.getSecurityService().processImageAsync(image).join();
+
+            String metrics = batching.getMetrics().toText();
+            assertTrue(metrics.contains("image.recognition.count 1\n"), metrics);
+            assertTrue(metrics.contains("image.batch.windowMicros "), metrics);
+            assertFalse(metrics.contains("image.inFlight "), metrics);
+        }
+    }
+
+    @Test
+    void localImageService_withoutModel_failsStartup() {
+        Properties props = new Properties();
+        props.setProperty("repository.dir", directory.resolve("local").toString());
+        props.setProperty("control.port", "0");
+        props.setProperty("image.service", "local");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new CatpointServer(new ServerConfig(props)));
+        assertTrue(e.getMessage().contains("image.model"), e.getMessage());
+    }
+
+    @Test
+    void metrics_reportSensorChangesOverHttpAndJmx() throws Exception {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        server.getSecurityService().submit(s -> s.addSensor(door)).join();
+        assertEquals(204, request("POST", "/sensors/" + door.getSensorId(), "true"));
+        assertEquals(204, request("POST", "/sensors/" + door.getSensorId(), "false"));
+
+        String metrics = get("/metrics");
+        assertTrue(metrics.contains("security.changeSensorActivationStatus.count 2\n"), metrics);
+        assertTrue(metrics.contains("security.repositoryWrite.count 3\n"), metrics);
+        assertTrue(metrics.contains("image.recognition.count 0\n"), metrics);
+
+        //the mbean is registered in the background
+        ObjectName mbean = new ObjectName(CatpointServer.METRICS_MBEAN);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!ManagementFactory.getPlatformMBeanServer().isRegistered(mbean) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(mbean,
+                "security.changeSensorActivationStatus.count");
+        assertEquals(2L, count);
+    }
+
+    //one weight per LocalImageService feature, so every frame scores exactly the threshold
+    private Path zeroWeightModel() throws IOException {
+        StringBuilder model = new StringBuilder("model.weights=0");
+        for (int i = 1; i < 22; i++) {
+            model.append(",0");
+        }
+        model.append('\n');
+        return Files.write(directory.resolve("cat-model.properties"),
+                model.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private int request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int code = connection.getResponseCode();
+        connection.disconnect();
+        return code;
+    }
+
+    private String post(String path, String body) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream is = connection.getInputStream()) {
+            assertEquals(201, connection.getResponseCode());
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = open(path);
+        try (InputStream is = connection.getInputStream()) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        int port = server.getControlApi().getAddress().getPort();
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+    }
+}
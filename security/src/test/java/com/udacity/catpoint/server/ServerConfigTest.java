@@ -0,0 +1,104 @@
+package com.udacity.catpoint.server;
+
+import com.udacity.catpoint.image.FramePreprocessor;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerConfigTest {
+
+    private static ServerConfig config(String... keyValues) {
+        Properties props = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            props.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return new ServerConfig(props);
+    }
+
+    /**
+     * Left half red, right half blue.
+     */
+    private static BufferedImage frame(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, width / 2, height);
+        g.setColor(Color.BLUE);
+        g.fillRect(width / 2, 0, width - width / 2, height);
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void parseRegions_readsFractionsSeparatedBySemicolons() {
+        assertEquals(Arrays.asList(new FramePreprocessor.Region(0, 0, 0.5, 1), new FramePreprocessor.Region(0.25, 0.5, 0.5, 0.5)),
+                ServerConfig.parseRegions(" 0,0,0.5,1 ; 0.25, 0.5, 0.5, 0.5;"));
+        assertTrue(ServerConfig.parseRegions(null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ServerConfig.parseRegions("0,0,1"));
+        assertThrows(IllegalArgumentException.class, () -> config("image.regions", "0.5,0,1,1").getFramePreprocessor());
+    }
+
+    @Test
+    void getCameras_skipsPerCameraSettings() {
+        ServerConfig config = config("camera.porch", "dir:/tmp/porch", "camera.porch.regions", "0,0,1,1",
+                "camera.queue", "2");
+        assertEquals(1, config.getCameras().size());
+        assertEquals("dir:/tmp/porch", config.getCameras().get("porch"));
+    }
+
+    @Test
+    void imageThreads_defaultToPlatformAndRejectUnknownModes() {
+        assertFalse(config().isVirtualImageThreads());
+        assertNull(config().getImageInFlight());
+        assertTrue(config("image.threads", " virtual ").isVirtualImageThreads());
+        assertEquals(Integer.valueOf(200), config("image.inFlight", "200").getImageInFlight());
+        assertThrows(IllegalArgumentException.class, () -> config("image.threads", "green").isVirtualImageThreads());
+    }
+
+    @Test
+    void ingestDebouncer_onlyCreatedWhenConfigured() {
+        assertNull(config().getIngestDebouncer());
+        assertNotNull(config("ingest.debounce.repeat", "500").getIngestDebouncer());
+        assertThrows(NumberFormatException.class, () -> config("ingest.debounce.active", "soon").getIngestDebouncer());
+    }
+
+    @Test
+    void framePreprocessor_scalesLargeFramesDownKeepingAspectRatio() {
+        FramePreprocessor preprocessor = config("image.width", "320", "image.height", "320").getFramePreprocessor();
+
+        BufferedImage prepared = preprocessor.prepare(frame(1920, 1080));
+        assertEquals(320, prepared.getWidth());
+        assertEquals(180, prepared.getHeight());
+        assertEquals(Color.RED.getRGB(), prepared.getRGB(10, 90));
+        assertEquals(Color.BLUE.getRGB(), prepared.getRGB(310, 90));
+
+        BufferedImage small = frame(200, 100);
+        assertSame(small, preprocessor.prepare(small));
+    }
+
+    @Test
+    void framePreprocessor_cropsToCameraRegionsAndBlanksTheRest() {
+        ServerConfig config = config("image.regions", "0,0,0.5,1",
+                "camera.porch.regions", "0,0,0.25,0.5;0.75,0.5,0.25,0.5");
+
+        BufferedImage leftHalf = config.getFramePreprocessor().prepare(frame(400, 200));
+        assertEquals(200, leftHalf.getWidth());
+        assertEquals(200, leftHalf.getHeight());
+        assertEquals(Color.RED.getRGB(), leftHalf.getRGB(199, 100));
+
+        //two opposite corners: the whole frame is kept, but the other corners are black
+        BufferedImage corners = config.getFramePreprocessor("porch").prepare(frame(400, 200));
+        assertEquals(400, corners.getWidth());
+        assertEquals(200, corners.getHeight());
+        assertEquals(Color.RED.getRGB(), corners.getRGB(10, 10));
+        assertEquals(Color.BLUE.getRGB(), corners.getRGB(390, 190));
+        assertEquals(Color.BLACK.getRGB(), corners.getRGB(390, 10));
+        assertEquals(Color.BLACK.getRGB(), corners.getRGB(10, 190));
+    }
+}
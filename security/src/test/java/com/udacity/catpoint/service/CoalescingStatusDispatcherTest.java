@@ -0,0 +1,180 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.application.StatusListener;
+import com.udacity.catpoint.data.AlarmStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingStatusDispatcherTest {
+
+    private CoalescingStatusDispatcher dispatcher;
+
+    @BeforeEach
+    void init() {
+        dispatcher = new CoalescingStatusDispatcher(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    void notify_burstWhileListenerBusy_deliversOnlyLatestStatus() throws InterruptedException {
+        BlockingListener listener = new BlockingListener();
+        StatusListener decorated = dispatcher.decorate(listener);
+
+        decorated.notify(AlarmStatus.PENDING_ALARM);
+        assertTrue(listener.entered.await(5, TimeUnit.SECONDS));
+
+        //listener is stuck on the first delivery, so these pile up in its mailbox
+        for (int i = 0; i < 10; i++) {
+            decorated.notify(i % 2 == 0 ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM);
+        }
+        decorated.notify(AlarmStatus.ALARM);
+        assertEquals(1, dispatcher.getQueueDepth(listener));
+        assertEquals(1, dispatcher.getQueueDepth());
+
+        listener.release.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM), listener.statuses);
+        assertEquals(10, dispatcher.getCoalescedCount());
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    void release_dropsMailboxAndPendingNotifications() throws InterruptedException {
+        BlockingListener listener = new BlockingListener();
+        StatusListener decorated = dispatcher.decorate(listener);
+        decorated.notify(AlarmStatus.PENDING_ALARM);
+        assertTrue(listener.entered.await(5, TimeUnit.SECONDS));
+        decorated.notify(AlarmStatus.ALARM);
+
+        dispatcher.release(listener);
+        decorated.notify(AlarmStatus.NO_ALARM);
+        listener.release.countDown();
+
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertFalse(listener.done.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(List.of(AlarmStatus.PENDING_ALARM), listener.statuses);
+        assertNotSame(decorated, dispatcher.decorate(listener));
+    }
+
+    @Test
+    void decorate_sameListenerTwice_sharesMailbox() {
+        BlockingListener listener = new BlockingListener();
+        assertSame(dispatcher.decorate(listener), dispatcher.decorate(listener));
+    }
+
+    @Test
+    void listenerThrowing_keepsReceivingLaterNotifications_asDoOthers() throws InterruptedException {
+        RecordingListener failing = new RecordingListener(true);
+        RecordingListener healthy = new RecordingListener(false);
+        StatusListener decoratedFailing = dispatcher.decorate(failing);
+        StatusListener decoratedHealthy = dispatcher.decorate(healthy);
+
+        for (AlarmStatus status : new AlarmStatus[]{AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM}) {
+            decoratedFailing.notify(status);
+            decoratedHealthy.notify(status);
+            assertTrue(failing.awaitStatus(status));
+            assertTrue(healthy.awaitStatus(status));
+        }
+        decoratedFailing.sensorStatusChanged();
+        assertTrue(failing.sensorChanges.await(5, TimeUnit.SECONDS));
+        //counted just after the listener returns
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatcher.getFailedCount() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(3, dispatcher.getFailedCount());
+    }
+
+    @Test
+    void notify_afterClose_isDroppedWithoutThrowing() {
+        StatusListener decorated = dispatcher.decorate(new RecordingListener(false));
+        dispatcher.close();
+
+        decorated.notify(AlarmStatus.ALARM);
+        decorated.sensorStatusChanged();
+    }
+
+    /**
+     * Records every notification and, if failing, throws after recording it.
+     */
+    private static class RecordingListener implements StatusListener {
+        private final boolean failing;
+        private final List<AlarmStatus> statuses = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sensorChanges = new CountDownLatch(1);
+
+        RecordingListener(boolean failing) {
+            this.failing = failing;
+        }
+
+        boolean awaitStatus(AlarmStatus status) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!statuses.contains(status) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return statuses.contains(status);
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+            statuses.add(status);
+            fail();
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            fail();
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            sensorChanges.countDown();
+            fail();
+        }
+
+        private void fail() {
+            if (failing) {
+                throw new IllegalStateException("listener failed");
+            }
+        }
+    }
+
+    private static class BlockingListener implements StatusListener {
+        private final List<AlarmStatus> statuses = new CopyOnWriteArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(2);
+
+        @Override
+        public void notify(AlarmStatus status) {
+            statuses.add(status);
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+        }
+    }
+}
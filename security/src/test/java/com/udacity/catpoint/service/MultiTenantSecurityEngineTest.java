@@ -0,0 +1,155 @@
+package com.udacity.catpoint.service;
+
+import com.udacity.catpoint.data.AlarmStatus;
+import com.udacity.catpoint.data.ArmingStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiTenantSecurityEngineTest {
+
+    private final List<String> alarms = new CopyOnWriteArrayList<>();
+    private MultiTenantSecurityEngine engine;
+
+    @BeforeEach
+    void init() {
+        engine = new MultiTenantSecurityEngine(4, (tenantId, status) -> alarms.add(tenantId + ":" + status));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void sensorChanges_followSecurityServiceRulesPerTenant() {
+        UUID door = UUID.randomUUID();
+        UUID window = UUID.randomUUID();
+        engine.addTenant(1).join();
+        engine.addTenant(2).join();
+        engine.addSensor(1, door).join();
+        engine.addSensor(1, window).join();
+        engine.addSensor(2, door).join();
+
+        engine.setArmingStatus(1, ArmingStatus.ARMED_AWAY).join();
+        engine.changeSensorActivationStatus(1, door, true).join();
+        assertEquals(AlarmStatus.PENDING_ALARM, engine.getAlarmStatus(1).join());
+        engine.changeSensorActivationStatus(1, window, true).join();
+        assertEquals(AlarmStatus.ALARM, engine.getAlarmStatus(1).join());
+
+        //tenant 2 is disarmed and unaffected by tenant 1
+        engine.changeSensorActivationStatus(2, door, true).join();
+        assertEquals(AlarmStatus.NO_ALARM, engine.getAlarmStatus(2).join());
+
+        engine.setArmingStatus(1, ArmingStatus.DISARMED).join();
+        assertEquals(AlarmStatus.NO_ALARM, engine.getAlarmStatus(1).join());
+        assertEquals(List.of("1:PENDING_ALARM", "1:ALARM", "1:NO_ALARM"), alarms);
+    }
+
+    @Test
+    void catDetection_whileArmedHome_setsAlarmAndClearsOnceSensorsInactive() {
+        engine.addTenant(7).join();
+        engine.setArmingStatus(7, ArmingStatus.ARMED_HOME).join();
+
+        engine.processCatDetection(7, true).join();
+        assertEquals(AlarmStatus.ALARM, engine.getAlarmStatus(7).join());
+        engine.processCatDetection(7, false).join();
+        assertEquals(AlarmStatus.NO_ALARM, engine.getAlarmStatus(7).join());
+    }
+
+    @Test
+    void unknownTenantOrSensor_failsFuture() {
+        engine.addTenant(3).join();
+
+        CompletionException unknownTenant = assertThrows(CompletionException.class,
+                () -> engine.getAlarmStatus(4).join());
+        assertTrue(unknownTenant.getCause() instanceof IllegalArgumentException);
+        assertThrows(CompletionException.class,
+                () -> engine.changeSensorActivationStatus(3, UUID.randomUUID(), true).join());
+    }
+
+    @Test
+    void addAndRemoveManyTenants_keepsEveryRemainingTenantReachable() {
+        int count = 10_000;
+        List<CompletableFuture<Boolean>> added = new ArrayList<>();
+        for (long id = 0; id < count; id++) {
+            added.add(engine.addTenant(id * 31));
+        }
+        added.forEach(f -> assertTrue(f.join()));
+        assertFalse(engine.addTenant(0).join());
+        assertEquals(count, engine.getTenantCount());
+
+        for (long id = 0; id < count; id += 2) {
+            assertTrue(engine.removeTenant(id * 31).join());
+        }
+        assertEquals(count / 2, engine.getTenantCount());
+        for (long id = 1; id < count; id += 2) {
+            assertEquals(ArmingStatus.DISARMED, engine.getArmingStatus(id * 31).join());
+        }
+        assertFalse(engine.removeTenant(0).join());
+    }
+
+    @Test
+    void entryDelay_escalatesPendingAlarmOnlyOnceItExpires() throws InterruptedException {
+        engine.close();
+        engine = new MultiTenantSecurityEngine(2, Duration.ofMillis(1),
+                (tenantId, status) -> alarms.add(tenantId + ":" + status));
+        UUID door = UUID.randomUUID();
+        engine.addTenant(5).join();
+        engine.addSensor(5, door).join();
+        engine.setDelays(5, Duration.ofMillis(50), Duration.ZERO).join();
+        engine.setArmingStatus(5, ArmingStatus.ARMED_AWAY).join();
+
+        engine.changeSensorActivationStatus(5, door, true).join();
+        assertEquals(AlarmStatus.PENDING_ALARM, engine.getAlarmStatus(5).join());
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (engine.getAlarmStatus(5).join() != AlarmStatus.ALARM && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("5:PENDING_ALARM", "5:ALARM"), alarms);
+    }
+
+    @Test
+    void entryDelay_disarmingBeforeItExpires_cancelsEscalation() throws InterruptedException {
+        engine.close();
+        engine = new MultiTenantSecurityEngine(2, Duration.ofMillis(1),
+                (tenantId, status) -> alarms.add(tenantId + ":" + status));
+        UUID door = UUID.randomUUID();
+        engine.addTenant(6).join();
+        engine.addSensor(6, door).join();
+        engine.setDelays(6, Duration.ofMillis(30), Duration.ZERO).join();
+        engine.setArmingStatus(6, ArmingStatus.ARMED_HOME).join();
+        engine.changeSensorActivationStatus(6, door, true).join();
+
+        engine.setArmingStatus(6, ArmingStatus.DISARMED).join();
+        Thread.sleep(100);
+
+        assertEquals(AlarmStatus.NO_ALARM, engine.getAlarmStatus(6).join());
+        assertEquals(List.of("6:PENDING_ALARM", "6:NO_ALARM"), alarms);
+    }
+
+    @Test
+    void exitDelay_ignoresSensorActivationsUntilItExpires() throws InterruptedException {
+        UUID door = UUID.randomUUID();
+        engine.addTenant(8).join();
+        engine.addSensor(8, door).join();
+        engine.setDelays(8, Duration.ZERO, Duration.ofSeconds(60)).join();
+        engine.setArmingStatus(8, ArmingStatus.ARMED_AWAY).join();
+
+        engine.changeSensorActivationStatus(8, door, true).join();
+
+        assertEquals(AlarmStatus.NO_ALARM, engine.getAlarmStatus(8).join());
+        assertTrue(alarms.isEmpty());
+    }
+}
@@ -0,0 +1,156 @@
+package com.udacity.catpoint.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityEventLoopTest {
+
+    private SecurityEventLoop eventLoop;
+
+    @BeforeEach
+    void init() {
+        //small ring so producers regularly wait for free slots
+        eventLoop = new SecurityEventLoop(16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventLoop.close();
+    }
+
+    @Test
+    void execute_manyProducers_runsEveryCommandOnOneThreadInPerProducerOrder() throws InterruptedException {
+        int producers = 8;
+        int commandsPerProducer = 10_000;
+        List<List<Integer>> seen = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            seen.add(new ArrayList<>());
+        }
+        Set<Thread> loopThreads = new HashSet<>();
+        CountDownLatch done = new CountDownLatch(producers * commandsPerProducer);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            List<Integer> producerSeen = seen.get(p);
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < commandsPerProducer; i++) {
+                    int value = i;
+                    //plain lists: safe only because one thread runs every command
+                    eventLoop.execute(() -> {
+                        producerSeen.add(value);
+                        loopThreads.add(Thread.currentThread());
+                        done.countDown();
+                    });
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, loopThreads.size());
+        for (List<Integer> producerSeen : seen) {
+            assertEquals(commandsPerProducer, producerSeen.size());
+            for (int i = 0; i < commandsPerProducer; i++) {
+                assertEquals(i, (int) producerSeen.get(i));
+            }
+        }
+    }
+
+    @Test
+    void execute_fromLoopThread_runsImmediately() throws InterruptedException {
+        List<String> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        eventLoop.execute(() -> {
+            eventLoop.execute(() -> order.add("nested"));
+            order.add("outer");
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("nested", "outer"), order);
+    }
+
+    @Test
+    void execute_failingCommand_keepsLoopRunning() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        eventLoop.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        eventLoop.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void execute_commandThrowingError_keepsLoopRunning() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        eventLoop.execute(() -> {
+            throw new AssertionError("boom");
+        });
+        eventLoop.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void close_whileProducersExecute_runsEveryAcceptedCommand() throws InterruptedException {
+        int producers = 4;
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(producers);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                try {
+                    while (true) {
+                        eventLoop.execute(ran::incrementAndGet);
+                        accepted.incrementAndGet();
+                    }
+                } catch (RejectedExecutionException e) {
+                    //closed
+                }
+            });
+            threads.add(producer);
+            producer.start();
+        }
+        started.await();
+        Thread.sleep(20);
+        eventLoop.close();
+        for (Thread producer : threads) {
+            producer.join(5_000);
+            assertFalse(producer.isAlive());
+        }
+
+        assertEquals(accepted.get(), ran.get());
+    }
+
+    @Test
+    void close_runsQueuedCommandsThenRejectsNewOnes() {
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            eventLoop.execute(() -> ran.add(value));
+        }
+        eventLoop.close();
+
+        assertEquals(10, ran.size());
+        assertThrows(RejectedExecutionException.class, () -> eventLoop.execute(() -> { }));
+    }
+}
@@ -1,6 +1,8 @@
 package com.udacity.catpoint.service;
 
 import com.udacity.catpoint.application.StatusListener;
+import com.udacity.catpoint.audit.AuditCause;
+import com.udacity.catpoint.audit.AuditEvent;
 import com.udacity.catpoint.data.*;
 import com.udacity.catpoint.image.ImageService;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,8 +11,16 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
 import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -60,6 +70,20 @@ public class SecurityServiceTest {
         assertEquals(status, securityService.getArmingStatus());
     }
 
+    @Test
+    void setArmingStatus_armed_persistsSensorResetInOneBatch() {
+        for (int i = 0; i < 3; i++) {
+            Sensor activeSensor = new Sensor("Active " + i, SensorType.WINDOW);
+            activeSensor.setActive(true);
+            securityService.addSensor(activeSensor);
+        }
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        assertEquals(1, securityRepository.getBatchUpdateCount());
+        assertEquals(0, securityRepository.getSingleUpdateCount());
+    }
+
     @Test
     void setArmingStatus_armedHomeWithCat_setsAlarm() {
         imageService.setContainsCat(true);
@@ -91,6 +115,28 @@ public class SecurityServiceTest {
         assertFalse(statusListener.isCatDetected());
     }
 
+    @Test
+    void processImageAsync_catDetectedWhileArmedHome_setsAlarm() {
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        imageService.setContainsCat(true);
+        assertTrue(securityService.processImageAsync(catImage).join());
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void processImageAsync_olderResultArrivingLate_isDiscarded() {
+        CompletableFuture<Boolean> olderScan = new CompletableFuture<>();
+        CompletableFuture<Boolean> newerScan = new CompletableFuture<>();
+        imageService.setPendingResults(olderScan, newerScan);
+
+        securityService.processImageAsync(catImage);
+        securityService.processImageAsync(nonCatImage);
+        newerScan.complete(false);
+        olderScan.complete(true);
+
+        assertFalse(statusListener.isCatDetected());
+    }
+
     // ========== changeSensorActivationStatus() Tests ==========
     @Test
     void changeSensorActivationStatus_activeWhileArmed_setsPendingAlarm() {
@@ -193,18 +239,106 @@ public class SecurityServiceTest {
         assertNotNull(listener2.getLastSensorStatusChange());
     }
 
+    // ========== Audit Tests ==========
+    @Test
+    void transitions_areRecordedWithTheirCause() {
+        List<String> audit = new ArrayList<>();
+        securityService = new SecurityService(securityRepository, imageService, Runnable::run,
+                StatusDispatcher.DIRECT, (tenant, type, msb, lsb, oldState, newState, cause) ->
+                audit.add(type + " " + oldState + "->" + newState + " " + cause));
+        sensor.setActive(true);
+        securityService.addSensor(sensor);
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.changeSensorActivationStatus(sensor, true);
+        imageService.setContainsCat(true);
+        securityService.processImage(catImage);
+
+        assertEquals(List.of(
+                AuditEvent.Type.SENSOR + " 1->0 " + AuditCause.ARMING,
+                AuditEvent.Type.ARMING + " 0->1 " + AuditCause.USER,
+                AuditEvent.Type.SENSOR + " 0->1 " + AuditCause.SENSOR,
+                AuditEvent.Type.ALARM + " 0->1 " + AuditCause.SENSOR,
+                AuditEvent.Type.ALARM + " 1->2 " + AuditCause.CAMERA), audit);
+    }
+
+    @Test
+    void failingAuditLog_doesNotStopTransitionsOrNotifications() {
+        securityService = new SecurityService(securityRepository, imageService, Runnable::run,
+                StatusDispatcher.DIRECT, (tenant, type, msb, lsb, oldState, newState, cause) -> {
+                    throw new java.io.UncheckedIOException(new java.io.IOException("disk full"));
+                });
+        securityService.addStatusListener(statusListener);
+        securityService.addSensor(sensor);
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(sensor, true);
+        securityService.changeSensorActivationStatus(sensor, true);
+
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        assertEquals(AlarmStatus.ALARM, statusListener.getLastStatus());
+    }
+
+    @Test
+    void entryDelay_escalatesPendingAlarmOnlyOnceItExpires() throws InterruptedException {
+        try (SecurityEventLoop eventLoop = new SecurityEventLoop()) {
+            SecurityService service = new SecurityService(securityRepository, imageService, eventLoop);
+            service.setDelays(Duration.ofMillis(50), Duration.ZERO);
+            service.addSensor(sensor);
+            service.submit(s -> s.setArmingStatus(ArmingStatus.ARMED_AWAY)).join();
+
+            service.submit(s -> s.changeSensorActivationStatus(sensor, true)).join();
+            assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (service.getAlarmStatus() != AlarmStatus.ALARM && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        }
+    }
+
+    @Test
+    void exitDelay_ignoresSensorsActivatedWhileItRuns() {
+        securityService.setDelays(Duration.ZERO, Duration.ofMinutes(1));
+        securityService.addSensor(sensor);
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        assertTrue(securityService.inExitDelay());
+        securityService.changeSensorActivationStatus(sensor, true);
+
+        assertTrue(sensor.getActive());
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        assertFalse(securityService.inExitDelay());
+    }
+
     // ========== Helper Classes ==========
     private static class TestImageService implements ImageService {
         private boolean containsCat = false;
+        private final Deque<CompletableFuture<Boolean>> pendingResults = new ArrayDeque<>();
 
         public void setContainsCat(boolean containsCat) {
             this.containsCat = containsCat;
         }
 
+        @SafeVarargs
+        public final void setPendingResults(CompletableFuture<Boolean>... results) {
+            pendingResults.addAll(Arrays.asList(results));
+        }
+
         @Override
         public boolean imageContainsCat(BufferedImage image) {
             return containsCat;
         }
+
+        @Override
+        public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image) {
+            if (pendingResults.isEmpty()) {
+                return CompletableFuture.completedFuture(containsCat);
+            }
+            return pendingResults.poll();
+        }
     }
 
     private static class TestStatusListener implements StatusListener {
@@ -244,6 +378,8 @@ public class SecurityServiceTest {
         private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
         private ArmingStatus armingStatus = ArmingStatus.DISARMED;
         private Set<Sensor> sensors = new HashSet<>();
+        private int singleUpdateCount;
+        private int batchUpdateCount;
 
         @Override
         public void addSensor(Sensor sensor) {
@@ -257,12 +393,32 @@ public class SecurityServiceTest {
 
         @Override
         public void updateSensor(Sensor sensor) {
+            singleUpdateCount++;
             if (sensors.contains(sensor)) {
                 sensors.remove(sensor);
                 sensors.add(sensor);
             }
         }
 
+        @Override
+        public void updateSensors(Collection<Sensor> updated) {
+            batchUpdateCount++;
+            updated.forEach(sensor -> {
+                if (sensors.contains(sensor)) {
+                    sensors.remove(sensor);
+                    sensors.add(sensor);
+                }
+            });
+        }
+
+        public int getSingleUpdateCount() {
+            return singleUpdateCount;
+        }
+
+        public int getBatchUpdateCount() {
+            return batchUpdateCount;
+        }
+
         @Override
         public void setAlarmStatus(AlarmStatus alarmStatus) {
             this.alarmStatus = alarmStatus;
@@ -0,0 +1,104 @@
+package com.udacity.catpoint.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void advance_firesEachTimerAtItsTickAcrossAllLevels() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        long[] delaysInTicks = {1, 255, 256, 257, 300, 65_535, 65_536, 70_000, 20_000_000};
+        long[] firedAt = new long[delaysInTicks.length];
+        long[] now = new long[1];
+        for (int i = 0; i < delaysInTicks.length; i++) {
+            int timer = i;
+            wheel.schedule(delaysInTicks[i] * TICK, () -> firedAt[timer] = now[0]);
+        }
+
+        //advance in uneven steps so timers fire from within larger jumps too
+        while (wheel.size() > 0) {
+            now[0] += TICK * (1 + now[0] % 7);
+            wheel.advance(now[0]);
+        }
+
+        for (int i = 0; i < delaysInTicks.length; i++) {
+            long due = delaysInTicks[i] * TICK;
+            assertTrue(firedAt[i] >= due, "timer " + i + " fired early");
+            assertTrue(firedAt[i] < due + TICK * 8, "timer " + i + " fired late");
+        }
+    }
+
+    @Test
+    void advance_tickByTick_firesExactlyOnDeadline() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        List<Long> fired = new ArrayList<>();
+        long[] now = new long[1];
+        for (long delay : new long[]{256, 512, 65_536, 65_792}) {
+            wheel.schedule(delay * TICK, () -> fired.add(now[0] / TICK));
+        }
+
+        for (now[0] = 0; wheel.size() > 0; now[0] += TICK) {
+            wheel.advance(now[0]);
+        }
+
+        assertEquals(List.of(256L, 512L, 65_536L, 65_792L), fired);
+    }
+
+    @Test
+    void cancel_preventsTimerFromRunning() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        List<String> fired = new ArrayList<>();
+        TimingWheel.Timeout cancelled = wheel.schedule(5 * TICK, () -> fired.add("cancelled"));
+        wheel.schedule(5 * TICK, () -> fired.add("kept"));
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        wheel.advance(10 * TICK);
+
+        assertEquals(List.of("kept"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void task_cancellingTimerDueInSameTick_stopsIt() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        List<String> fired = new ArrayList<>();
+        TimingWheel.Timeout[] other = new TimingWheel.Timeout[1];
+        other[0] = wheel.schedule(3 * TICK, () -> fired.add("first"));
+        //filed second, so it sits at the head of the slot and runs first
+        wheel.schedule(3 * TICK, () -> {
+            fired.add("second");
+            other[0].cancel();
+        });
+
+        wheel.advance(3 * TICK);
+
+        assertEquals(List.of("second"), fired);
+        assertTrue(other[0].isDone());
+    }
+
+    @Test
+    void scheduleAndCancel_millionTimers_leavesWheelEmpty() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        int count = 1_000_000;
+        TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[count];
+        for (int i = 0; i < count; i++) {
+            timeouts[i] = wheel.schedule((i % 100_000) * TICK, () -> { });
+        }
+        assertEquals(count, wheel.size());
+
+        for (int i = 0; i < count; i += 2) {
+            timeouts[i].cancel();
+        }
+        assertEquals(count / 2, wheel.size());
+        assertEquals(count / 2, wheel.advance(100_000 * TICK));
+        assertEquals(0, wheel.size());
+    }
+}